@@ -31,6 +31,8 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ClassToInstanceMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.MutableClassToInstanceMap;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.StylesheetSnapshot;
 import com.salesforce.omakase.broadcast.Broadcastable;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.broadcast.EmittingBroadcaster;
@@ -41,6 +43,8 @@ import com.salesforce.omakase.broadcast.annotation.Validate;
 import com.salesforce.omakase.broadcast.emitter.Emitter;
 import com.salesforce.omakase.broadcast.emitter.SubscriptionPhase;
 import com.salesforce.omakase.error.ErrorManager;
+import com.salesforce.omakase.parser.ParserFactory;
+import com.salesforce.omakase.parser.Source;
 import com.salesforce.omakase.parser.refiner.MasterRefiner;
 import com.salesforce.omakase.parser.refiner.Refiner;
 import com.salesforce.omakase.parser.token.StandardTokenFactory;
@@ -50,6 +54,8 @@ import com.salesforce.omakase.plugin.DependentPlugin;
 import com.salesforce.omakase.plugin.Plugin;
 import com.salesforce.omakase.plugin.PostProcessingPlugin;
 import com.salesforce.omakase.plugin.SyntaxPlugin;
+import com.salesforce.omakase.plugin.basic.Metrics;
+import com.salesforce.omakase.plugin.basic.ParseStats;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -79,6 +85,15 @@ final class Context implements Broadcaster, PluginRegistry {
     /** token factory affects delimiter grammar rules */
     private TokenFactory tokenFactory;
 
+    /** optional instrumentation, only present if a {@link Metrics} plugin was registered */
+    private Metrics metrics;
+
+    /** optional statistics, only present if a {@link ParseStats} plugin was registered */
+    private ParseStats stats;
+
+    /** whether refinement results should be memoized, see {@link MasterRefiner#memoize(boolean)} */
+    private boolean memoize;
+
     /** internal construction only */
     Context() {}
 
@@ -174,6 +189,17 @@ final class Context implements Broadcaster, PluginRegistry {
         this.broadcaster = broadcaster;
     }
 
+    /**
+     * Specifies whether refiners created by {@link #createRefiner()} should memoize refinement results. See {@link
+     * MasterRefiner#memoize(boolean)}.
+     *
+     * @param memoize
+     *     Whether to memoize refinement results.
+     */
+    public void memoizeRefinement(boolean memoize) {
+        this.memoize = memoize;
+    }
+
     /**
      * Creates a new {@link MasterRefiner} instance with the {@link Broadcaster} currently set on this {@link Context} and with
      * the {@link Refiner}s from all registered {@link SyntaxPlugin}s. This will use the {@link StandardTokenFactory}.
@@ -187,7 +213,8 @@ final class Context implements Broadcaster, PluginRegistry {
             tokenFactory = StandardTokenFactory.instance();
         }
 
-        MasterRefiner refiner = new MasterRefiner(broadcaster, tokenFactory);
+        MasterRefiner refiner = new MasterRefiner(broadcaster, tokenFactory).metrics(metrics).parseStats(stats)
+            .memoize(memoize);
 
         for (SyntaxPlugin plugin : filter(SyntaxPlugin.class)) {
             plugin.registerRefiners(refiner);
@@ -214,29 +241,81 @@ final class Context implements Broadcaster, PluginRegistry {
      * interested in such information, usually as a hook to add in their own dependencies on other {@link Plugin}s.
      */
     protected void before() {
+        // hook up instrumentation if requested
+        metrics = registry.getInstance(Metrics.class);
+        emittingBroadcaster.metrics(metrics);
+        stats = registry.getInstance(ParseStats.class);
+
         // distribute the broadcaster to plugins that need it
         for (BroadcastingPlugin plugin : filter(BroadcastingPlugin.class)) {
             plugin.broadcaster(this);
         }
     }
 
+    /**
+     * Internal method to perform the (high-level) parsing of the given source. This should be called after {@link #before()} and
+     * before {@link #after()}.
+     *
+     * @param source
+     *     The source to parse.
+     */
+    protected void parse(Source source) {
+        long start = stats != null ? System.nanoTime() : 0;
+        ParserFactory.stylesheetParser().parse(source, this, createRefiner());
+        if (stats != null) stats.parsed(source.length(), System.nanoTime() - start);
+    }
+
+    /**
+     * Internal method to create the {@link Stylesheet} from the given snapshot, used in place of {@link #parse(Source)}.
+     *
+     * @param snapshot
+     *     The snapshot to thaw.
+     */
+    protected void thaw(StylesheetSnapshot snapshot) {
+        long start = stats != null ? System.nanoTime() : 0;
+        snapshot.thaw(this, createRefiner());
+        if (stats != null) stats.parsed(snapshot.sourceLength(), System.nanoTime() - start);
+    }
+
+    /**
+     * Internal method to create the {@link Stylesheet} from the given source using the given {@link ParseCache}, used in place of
+     * {@link #parse(Source)}.
+     *
+     * @param source
+     *     The source to parse.
+     * @param cache
+     *     The cache to look up or store the parsed source.
+     */
+    protected void parse(Source source, ParseCache cache) {
+        long start = stats != null ? System.nanoTime() : 0;
+        MasterRefiner refiner = createRefiner();
+        cache.snapshot(source, refiner.tokenFactory()).thaw(this, refiner);
+        if (stats != null) stats.parsed(source.length(), System.nanoTime() - start);
+    }
+
     /**
      * Internal method to signify when (high-level) parsing is completed. This will notify all {@link Plugin}s that are interested
      * in such information. This also replays the stored broadcasts for each phase.
      */
     protected void after() {
+        long start = stats != null ? System.nanoTime() : 0;
+
         // run observers and reworkers
         emittingBroadcaster.phase(SubscriptionPhase.PROCESS);
         visitor.visit();
+        long processed = stats != null ? System.nanoTime() : 0;
 
         // run validators
         emittingBroadcaster.phase(SubscriptionPhase.VALIDATE);
         visitor.visit();
+        long validated = stats != null ? System.nanoTime() : 0;
 
         // notify post processors
         for (PostProcessingPlugin plugin : filter(PostProcessingPlugin.class)) {
             plugin.postProcess(this);
         }
+
+        if (stats != null) stats.phases(processed - start, validated - processed, System.nanoTime() - validated);
     }
 
     /** helper method to get only plugins of a certain type */
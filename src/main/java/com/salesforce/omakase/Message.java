@@ -113,7 +113,9 @@ public enum Message {
     UNICODE_LONG("More than 6 hexidecimal or wildcard characters in a unicode range is not allowed"),
     HEX_AFTER_WILDCARD("Hexidecimal characters are not allowed after a wildcard in a unicode range"),
     WILDCARD_NOT_ALLOWED("Wildcard not allowed in unicode interval ranges"),
-    BAD_DECLARATION_REFINER("DeclarationRefiner '%s' returned true but did not broadcast a PropertyValue");
+    BAD_DECLARATION_REFINER("DeclarationRefiner '%s' returned true but did not broadcast a PropertyValue"),
+    CONFLICTING_KEYFRAMES("Keyframes '%s' were already defined with different content (the last definition wins)"),
+    CONFLICTING_FONT_FACE("Font face '%s' was already defined with different content (the last definition wins)");
 
     private final String message;
 
@@ -27,13 +27,15 @@
 package com.salesforce.omakase;
 
 import com.google.common.collect.Lists;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.StylesheetSnapshot;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.error.ErrorLevel;
 import com.salesforce.omakase.error.ErrorManager;
 import com.salesforce.omakase.error.ThrowingErrorManager;
 import com.salesforce.omakase.parser.ParserException;
-import com.salesforce.omakase.parser.ParserFactory;
 import com.salesforce.omakase.parser.Source;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
 import com.salesforce.omakase.parser.token.TokenFactory;
 import com.salesforce.omakase.plugin.Plugin;
 import com.salesforce.omakase.writer.StyleWriter;
@@ -95,6 +97,23 @@ public final class Omakase {
         return new Request(source);
     }
 
+    /**
+     * Specifies a previously parsed {@link StylesheetSnapshot} to process.
+     * <p>
+     * This works the same as {@link #source(CharSequence)}, except the parsing step is replaced by thawing a new {@link
+     * Stylesheet} from the snapshot (see {@link StylesheetSnapshot#thaw(Broadcaster, MasterRefiner)}). The snapshot itself is not
+     * modified, so the same snapshot can be processed any number of times, including concurrently.
+     *
+     * @param snapshot
+     *     The snapshot to process.
+     *
+     * @return The processed request (see {@link Request}).
+     */
+    public static Omakase.Request source(StylesheetSnapshot snapshot) {
+        checkNotNull(snapshot, "snapshot cannot be null");
+        return new Request(snapshot);
+    }
+
     /**
      * Represents a request to process CSS.
      * <p>
@@ -107,13 +126,23 @@ public final class Omakase {
     public static final class Request {
         private final Context context;
         private final Source source;
+        private final StylesheetSnapshot snapshot;
 
         private TokenFactory tokenFactory;
         private ErrorManager em;
+        private ParseCache cache;
 
         Request(CharSequence source) {
             this.context = new Context();
             this.source = new Source(source.toString());
+            this.snapshot = null;
+            this.em = new ThrowingErrorManager();
+        }
+
+        Request(StylesheetSnapshot snapshot) {
+            this.context = new Context();
+            this.source = null;
+            this.snapshot = snapshot;
             this.em = new ThrowingErrorManager();
         }
 
@@ -155,6 +184,34 @@ public final class Omakase {
             return this;
         }
 
+        /**
+         * Specifies a {@link ParseCache} to use. If the same source was parsed before with the same cache then parsing is skipped
+         * and the stylesheet is thawed from the cache instead. This has no effect when processing a {@link StylesheetSnapshot}.
+         *
+         * @param cache
+         *     The cache.
+         *
+         * @return this, for chaining.
+         */
+        public Request cache(ParseCache cache) {
+            this.cache = checkNotNull(cache, "the cache cannot be null");
+            return this;
+        }
+
+        /**
+         * Memoizes the refinement of selectors and declarations, so that each distinct raw selector or declaration value is only
+         * refined once. Later occurrences receive copies of the first result. This can significantly speed up the refinement of
+         * large stylesheets that repeat the same selectors and values many times. Units created this way do not have source
+         * positions. Custom refiners must produce the same result for the same raw content. See {@link
+         * MasterRefiner#memoize(boolean)} for more information.
+         *
+         * @return this, for chaining.
+         */
+        public Request memoizeRefinement() {
+            context.memoizeRefinement(true);
+            return this;
+        }
+
         /**
          * Specifies a {@link Broadcaster} to wrap around the default one. Doing this allows you to decorate the broadcast
          * functionality with your own behavior or information gathering.
@@ -182,7 +239,13 @@ public final class Omakase {
             try {
                 context.errorManager(em);
                 context.before();
-                ParserFactory.stylesheetParser().parse(source, context, context.createRefiner());
+                if (snapshot != null) {
+                    context.thaw(snapshot);
+                } else if (cache != null) {
+                    context.parse(source, cache);
+                } else {
+                    context.parse(source);
+                }
                 context.after();
             } catch (ParserException e) {
                 em.report(ErrorLevel.FATAL, e);
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.StylesheetSnapshot;
+import com.salesforce.omakase.broadcast.QueryableBroadcaster;
+import com.salesforce.omakase.parser.ParserFactory;
+import com.salesforce.omakase.parser.Source;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
+import com.salesforce.omakase.parser.token.TokenFactory;
+import com.salesforce.omakase.util.As;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A cache of parsed stylesheets, keyed by the content of the CSS source. Use this when the same CSS source is processed many
+ * times, for example a shared component library that is included in many requests.
+ * <p>
+ * The cache holds a {@link StylesheetSnapshot} of the first-level parse of each source. When a request using the cache is
+ * processed, the source is hashed and the stylesheet is thawed from the cached snapshot instead of being parsed again. All
+ * registered plugins still run as usual on the thawed stylesheet, so the results are the same as without the cache. The snapshot
+ * is taken before any plugin sees the units, so the plugins in use don't affect the cached content. The only configuration that
+ * does is the {@link TokenFactory}, which is included in the key.
+ * <p>
+ * Note that only the parsing is skipped. The output of a {@link com.salesforce.omakase.writer.StyleWriter} is not cached, as
+ * plugins commonly have observable side effects (e.g., collected data, reported errors) that a skipped request wouldn't have.
+ * <p>
+ * The cache is bounded by the total length of the cached sources and evicts the least recently used entries first. It is safe
+ * to share a single instance between threads.
+ * <p>
+ * Example:
+ * <pre>
+ * <code>ParseCache cache = new ParseCache(10 * 1024 * 1024);
+ * ...
+ * Omakase.source(input).cache(cache).use(plugins).use(writer).process();
+ * </code></pre>
+ *
+ * @author nmcwilliams
+ */
+public final class ParseCache {
+    private final Cache<HashCode, Entry> cache;
+
+    /**
+     * Creates a new {@link ParseCache}.
+     *
+     * @param maximumLength
+     *     The maximum total number of characters of source to keep parsed stylesheets for.
+     */
+    public ParseCache(long maximumLength) {
+        checkArgument(maximumLength > 0, "maximumLength must be greater than zero");
+        this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maximumLength)
+            .weigher(new Weigher<HashCode, Entry>() {
+                @Override
+                public int weigh(HashCode key, Entry entry) {
+                    return entry.length;
+                }
+            })
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Gets the snapshot for the given source, parsing and caching it first if not already cached.
+     *
+     * @param source
+     *     The CSS source.
+     * @param tokenFactory
+     *     The {@link TokenFactory} to use when parsing.
+     *
+     * @return The snapshot.
+     */
+    StylesheetSnapshot snapshot(final Source source, final TokenFactory tokenFactory) {
+        HashCode key = Hashing.sha256().newHasher()
+            .putString(tokenFactory.getClass().getName(), Charsets.UTF_8)
+            .putString(source.fullSource(), Charsets.UTF_8)
+            .hash();
+
+        try {
+            return cache.get(key, new Callable<Entry>() {
+                @Override
+                public Entry call() {
+                    return new Entry(parse(source, tokenFactory), source.length());
+                }
+            }).snapshot;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // parser exceptions are runtime exceptions, and are rethrown as is
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /** parses the source without any plugins, so that the snapshot is the same regardless of the request */
+    private static StylesheetSnapshot parse(Source source, TokenFactory tokenFactory) {
+        QueryableBroadcaster broadcaster = new QueryableBroadcaster();
+        ParserFactory.stylesheetParser().parse(source, broadcaster, new MasterRefiner(broadcaster, tokenFactory));
+        Stylesheet stylesheet = broadcaster.find(Stylesheet.class).get();
+        return new StylesheetSnapshot(stylesheet, source.length());
+    }
+
+    /**
+     * Gets the number of cached stylesheets.
+     *
+     * @return The number of cached stylesheets.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the hit, miss and eviction counts of this cache. Note that a miss includes the time spent parsing.
+     *
+     * @return The {@link CacheStats}.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /** Removes all cached stylesheets. */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String toString() {
+        return As.string(this).add("size", size()).add("stats", stats()).toString();
+    }
+
+    /** a cached snapshot along with the length of its source, used as the weight */
+    private static final class Entry {
+        final StylesheetSnapshot snapshot;
+        final int length;
+
+        Entry(StylesheetSnapshot snapshot, int length) {
+            this.snapshot = snapshot;
+            this.length = length;
+        }
+    }
+}
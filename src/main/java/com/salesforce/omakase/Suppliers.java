@@ -31,6 +31,8 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMap;
 import com.salesforce.omakase.plugin.Plugin;
 import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.plugin.basic.Metrics;
+import com.salesforce.omakase.plugin.basic.ParseStats;
 import com.salesforce.omakase.plugin.basic.SyntaxTree;
 import com.salesforce.omakase.plugin.conditionals.Conditionals;
 import com.salesforce.omakase.plugin.conditionals.ConditionalsCollector;
@@ -62,6 +64,18 @@ final class Suppliers {
                 return new AutoRefiner();
             }
         })
+        .put(Metrics.class, new Supplier<Metrics>() {
+            @Override
+            public Metrics get() {
+                return new Metrics();
+            }
+        })
+        .put(ParseStats.class, new Supplier<ParseStats>() {
+            @Override
+            public ParseStats get() {
+                return new ParseStats();
+            }
+        })
         .put(Prefixer.class, new Supplier<Prefixer>() {
             @Override
             public Prefixer get() {
@@ -34,6 +34,7 @@ import com.salesforce.omakase.util.As;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -43,8 +44,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author nmcwilliams
  */
 public abstract class AbstractSyntax implements Syntax {
+    /** only used when an id is actually requested, so that creating units doesn't contend on shared state */
     private static final AtomicInteger sequence = new AtomicInteger();
-    private final int id = sequence.incrementAndGet();
+
+    /** units may be shared across threads (e.g., in a snapshot), so the lazily assigned id must be set exactly once */
+    private static final AtomicIntegerFieldUpdater<AbstractSyntax> ID =
+        AtomicIntegerFieldUpdater.newUpdater(AbstractSyntax.class, "id");
+
+    private volatile int id;
 
     private final int line;
     private final int column;
@@ -74,9 +81,23 @@ public abstract class AbstractSyntax implements Syntax {
 
     @Override
     public int id() {
+        int current = id;
+        if (current != 0) return current;
+
+        // if another thread assigned an id first then use that one, so the id never changes once observed
+        ID.compareAndSet(this, 0, nextId(sequence));
         return id;
     }
 
+    /** gets the next id from the given sequence, skipping 0 (which means unassigned) when the sequence wraps around */
+    static int nextId(AtomicInteger sequence) {
+        int next;
+        do {
+            next = sequence.incrementAndGet();
+        } while (next == 0);
+        return next;
+    }
+
     @Override
     public int line() {
         return line;
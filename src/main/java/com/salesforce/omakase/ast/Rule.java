@@ -27,18 +27,23 @@
 package com.salesforce.omakase.ast;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.salesforce.omakase.ast.collection.AbstractGroupable;
-import com.salesforce.omakase.ast.collection.LinkedSyntaxCollection;
 import com.salesforce.omakase.ast.collection.SyntaxCollection;
+import com.salesforce.omakase.ast.collection.SyntaxCollections;
 import com.salesforce.omakase.ast.declaration.Declaration;
 import com.salesforce.omakase.ast.selector.Selector;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.broadcast.annotation.Description;
 import com.salesforce.omakase.broadcast.annotation.Subscribable;
+import com.salesforce.omakase.util.PropertyRoots;
 import com.salesforce.omakase.writer.StyleAppendable;
 import com.salesforce.omakase.writer.StyleWriter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import static com.salesforce.omakase.broadcast.BroadcastRequirement.AUTOMATIC;
@@ -95,8 +100,8 @@ public final class Rule extends AbstractGroupable<StatementIterable, Statement>
      */
     public Rule(int line, int column, Broadcaster broadcaster) {
         super(line, column);
-        selectors = new LinkedSyntaxCollection<>(this, broadcaster);
-        declarations = new LinkedSyntaxCollection<>(this, broadcaster);
+        selectors = SyntaxCollections.newCollection(this, broadcaster);
+        declarations = SyntaxCollections.newCollection(this, broadcaster);
     }
 
     /**
@@ -187,7 +192,7 @@ public final class Rule extends AbstractGroupable<StatementIterable, Statement>
         writer.incrementDepth();
 
         // declarations
-        for (Declaration declaration : declarations) {
+        for (Declaration declaration : writer.shouldSortDeclarations() ? sortedDeclarations() : declarations) {
             writer.writeInner(declaration, appendable);
         }
 
@@ -203,6 +208,37 @@ public final class Rule extends AbstractGroupable<StatementIterable, Statement>
         appendable.append('}');
     }
 
+    /**
+     * Gets the declarations ordered by their {@linkplain PropertyRoots#root(String) property root}. Declarations with the same
+     * root keep their relative order. The declarations of a rule that declares <code>all</code> are returned in their original
+     * order, since <code>all</code> overrides properties of every root. Unrefined declarations are not refined.
+     */
+    private List<Declaration> sortedDeclarations() {
+        final List<Declaration> list = Lists.newArrayList(declarations);
+        final String[] roots = new String[list.size()];
+        Integer[] order = new Integer[list.size()];
+
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = PropertyRoots.root(list.get(i).unprefixedPropertyName());
+            if (roots[i].equals("all")) return list;
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int result = roots[a].compareTo(roots[b]);
+                return result != 0 ? result : a.compareTo(b);
+            }
+        });
+
+        List<Declaration> sorted = new ArrayList<>(order.length);
+        for (Integer index : order) {
+            sorted.add(list.get(index));
+        }
+        return sorted;
+    }
+
     @Override
     public Rule copy() {
         Rule copy = new Rule().copiedFrom(this);
@@ -0,0 +1,932 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.ast;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.atrule.AtRuleBlock;
+import com.salesforce.omakase.ast.atrule.AtRuleExpression;
+import com.salesforce.omakase.ast.atrule.GenericAtRuleBlock;
+import com.salesforce.omakase.ast.atrule.GenericAtRuleExpression;
+import com.salesforce.omakase.ast.atrule.MediaQuery;
+import com.salesforce.omakase.ast.atrule.MediaQueryExpression;
+import com.salesforce.omakase.ast.atrule.MediaQueryList;
+import com.salesforce.omakase.ast.atrule.MediaRestriction;
+import com.salesforce.omakase.ast.atrule.MetadataExpression;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.declaration.GenericFunctionValue;
+import com.salesforce.omakase.ast.declaration.HexColorValue;
+import com.salesforce.omakase.ast.declaration.KeywordValue;
+import com.salesforce.omakase.ast.declaration.LinearGradientFunctionValue;
+import com.salesforce.omakase.ast.declaration.NumericalValue;
+import com.salesforce.omakase.ast.declaration.Operator;
+import com.salesforce.omakase.ast.declaration.OperatorType;
+import com.salesforce.omakase.ast.declaration.PropertyName;
+import com.salesforce.omakase.ast.declaration.PropertyValue;
+import com.salesforce.omakase.ast.declaration.PropertyValueMember;
+import com.salesforce.omakase.ast.declaration.QuotationMode;
+import com.salesforce.omakase.ast.declaration.StringValue;
+import com.salesforce.omakase.ast.declaration.UnicodeRangeValue;
+import com.salesforce.omakase.ast.declaration.UrlFunctionValue;
+import com.salesforce.omakase.ast.extended.UnquotedIEFilter;
+import com.salesforce.omakase.ast.selector.AttributeMatchType;
+import com.salesforce.omakase.ast.selector.AttributeSelector;
+import com.salesforce.omakase.ast.selector.ClassSelector;
+import com.salesforce.omakase.ast.selector.Combinator;
+import com.salesforce.omakase.ast.selector.CombinatorType;
+import com.salesforce.omakase.ast.selector.IdSelector;
+import com.salesforce.omakase.ast.selector.KeyframeSelector;
+import com.salesforce.omakase.ast.selector.PseudoClassSelector;
+import com.salesforce.omakase.ast.selector.PseudoElementSelector;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.ast.selector.SelectorPart;
+import com.salesforce.omakase.ast.selector.SelectorPartType;
+import com.salesforce.omakase.ast.selector.TypeSelector;
+import com.salesforce.omakase.ast.selector.UniversalSelector;
+import com.salesforce.omakase.broadcast.QueryableBroadcaster;
+import com.salesforce.omakase.data.Prefix;
+import com.salesforce.omakase.parser.ParserFactory;
+import com.salesforce.omakase.parser.Source;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
+import com.salesforce.omakase.writer.StyleWriter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the binary format used by {@link StylesheetSnapshot#writeTo(OutputStream)} and {@link
+ * StylesheetSnapshot#readFrom(InputStream)}.
+ * <p>
+ * The format is a straight walk of the tree. Integers are written as unsigned varints and strings are written once and then
+ * referenced by index, as class names, keywords, property names, etc... are heavily repeated. Unrefined units are written as
+ * their raw content. Refined selectors, declarations and media queries are written unit by unit, so that reading them back
+ * requires no lexing or refinement. Refined units of any other type (e.g., custom syntax) are written as their compressed CSS
+ * output and read back unrefined.
+ *
+ * @author nmcwilliams
+ */
+final class SnapshotCodec {
+    private static final int MAGIC = 0x4f4d4b53; // "OMKS"
+    private static final int VERSION = 2;
+
+    // statements
+    private static final int RULE = 1;
+    private static final int AT_RULE = 2;
+    private static final int TEXT = 3;
+
+    // selectors, declarations and at-rules
+    private static final int UNREFINED = 0;
+    private static final int REFINED = 1;
+
+    // selector parts
+    private static final int CLASS_SELECTOR = 1;
+    private static final int ID_SELECTOR = 2;
+    private static final int TYPE_SELECTOR = 3;
+    private static final int UNIVERSAL_SELECTOR = 4;
+    private static final int COMBINATOR = 5;
+    private static final int ATTRIBUTE_SELECTOR = 6;
+    private static final int PSEUDO_CLASS_SELECTOR = 7;
+    private static final int PSEUDO_ELEMENT_SELECTOR = 8;
+    private static final int KEYFRAME_SELECTOR = 9;
+
+    // property value members
+    private static final int KEYWORD = 1;
+    private static final int NUMERICAL = 2;
+    private static final int HEX_COLOR = 3;
+    private static final int STRING = 4;
+    private static final int URL = 5;
+    private static final int FUNCTION = 6;
+    private static final int LINEAR_GRADIENT = 7;
+    private static final int UNICODE_RANGE = 8;
+    private static final int IE_FILTER = 9;
+    private static final int OPERATOR = 10;
+
+    // at-rule expressions and blocks
+    private static final int ABSENT = 0;
+    private static final int GENERIC_EXPRESSION = 1;
+    private static final int MEDIA_QUERY_LIST = 2;
+    private static final int METADATA_EXPRESSION = 3;
+    private static final int GENERIC_BLOCK = 1;
+
+    private SnapshotCodec() {}
+
+    /**
+     * Writes the given {@link Stylesheet} to the given stream. The stylesheet is not modified.
+     *
+     * @param stylesheet
+     *     The stylesheet to write.
+     * @param sourceLength
+     *     The length of the source the stylesheet was parsed from, see {@link StylesheetSnapshot#sourceLength()}.
+     * @param output
+     *     Write to this stream. The stream is flushed but not closed.
+     *
+     * @throws IOException
+     *     If an I/O error occurs.
+     */
+    static void write(Stylesheet stylesheet, int sourceLength, OutputStream output) throws IOException {
+        Encoder encoder = new Encoder(new DataOutputStream(output));
+        encoder.out.writeInt(MAGIC);
+        encoder.out.writeByte(VERSION);
+        encoder.varint(sourceLength);
+        encoder.stylesheet(stylesheet);
+        encoder.out.flush();
+    }
+
+    /**
+     * Reads a {@link StylesheetSnapshot} from the given stream.
+     *
+     * @param input
+     *     Read from this stream. The stream is not closed.
+     * @param refiner
+     *     The {@link MasterRefiner} given to unrefined units.
+     *
+     * @return The new snapshot.
+     *
+     * @throws IOException
+     *     If an I/O error occurs or the content is not in the expected format.
+     */
+    static StylesheetSnapshot read(InputStream input, MasterRefiner refiner) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) throw new IOException("not a stylesheet snapshot");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("unsupported stylesheet snapshot version " + version);
+
+        Decoder decoder = new Decoder(in, refiner);
+        int sourceLength = decoder.varint();
+        return new StylesheetSnapshot(decoder.stylesheet(), sourceLength, true);
+    }
+
+    /** writes the tree */
+    private static final class Encoder {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private StyleWriter writer;
+        private int line = -1;
+
+        Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void stylesheet(Stylesheet stylesheet) throws IOException {
+            comments(stylesheet);
+            statements(stylesheet.statements());
+        }
+
+        void statements(Iterable<Statement> statements) throws IOException {
+            List<Statement> list = new ArrayList<>();
+            for (Statement statement : statements) {
+                list.add(statement);
+            }
+            varint(list.size());
+            for (Statement statement : list) {
+                statement(statement);
+            }
+        }
+
+        void statement(Statement statement) throws IOException {
+            if (statement instanceof Rule) {
+                out.writeByte(RULE);
+                rule((Rule)statement);
+            } else if (statement instanceof AtRule && isEncodable((AtRule)statement)) {
+                out.writeByte(AT_RULE);
+                atRule((AtRule)statement);
+            } else {
+                out.writeByte(TEXT);
+                string(text(statement));
+            }
+            comments(statement);
+        }
+
+        void rule(Rule rule) throws IOException {
+            position(rule);
+            varint(rule.selectors().size());
+            for (Selector selector : rule.selectors()) {
+                selector(selector);
+            }
+            varint(rule.declarations().size());
+            for (Declaration declaration : rule.declarations()) {
+                declaration(declaration);
+            }
+        }
+
+        void selector(Selector selector) throws IOException {
+            if (!selector.isRefined()) {
+                out.writeByte(UNREFINED);
+                raw(selector.raw().get());
+            } else if (isEncodable(selector)) {
+                out.writeByte(REFINED);
+                position(selector);
+                varint(selector.parts().size());
+                for (SelectorPart part : selector.parts()) {
+                    selectorPart(part);
+                }
+            } else {
+                out.writeByte(UNREFINED);
+                raw(new RawSyntax(selector.line(), selector.column(), text(selector)));
+            }
+            comments(selector);
+        }
+
+        void selectorPart(SelectorPart part) throws IOException {
+            Class<?> klass = part.getClass();
+            if (klass == ClassSelector.class) {
+                out.writeByte(CLASS_SELECTOR);
+                position(part);
+                string(((ClassSelector)part).name());
+            } else if (klass == IdSelector.class) {
+                out.writeByte(ID_SELECTOR);
+                position(part);
+                string(((IdSelector)part).name());
+            } else if (klass == TypeSelector.class) {
+                out.writeByte(TYPE_SELECTOR);
+                position(part);
+                string(((TypeSelector)part).name());
+            } else if (klass == UniversalSelector.class) {
+                out.writeByte(UNIVERSAL_SELECTOR);
+                position(part);
+            } else if (klass == Combinator.class) {
+                out.writeByte(COMBINATOR);
+                position(part);
+                string(((Combinator)part).type().name());
+            } else if (klass == AttributeSelector.class) {
+                AttributeSelector selector = (AttributeSelector)part;
+                out.writeByte(ATTRIBUTE_SELECTOR);
+                position(part);
+                string(selector.attribute());
+                optionalString(selector.matchType().isPresent() ? selector.matchType().get().name() : null);
+                optionalString(selector.value().orNull());
+            } else if (klass == PseudoClassSelector.class) {
+                out.writeByte(PSEUDO_CLASS_SELECTOR);
+                position(part);
+                string(((PseudoClassSelector)part).name());
+                optionalString(((PseudoClassSelector)part).args().orNull());
+            } else if (klass == PseudoElementSelector.class) {
+                out.writeByte(PSEUDO_ELEMENT_SELECTOR);
+                position(part);
+                string(((PseudoElementSelector)part).name());
+            } else if (klass == KeyframeSelector.class) {
+                out.writeByte(KEYFRAME_SELECTOR);
+                position(part);
+                string(((KeyframeSelector)part).keyframe());
+            } else {
+                throw new AssertionError("unexpected selector part " + klass); // guarded by isEncodable
+            }
+            comments(part);
+        }
+
+        void declaration(Declaration declaration) throws IOException {
+            if (!declaration.isRefined() && declaration.containsRawSyntax()) {
+                out.writeByte(UNREFINED);
+                raw(declaration.rawPropertyName().get());
+                raw(declaration.rawPropertyValue().get());
+            } else if (isEncodable(declaration.propertyValue().members())) {
+                PropertyName name = declaration.propertyName();
+                PropertyValue value = declaration.propertyValue();
+                out.writeByte(REFINED);
+                position(name);
+                string(name.hasStarHack() ? "*" + name.name() : name.name());
+                comments(name);
+                position(value);
+                out.writeBoolean(value.isImportant());
+                members(value.members());
+                comments(value);
+            } else {
+                out.writeByte(UNREFINED);
+                raw(new RawSyntax(declaration.line(), declaration.column(), text(declaration.propertyName())));
+                raw(new RawSyntax(declaration.line(), declaration.column(), text(declaration.propertyValue())));
+            }
+            comments(declaration);
+        }
+
+        void members(Iterable<PropertyValueMember> members) throws IOException {
+            List<PropertyValueMember> list = new ArrayList<>();
+            for (PropertyValueMember member : members) {
+                list.add(member);
+            }
+            varint(list.size());
+            for (PropertyValueMember member : list) {
+                member(member);
+            }
+        }
+
+        void member(PropertyValueMember member) throws IOException {
+            Class<?> klass = member.getClass();
+            if (klass == KeywordValue.class) {
+                out.writeByte(KEYWORD);
+                position(member);
+                string(((KeywordValue)member).keyword());
+            } else if (klass == NumericalValue.class) {
+                NumericalValue number = (NumericalValue)member;
+                out.writeByte(NUMERICAL);
+                position(member);
+                string(number.value());
+                optionalString(number.unit().orNull());
+                optionalString(number.explicitSign().isPresent() ? number.explicitSign().get().name() : null);
+            } else if (klass == HexColorValue.class) {
+                out.writeByte(HEX_COLOR);
+                position(member);
+                string(((HexColorValue)member).color());
+            } else if (klass == StringValue.class) {
+                out.writeByte(STRING);
+                position(member);
+                string(((StringValue)member).mode().name());
+                string(((StringValue)member).content());
+            } else if (klass == UrlFunctionValue.class) {
+                UrlFunctionValue url = (UrlFunctionValue)member;
+                out.writeByte(URL);
+                position(member);
+                string(url.url());
+                optionalString(url.quotationMode().isPresent() ? url.quotationMode().get().name() : null);
+            } else if (klass == GenericFunctionValue.class) {
+                out.writeByte(FUNCTION);
+                position(member);
+                string(((GenericFunctionValue)member).name());
+                string(((GenericFunctionValue)member).args());
+            } else if (klass == LinearGradientFunctionValue.class) {
+                LinearGradientFunctionValue gradient = (LinearGradientFunctionValue)member;
+                out.writeByte(LINEAR_GRADIENT);
+                position(member);
+                string(gradient.args());
+                out.writeBoolean(gradient.repeating());
+                optionalString(gradient.prefix().isPresent() ? gradient.prefix().get().name() : null);
+            } else if (klass == UnicodeRangeValue.class) {
+                out.writeByte(UNICODE_RANGE);
+                position(member);
+                string(((UnicodeRangeValue)member).value());
+            } else if (klass == UnquotedIEFilter.class) {
+                out.writeByte(IE_FILTER);
+                position(member);
+                string(((UnquotedIEFilter)member).content());
+            } else if (klass == Operator.class) {
+                out.writeByte(OPERATOR);
+                position(member);
+                string(((Operator)member).type().name());
+            } else {
+                throw new AssertionError("unexpected property value member " + klass); // guarded by isEncodable
+            }
+            comments(member);
+        }
+
+        void atRule(AtRule atRule) throws IOException {
+            position(atRule);
+            string(atRule.name());
+            out.writeBoolean(atRule.shouldWriteName());
+
+            if (!atRule.isRefined()) {
+                out.writeByte(UNREFINED);
+                optionalRaw(atRule.rawExpression());
+                optionalRaw(atRule.rawBlock());
+                return;
+            }
+
+            out.writeByte(REFINED);
+
+            Optional<AtRuleExpression> expression = atRule.expression();
+            if (!expression.isPresent()) {
+                out.writeByte(ABSENT);
+            } else if (expression.get() instanceof MetadataExpression) {
+                out.writeByte(METADATA_EXPRESSION);
+            } else if (expression.get() instanceof MediaQueryList) {
+                out.writeByte(MEDIA_QUERY_LIST);
+                mediaQueryList((MediaQueryList)expression.get());
+            } else {
+                out.writeByte(GENERIC_EXPRESSION);
+                position(expression.get());
+                string(((GenericAtRuleExpression)expression.get()).expression());
+                comments(expression.get());
+            }
+
+            Optional<AtRuleBlock> block = atRule.block();
+            if (!block.isPresent()) {
+                out.writeByte(ABSENT);
+            } else {
+                out.writeByte(GENERIC_BLOCK);
+                statements(((GenericAtRuleBlock)block.get()).statements());
+                comments(block.get());
+            }
+        }
+
+        void mediaQueryList(MediaQueryList list) throws IOException {
+            position(list);
+            varint(list.queries().size());
+            for (MediaQuery query : list.queries()) {
+                position(query);
+                optionalString(query.type().orNull());
+                optionalString(query.restriction().isPresent() ? query.restriction().get().name() : null);
+                varint(query.expressions().size());
+                for (MediaQueryExpression expression : query.expressions()) {
+                    position(expression);
+                    string(expression.feature());
+                    members(expression.terms());
+                    comments(expression);
+                }
+                comments(query);
+            }
+            comments(list);
+        }
+
+        void raw(RawSyntax raw) throws IOException {
+            position(raw);
+            string(raw.content());
+        }
+
+        void optionalRaw(Optional<RawSyntax> raw) throws IOException {
+            out.writeBoolean(raw.isPresent());
+            if (raw.isPresent()) raw(raw.get());
+        }
+
+        void position(Syntax syntax) throws IOException {
+            // lines are written relative to the previous line, as most units are on the same line or close to it
+            int delta = syntax.line() - line;
+            varint((delta << 1) ^ (delta >> 31));
+            varint(syntax.column() + 1);
+            line = syntax.line();
+        }
+
+        void comments(Syntax syntax) throws IOException {
+            // most units have no comments of either kind, so both counts are combined into one (usually zero) varint
+            List<Comment> comments = syntax.comments();
+            List<Comment> orphaned = syntax.orphanedComments();
+            varint(comments.size() << 1 | (orphaned.isEmpty() ? 0 : 1));
+            for (Comment comment : comments) {
+                string(comment.content());
+            }
+
+            if (!orphaned.isEmpty()) {
+                varint(orphaned.size());
+                for (Comment comment : orphaned) {
+                    string(comment.content());
+                }
+            }
+        }
+
+        void string(String string) throws IOException {
+            Integer index = strings.get(string);
+            if (index != null) {
+                varint(index + 1);
+            } else {
+                strings.put(string, strings.size());
+                byte[] bytes = string.getBytes(Charsets.UTF_8);
+                varint(0);
+                varint(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        void optionalString(String string) throws IOException {
+            out.writeBoolean(string != null);
+            if (string != null) string(string);
+        }
+
+        void varint(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.writeByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        String text(Syntax syntax) {
+            if (writer == null) writer = StyleWriter.compressed();
+            return writer.writeSingle(syntax);
+        }
+
+        static boolean isEncodable(Selector selector) {
+            for (SelectorPart part : selector.parts()) {
+                Class<?> klass = part.getClass();
+                if (klass != ClassSelector.class && klass != IdSelector.class && klass != TypeSelector.class
+                    && klass != UniversalSelector.class && klass != Combinator.class && klass != AttributeSelector.class
+                    && klass != PseudoClassSelector.class && klass != PseudoElementSelector.class
+                    && klass != KeyframeSelector.class) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        static boolean isEncodable(Iterable<PropertyValueMember> members) {
+            for (PropertyValueMember member : members) {
+                Class<?> klass = member.getClass();
+                if (klass != KeywordValue.class && klass != NumericalValue.class && klass != HexColorValue.class
+                    && klass != StringValue.class && klass != UrlFunctionValue.class && klass != GenericFunctionValue.class
+                    && klass != LinearGradientFunctionValue.class && klass != UnicodeRangeValue.class
+                    && klass != UnquotedIEFilter.class && klass != Operator.class) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        static boolean isEncodable(AtRule atRule) {
+            if (!atRule.isRefined()) return true;
+
+            Optional<AtRuleExpression> expression = atRule.expression();
+            if (expression.isPresent()) {
+                AtRuleExpression e = expression.get();
+                if (e instanceof MediaQueryList) {
+                    for (MediaQuery query : ((MediaQueryList)e).queries()) {
+                        for (MediaQueryExpression mqe : query.expressions()) {
+                            if (!isEncodable(mqe.terms())) return false;
+                        }
+                    }
+                } else if (e.getClass() != GenericAtRuleExpression.class && !(e instanceof MetadataExpression)) {
+                    return false;
+                }
+            }
+
+            Optional<AtRuleBlock> block = atRule.block();
+            return !block.isPresent() || block.get() instanceof GenericAtRuleBlock;
+        }
+    }
+
+    /** reads the tree */
+    private static final class Decoder {
+        private final DataInputStream in;
+        private final MasterRefiner refiner;
+        private final List<String> strings = new ArrayList<>();
+        private int line = -1;
+
+        Decoder(DataInputStream in, MasterRefiner refiner) {
+            this.in = in;
+            this.refiner = refiner;
+        }
+
+        Stylesheet stylesheet() throws IOException {
+            Stylesheet stylesheet = new Stylesheet();
+            comments(stylesheet);
+            stylesheet.statements().appendAll(statements());
+            return stylesheet;
+        }
+
+        List<Statement> statements() throws IOException {
+            int size = varint();
+            List<Statement> statements = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                statements.add(statement());
+            }
+            return statements;
+        }
+
+        Statement statement() throws IOException {
+            Statement statement;
+            int type = in.readUnsignedByte();
+            switch (type) {
+            case RULE:
+                statement = rule();
+                break;
+            case AT_RULE:
+                statement = atRule();
+                break;
+            case TEXT:
+                statement = parse(string());
+                break;
+            default:
+                throw new IOException("unknown statement type " + type);
+            }
+            return comments(statement);
+        }
+
+        Rule rule() throws IOException {
+            Rule rule = new Rule(line(), column(), null);
+            int selectors = varint();
+            for (int i = 0; i < selectors; i++) {
+                rule.selectors().append(selector());
+            }
+            int declarations = varint();
+            for (int i = 0; i < declarations; i++) {
+                rule.declarations().append(declaration());
+            }
+            return rule;
+        }
+
+        Selector selector() throws IOException {
+            Selector selector;
+            if (in.readUnsignedByte() == UNREFINED) {
+                selector = new Selector(raw(), refiner);
+            } else {
+                int line = line();
+                int column = column();
+                int size = varint();
+                List<SelectorPart> parts = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    parts.add(selectorPart());
+                }
+                selector = new Selector(line, column, parts);
+            }
+            return comments(selector);
+        }
+
+        SelectorPart selectorPart() throws IOException {
+            SelectorPart part;
+            int type = in.readUnsignedByte();
+            int line = line();
+            int column = column();
+
+            switch (type) {
+            case CLASS_SELECTOR:
+                part = new ClassSelector(line, column, string());
+                break;
+            case ID_SELECTOR:
+                part = new IdSelector(line, column, string());
+                break;
+            case TYPE_SELECTOR:
+                part = new TypeSelector(line, column, string());
+                break;
+            case UNIVERSAL_SELECTOR:
+                part = new UniversalSelector(line, column);
+                break;
+            case COMBINATOR:
+                part = new Combinator(line, column, combinatorType(SelectorPartType.valueOf(string())));
+                break;
+            case ATTRIBUTE_SELECTOR:
+                AttributeSelector attribute = new AttributeSelector(line, column, string());
+                String matchType = optionalString();
+                String value = optionalString();
+                if (matchType != null) attribute.match(AttributeMatchType.valueOf(matchType), value);
+                part = attribute;
+                break;
+            case PSEUDO_CLASS_SELECTOR:
+                part = new PseudoClassSelector(line, column, string(), optionalString());
+                break;
+            case PSEUDO_ELEMENT_SELECTOR:
+                part = new PseudoElementSelector(line, column, string());
+                break;
+            case KEYFRAME_SELECTOR:
+                part = new KeyframeSelector(line, column, string());
+                break;
+            default:
+                throw new IOException("unknown selector part type " + type);
+            }
+            return comments(part);
+        }
+
+        CombinatorType combinatorType(SelectorPartType type) throws IOException {
+            switch (type) {
+            case DESCENDANT_COMBINATOR:
+                return CombinatorType.DESCENDANT;
+            case CHILD_COMBINATOR:
+                return CombinatorType.CHILD;
+            case ADJACENT_SIBLING_COMBINATOR:
+                return CombinatorType.ADJACENT_SIBLING;
+            case GENERAL_SIBLING_COMBINATOR:
+                return CombinatorType.GENERAL_SIBLING;
+            default:
+                throw new IOException("unknown combinator type " + type);
+            }
+        }
+
+        Declaration declaration() throws IOException {
+            Declaration declaration;
+            if (in.readUnsignedByte() == UNREFINED) {
+                declaration = new Declaration(raw(), raw(), refiner);
+            } else {
+                PropertyName name = comments(PropertyName.of(line(), column(), string()));
+                PropertyValue value = new PropertyValue(line(), column(), null);
+                value.important(in.readBoolean());
+                for (PropertyValueMember member : members()) {
+                    value.append(member);
+                }
+                declaration = new Declaration(name, comments(value));
+            }
+            return comments(declaration);
+        }
+
+        List<PropertyValueMember> members() throws IOException {
+            int size = varint();
+            List<PropertyValueMember> members = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                members.add(member());
+            }
+            return members;
+        }
+
+        PropertyValueMember member() throws IOException {
+            PropertyValueMember member;
+            int type = in.readUnsignedByte();
+            int line = line();
+            int column = column();
+
+            switch (type) {
+            case KEYWORD:
+                member = new KeywordValue(line, column, string());
+                break;
+            case NUMERICAL:
+                NumericalValue number = new NumericalValue(line, column, string());
+                String unit = optionalString();
+                String sign = optionalString();
+                if (unit != null) number.unit(unit);
+                if (sign != null) number.explicitSign(NumericalValue.Sign.valueOf(sign));
+                member = number;
+                break;
+            case HEX_COLOR:
+                member = new HexColorValue(line, column, string());
+                break;
+            case STRING:
+                QuotationMode mode = QuotationMode.valueOf(string());
+                member = new StringValue(line, column, mode, string());
+                break;
+            case URL:
+                UrlFunctionValue url = new UrlFunctionValue(line, column, string());
+                String quotationMode = optionalString();
+                if (quotationMode != null) url.quotationMode(QuotationMode.valueOf(quotationMode));
+                member = url;
+                break;
+            case FUNCTION:
+                member = new GenericFunctionValue(line, column, string(), string());
+                break;
+            case LINEAR_GRADIENT:
+                LinearGradientFunctionValue gradient = new LinearGradientFunctionValue(line, column, string());
+                gradient.repeating(in.readBoolean());
+                String prefix = optionalString();
+                if (prefix != null) gradient.prefix(Prefix.valueOf(prefix));
+                member = gradient;
+                break;
+            case UNICODE_RANGE:
+                member = new UnicodeRangeValue(line, column, string());
+                break;
+            case IE_FILTER:
+                member = new UnquotedIEFilter(line, column, string());
+                break;
+            case OPERATOR:
+                member = new Operator(line, column, OperatorType.valueOf(string()));
+                break;
+            default:
+                throw new IOException("unknown property value member type " + type);
+            }
+            return comments(member);
+        }
+
+        AtRule atRule() throws IOException {
+            int line = line();
+            int column = column();
+            String name = string();
+            boolean shouldWriteName = in.readBoolean();
+
+            AtRule atRule;
+            if (in.readUnsignedByte() == UNREFINED) {
+                atRule = new AtRule(line, column, name, optionalRaw(), optionalRaw(), refiner);
+            } else {
+                atRule = new AtRule(line, column, name, null, null, refiner);
+
+                int expressionType = in.readUnsignedByte();
+                switch (expressionType) {
+                case ABSENT:
+                    break;
+                case METADATA_EXPRESSION:
+                    atRule.expression(MetadataExpression.instance());
+                    break;
+                case MEDIA_QUERY_LIST:
+                    atRule.expression(mediaQueryList());
+                    break;
+                case GENERIC_EXPRESSION:
+                    atRule.expression(comments(new GenericAtRuleExpression(line(), column(), string())));
+                    break;
+                default:
+                    throw new IOException("unknown at-rule expression type " + expressionType);
+                }
+
+                int blockType = in.readUnsignedByte();
+                switch (blockType) {
+                case ABSENT:
+                    break;
+                case GENERIC_BLOCK:
+                    atRule.block(comments(new GenericAtRuleBlock(statements(), null)));
+                    break;
+                default:
+                    throw new IOException("unknown at-rule block type " + blockType);
+                }
+            }
+            atRule.shouldWriteName(shouldWriteName);
+            return atRule;
+        }
+
+        MediaQueryList mediaQueryList() throws IOException {
+            MediaQueryList list = new MediaQueryList(line(), column(), null);
+            int queries = varint();
+            for (int i = 0; i < queries; i++) {
+                MediaQuery query = new MediaQuery(line(), column(), null);
+                String type = optionalString();
+                String restriction = optionalString();
+                if (type != null) query.type(type);
+                if (restriction != null) query.restriction(MediaRestriction.valueOf(restriction));
+
+                int expressions = varint();
+                for (int j = 0; j < expressions; j++) {
+                    MediaQueryExpression expression = new MediaQueryExpression(line(), column(), string());
+                    expression.terms(members());
+                    query.expressions().append(comments(expression));
+                }
+                list.queries().append(comments(query));
+            }
+            return comments(list);
+        }
+
+        Statement parse(String text) throws IOException {
+            QueryableBroadcaster queryable = new QueryableBroadcaster();
+            ParserFactory.statementParser().parse(new Source(text), queryable, refiner);
+            Optional<Statement> statement = queryable.find(Statement.class);
+            if (!statement.isPresent()) throw new IOException("unable to parse statement: " + text);
+            return statement.get();
+        }
+
+        RawSyntax raw() throws IOException {
+            return new RawSyntax(line(), column(), string());
+        }
+
+        RawSyntax optionalRaw() throws IOException {
+            return in.readBoolean() ? raw() : null;
+        }
+
+        <T extends Syntax> T comments(T syntax) throws IOException {
+            int packed = varint();
+            int comments = packed >>> 1;
+            if (comments > 0) {
+                List<String> list = new ArrayList<>(comments);
+                for (int i = 0; i < comments; i++) {
+                    list.add(string());
+                }
+                syntax.comments(list);
+            }
+
+            if ((packed & 1) != 0) {
+                int orphaned = varint();
+                List<String> list = new ArrayList<>(orphaned);
+                for (int i = 0; i < orphaned; i++) {
+                    list.add(string());
+                }
+                syntax.orphanedComments(list);
+            }
+            return syntax;
+        }
+
+        String string() throws IOException {
+            int index = varint();
+            if (index > 0) {
+                if (index > strings.size()) throw new IOException("invalid string reference " + index);
+                return strings.get(index - 1);
+            }
+
+            byte[] bytes = new byte[varint()];
+            in.readFully(bytes);
+            String string = new String(bytes, Charsets.UTF_8);
+            strings.add(string);
+            return string;
+        }
+
+        String optionalString() throws IOException {
+            return in.readBoolean() ? string() : null;
+        }
+
+        int line() throws IOException {
+            int zigzag = varint();
+            line += (zigzag >>> 1) ^ -(zigzag & 1);
+            return line;
+        }
+
+        int column() throws IOException {
+            return varint() - 1;
+        }
+
+        int varint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+}
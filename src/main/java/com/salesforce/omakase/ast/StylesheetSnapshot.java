@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.ast;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.atrule.AtRuleBlock;
+import com.salesforce.omakase.ast.atrule.AtRuleExpression;
+import com.salesforce.omakase.ast.atrule.FontDescriptor;
+import com.salesforce.omakase.ast.atrule.FontFaceBlock;
+import com.salesforce.omakase.ast.atrule.GenericAtRuleBlock;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.broadcast.Broadcaster;
+import com.salesforce.omakase.broadcast.QueryableBroadcaster;
+import com.salesforce.omakase.broadcast.QueuingBroadcaster;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
+import com.salesforce.omakase.util.As;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable snapshot of a {@link Stylesheet}, intended for parsing a stylesheet once and then processing it many times (e.g.,
+ * applying different rework for each of many variations of a base stylesheet).
+ * <p>
+ * The snapshot can be shared and used by multiple threads at once. Each use gets its own {@link Stylesheet} through {@link
+ * #thaw(Broadcaster, MasterRefiner)}, usually by way of {@link Omakase#source(StylesheetSnapshot)}. The units in the snapshot
+ * are never handed out or modified, and they are only ever read while thawing, so no synchronization is needed. No structure
+ * is shared between thawed stylesheets: each thaw copies every unit in the snapshot. The copies are cheapest for units that
+ * were not refined before the snapshot was taken, as only small shells are created for those, sharing the raw content (see
+ * {@link Declaration#copyUnrefined(MasterRefiner)}, {@link Selector#copyUnrefined(MasterRefiner)} and {@link
+ * AtRule#copyUnrefined(MasterRefiner)}). Each thawed unit is only refined when the plugins for that particular use ask for it.
+ * Refined units are deep copied, except that the statements within refined at-rule blocks (e.g., <code>@media</code>) are
+ * copied the same way as top-level statements.
+ * <p>
+ * Example:
+ * <pre>
+ * <code>SyntaxTree tree = new SyntaxTree();
+ * Omakase.source(input).use(tree).process();
+ * StylesheetSnapshot snapshot = new StylesheetSnapshot(tree.stylesheet());
+ * ...
+ * StyleWriter writer = StyleWriter.compressed();
+ * Omakase.source(snapshot).use(new Conditionals("ie7")).use(writer).process();
+ * </code></pre>
+ * <p>
+ * For the cheapest thawing, take the snapshot from a stylesheet processed without any refining plugins.
+ *
+ * @author nmcwilliams
+ */
+public final class StylesheetSnapshot {
+    private final Stylesheet frozen;
+    private final int sourceLength;
+
+    /**
+     * Creates a new snapshot of the given {@link Stylesheet}. The given stylesheet itself is not modified and it is not referenced
+     * by the snapshot, so it's free to be modified afterwards.
+     *
+     * @param stylesheet
+     *     The stylesheet to take a snapshot of.
+     */
+    public StylesheetSnapshot(Stylesheet stylesheet) {
+        this(stylesheet, 0);
+    }
+
+    /**
+     * Creates a new snapshot of the given {@link Stylesheet}, recording the length of the source it was parsed from. The length
+     * is reported by {@link com.salesforce.omakase.plugin.basic.ParseStats} for each use of the snapshot.
+     *
+     * @param stylesheet
+     *     The stylesheet to take a snapshot of.
+     * @param sourceLength
+     *     The number of characters in the source that the stylesheet was parsed from.
+     */
+    public StylesheetSnapshot(Stylesheet stylesheet, int sourceLength) {
+        this(stylesheet, sourceLength, false);
+    }
+
+    /**
+     * Creates a new snapshot.
+     *
+     * @param stylesheet
+     *     The stylesheet to take a snapshot of.
+     * @param sourceLength
+     *     The number of characters in the source.
+     * @param alreadyFrozen
+     *     If true, the given stylesheet is used as is, otherwise it is copied. Only pass true when nothing else references the
+     *     stylesheet.
+     */
+    StylesheetSnapshot(Stylesheet stylesheet, int sourceLength, boolean alreadyFrozen) {
+        checkNotNull(stylesheet, "stylesheet cannot be null");
+        checkArgument(sourceLength >= 0, "sourceLength cannot be negative");
+        this.sourceLength = sourceLength;
+
+        if (alreadyFrozen) {
+            frozen = stylesheet;
+        } else {
+            frozen = new Stylesheet();
+            frozen.orphanedComments(stylesheet);
+
+            MasterRefiner unused = unusedRefiner();
+            for (Statement statement : stylesheet.statements()) {
+                frozen.append(copy(statement, null, unused));
+            }
+        }
+    }
+
+    /**
+     * Gets the number of top-level statements in the snapshot.
+     *
+     * @return The number of statements.
+     */
+    public int size() {
+        return frozen.statements().size();
+    }
+
+    /**
+     * Gets the number of characters in the source that the snapshot was parsed from.
+     *
+     * @return The source length, or 0 if not specified when the snapshot was created.
+     */
+    public int sourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * Creates a new {@link Stylesheet} from this snapshot. All units in the stylesheet are broadcasted to the given {@link
+     * Broadcaster} in the same manner as the parser would, ending with the {@link Stylesheet} itself.
+     * <p>
+     * This is usually called by {@link Omakase#source(StylesheetSnapshot)}, however this method can be used directly as well.
+     *
+     * @param broadcaster
+     *     Used to broadcast the units in the new stylesheet.
+     * @param refiner
+     *     The {@link MasterRefiner} to use for refining units in the new stylesheet.
+     *
+     * @return The new {@link Stylesheet}.
+     */
+    public Stylesheet thaw(Broadcaster broadcaster, MasterRefiner refiner) {
+        checkNotNull(broadcaster, "broadcaster cannot be null");
+        checkNotNull(refiner, "refiner cannot be null");
+
+        // same as the parser, queue everything until all statements are in the stylesheet so that order-dependent plugins work
+        QueuingBroadcaster queue = new QueuingBroadcaster(broadcaster).pause();
+        List<Statement> copies = new ArrayList<>(frozen.statements().size());
+
+        for (Statement statement : frozen.statements()) {
+            Statement copy = copy(statement, queue, refiner);
+            copy.propagateBroadcast(queue);
+            copies.add(copy);
+        }
+
+        Stylesheet stylesheet = new Stylesheet(broadcaster);
+        stylesheet.statements().appendAll(copies);
+        stylesheet.orphanedComments(frozen);
+
+        queue.resume();
+        broadcaster.broadcast(stylesheet);
+        return stylesheet;
+    }
+
+    /**
+     * Writes this snapshot to the given stream in a compact binary format. Use {@link #readFrom(InputStream)} to read it back.
+     * <p>
+     * This allows a snapshot to be created during a build step (e.g., after running validation and refinement) and then loaded at
+     * runtime, skipping the parsing and refinement of the source entirely. Refined selectors, declarations and media queries are
+     * written in their refined form. Other refined units (e.g., custom syntax) are written as CSS and are refined again on
+     * demand after reading.
+     * <p>
+     * The format is only intended to be read by the same version of this library.
+     *
+     * @param output
+     *     Write to this stream. The stream is flushed but not closed. The stream doesn't need to be buffered.
+     *
+     * @throws IOException
+     *     If an I/O error occurs.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        checkNotNull(output, "output cannot be null");
+        SnapshotCodec.write(frozen, sourceLength, new BufferedOutputStream(output));
+    }
+
+    /**
+     * Reads a snapshot that was written with {@link #writeTo(OutputStream)}.
+     * <p>
+     * The stream is read unit by unit, so for best performance pass a buffered or in-memory stream (e.g., a {@link
+     * ByteArrayInputStream} over the contents of a file read in one go).
+     *
+     * @param input
+     *     Read from this stream. The stream is not closed.
+     *
+     * @return The snapshot.
+     *
+     * @throws IOException
+     *     If an I/O error occurs or the content is not a snapshot written by this version of the library.
+     */
+    public static StylesheetSnapshot readFrom(InputStream input) throws IOException {
+        checkNotNull(input, "input cannot be null");
+        return SnapshotCodec.read(input, unusedRefiner());
+    }
+
+    @Override
+    public String toString() {
+        return As.string(this).add("statements", size()).toString();
+    }
+
+    /** the frozen units are never refined, this refiner only exists to satisfy the unit constructors */
+    private static MasterRefiner unusedRefiner() {
+        return new MasterRefiner(new QueryableBroadcaster());
+    }
+
+    /** copies the statement without modifying it, sharing the raw content of unrefined units */
+    private static Statement copy(Statement statement, Broadcaster broadcaster, MasterRefiner refiner) {
+        if (statement instanceof Rule) {
+            return copy((Rule)statement, broadcaster, refiner);
+        }
+        if (statement instanceof AtRule) {
+            AtRule atRule = (AtRule)statement;
+            return atRule.isRefined() ? copy(atRule, broadcaster, refiner) : atRule.copyUnrefined(refiner);
+        }
+        return statement.copy();
+    }
+
+    /** copies a refined at-rule, copying the statements within the block the same way as top-level statements */
+    private static AtRule copy(AtRule atRule, Broadcaster broadcaster, MasterRefiner refiner) {
+        AtRuleExpression expression = atRule.expression().isPresent() ? atRule.expression().get().copy() : null;
+        AtRuleBlock block = atRule.block().orNull();
+
+        if (block instanceof GenericAtRuleBlock) {
+            List<Statement> statements = new ArrayList<>(block.statements().size());
+            for (Statement statement : block.statements()) {
+                statements.add(copy(statement, broadcaster, refiner));
+            }
+            GenericAtRuleBlock blockCopy = new GenericAtRuleBlock(statements, broadcaster);
+            blockCopy.orphanedComments(block);
+            block = blockCopy;
+        } else if (block instanceof FontFaceBlock) {
+            block = copy((FontFaceBlock)block, broadcaster);
+        } else if (block != null) {
+            block = block.copy();
+        }
+
+        AtRule copy = new AtRule(atRule.name(), expression, block).copiedFrom(atRule);
+        copy.shouldWriteName(atRule.shouldWriteName());
+        return copy;
+    }
+
+    /** same as the font-face refiner, each descriptor takes its name and value from a declaration that owns the value */
+    private static FontFaceBlock copy(FontFaceBlock block, Broadcaster broadcaster) {
+        FontFaceBlock copy = new FontFaceBlock(block.line(), block.column(), broadcaster);
+        copy.orphanedComments(block);
+
+        for (FontDescriptor descriptor : block.fontDescriptors()) {
+            Declaration declaration = new Declaration(descriptor.propertyName().copy(), descriptor.propertyValue().copy());
+            declaration.comments(descriptor);
+            copy.fontDescriptors().append(new FontDescriptor(declaration));
+        }
+        return copy;
+    }
+
+    private static Rule copy(Rule rule, Broadcaster broadcaster, MasterRefiner refiner) {
+        Rule copy = new Rule(rule.line(), rule.column(), broadcaster);
+        copy.comments(rule);
+        copy.orphanedComments(rule);
+
+        for (Selector selector : rule.selectors()) {
+            copy.selectors().append(selector.isRefined() ? selector.copy() : selector.copyUnrefined(refiner));
+        }
+        for (Declaration declaration : rule.declarations()) {
+            boolean shareable = !declaration.isRefined() && declaration.containsRawSyntax();
+            copy.declarations().append(shareable ? declaration.copyUnrefined(refiner) : declaration.copy());
+        }
+
+        return copy;
+    }
+}
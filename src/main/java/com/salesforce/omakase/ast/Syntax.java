@@ -63,6 +63,11 @@ public interface Syntax extends Writable, Broadcastable {
     /**
      * Gets the unique identifier for this unit. This can be used as a key in maps or in any other case where storing a short
      * identifier is preferable.
+     * <p>
+     * The identifier is assigned on the first call to this method, so units that are never asked for an identifier don't consume
+     * one, and parsing doesn't touch the shared sequence at all. The library itself doesn't use identifiers; collections and
+     * plugins rely on object identity instead. Identifiers are only unique until the sequence wraps around after 2^32 requested
+     * identifiers, and once assigned, the identifier of a unit never changes (it is never 0).
      *
      * @return The unique identifier.
      */
@@ -399,6 +399,28 @@ public final class AtRule extends AbstractGroupable<StatementIterable, Statement
         }
     }
 
+    /**
+     * Creates a copy of this unrefined at-rule that shares the same raw content and uses the given {@link MasterRefiner} for
+     * refinement.
+     * <p>
+     * Unlike {@link #copy()}, this keeps the original line and column numbers, doesn't copy the raw content and doesn't modify
+     * this at-rule, which makes it safe to call concurrently on a shared at-rule that isn't modified otherwise.
+     *
+     * @param refiner
+     *     The {@link MasterRefiner} to be used later during refinement of the copy.
+     *
+     * @return The copy.
+     *
+     * @throws IllegalStateException
+     *     If this at-rule is already refined.
+     */
+    public AtRule copyUnrefined(MasterRefiner refiner) {
+        checkState(!isRefined(), "only unrefined at-rules can be copied unrefined");
+        AtRule copy = new AtRule(line(), column(), name, rawExpression, rawBlock, refiner).copiedFrom(this);
+        copy.shouldWriteName(shouldWriteName);
+        return copy;
+    }
+
     @Override
     public AtRule copy() {
         AtRule copy;
@@ -29,8 +29,8 @@ package com.salesforce.omakase.ast.atrule;
 import com.salesforce.omakase.ast.Statement;
 import com.salesforce.omakase.ast.StatementIterable;
 import com.salesforce.omakase.ast.Syntax;
-import com.salesforce.omakase.ast.collection.LinkedSyntaxCollection;
 import com.salesforce.omakase.ast.collection.SyntaxCollection;
+import com.salesforce.omakase.ast.collection.SyntaxCollections;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.parser.refiner.FontFaceRefiner;
 import com.salesforce.omakase.writer.StyleAppendable;
@@ -68,7 +68,7 @@ public final class FontFaceBlock extends AbstractAtRuleMember implements AtRuleB
      */
     public FontFaceBlock(int line, int column, Broadcaster broadcaster) {
         super(line, column);
-        this.fontDescriptors = new LinkedSyntaxCollection<>(this, broadcaster);
+        this.fontDescriptors = SyntaxCollections.newCollection(this, broadcaster);
     }
 
     /**
@@ -28,8 +28,8 @@ package com.salesforce.omakase.ast.atrule;
 
 import com.google.common.base.Optional;
 import com.salesforce.omakase.ast.collection.AbstractGroupable;
-import com.salesforce.omakase.ast.collection.LinkedSyntaxCollection;
 import com.salesforce.omakase.ast.collection.SyntaxCollection;
+import com.salesforce.omakase.ast.collection.SyntaxCollections;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.parser.atrule.MediaQueryParser;
 import com.salesforce.omakase.writer.StyleAppendable;
@@ -80,7 +80,7 @@ public final class MediaQuery extends AbstractGroupable<MediaQueryList, MediaQue
      */
     public MediaQuery(int line, int column, Broadcaster broadcaster) {
         super(line, column);
-        this.expressions = new LinkedSyntaxCollection<>(this, broadcaster);
+        this.expressions = SyntaxCollections.newCollection(this, broadcaster);
     }
 
     /**
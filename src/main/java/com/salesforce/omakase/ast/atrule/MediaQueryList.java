@@ -26,8 +26,8 @@
 
 package com.salesforce.omakase.ast.atrule;
 
-import com.salesforce.omakase.ast.collection.LinkedSyntaxCollection;
 import com.salesforce.omakase.ast.collection.SyntaxCollection;
+import com.salesforce.omakase.ast.collection.SyntaxCollections;
 import com.salesforce.omakase.broadcast.BroadcastRequirement;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.broadcast.annotation.Description;
@@ -73,7 +73,7 @@ public final class MediaQueryList extends AbstractAtRuleMember implements AtRule
      */
     public MediaQueryList(int line, int column, Broadcaster broadcaster) {
         super(line, column);
-        queries = new LinkedSyntaxCollection<>(this, broadcaster);
+        queries = SyntaxCollections.newCollection(this, broadcaster);
     }
 
     /**
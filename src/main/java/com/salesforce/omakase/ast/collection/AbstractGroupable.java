@@ -46,6 +46,11 @@ import static com.google.common.base.Preconditions.*;
 public abstract class AbstractGroupable<P, T extends Groupable<P, T>> extends AbstractSyntax implements Groupable<P, T> {
     private SyntaxCollection<P, T> group;
     private boolean destroyed;
+    private int position = -1;
+
+    /** intrusive links used by {@link LinkedSyntaxCollection} */
+    T previousInGroup;
+    T nextInGroup;
 
     /** Creates a new instance with no line or number specified (used for dynamically created {@link Syntax} units). */
     public AbstractGroupable() {}
@@ -147,6 +152,25 @@ public abstract class AbstractGroupable<P, T extends Groupable<P, T>> extends Ab
         return group;
     }
 
+    /**
+     * Gets the position of this unit within its {@link ArraySyntaxCollection}, as last set by that collection.
+     *
+     * @return The cached position, or -1 if not set.
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Sets the position of this unit within its {@link ArraySyntaxCollection}. Only the collection should call this.
+     *
+     * @param position
+     *     The position, or -1 to clear.
+     */
+    void position(int position) {
+        this.position = position;
+    }
+
     @Override
     public P parent() {
         return group == null ? null : group().parent();
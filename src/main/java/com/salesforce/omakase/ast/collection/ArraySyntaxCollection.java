@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.ast.collection;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.salesforce.omakase.ast.Status;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.ast.selector.SelectorPart;
+import com.salesforce.omakase.broadcast.Broadcaster;
+import com.salesforce.omakase.util.As;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.*;
+
+/**
+ * Compact array-backed implementation of the {@link SyntaxCollection}.
+ * <p>
+ * Units are stored in a single backing array. Each unit's position in the array is cached on the unit itself (when it is an
+ * {@link AbstractGroupable}), which makes {@link #next(Groupable)}, {@link #previous(Groupable)} and {@link
+ * #contains(Groupable)} constant time without a hash lookup. Insertions and removals in the middle of the collection are linear, which is a good trade-off for the small
+ * collections typically found in CSS (a handful of selectors, selector parts or declarations).
+ * <p>
+ * Uniqueness is maintained like a set and prevents duplicates. Appending or prepending an existing unit will simply move it's
+ * position.
+ * <p>
+ * Iterators returned by this collection tolerate modifications made while iterating (e.g., by rework plugins). An iterator walks
+ * the units as they were when it was created, skipping any that have since been removed, so after the current unit is removed,
+ * moved or replaced the iteration continues with its old next sibling. Units added after the last of those units (e.g.,
+ * appended while iterating) are returned as well. To make that possible, units are only ever appended to the backing array in
+ * place. Any other modification replaces the backing array with a modified copy, so existing iterators are not affected and
+ * iterating never writes to the collection (e.g., when multiple threads read the same collection).
+ *
+ * @param <P>
+ *     Type of the (P)arent object containing this collection (e.g., {@link SelectorPart}s have {@link Selector}s as the parent).
+ * @param <T>
+ *     The (T)ype of units to be grouped with.
+ *
+ * @author nmcwilliams
+ * @see SyntaxCollections
+ */
+public final class ArraySyntaxCollection<P, T extends Groupable<P, T>> implements SyntaxCollection<P, T> {
+    private static final Object[] EMPTY = new Object[0];
+    private static final int MIN_CAPACITY = 4;
+
+    private final P parent;
+
+    private Object[] units = EMPTY;
+    private int size;
+    private Broadcaster broadcaster;
+
+    /**
+     * Creates a new {@link ArraySyntaxCollection} with no available {@link Broadcaster}.
+     *
+     * @param parent
+     *     The parent that owns this collection. Do not pass null.
+     */
+    public ArraySyntaxCollection(P parent) {
+        this(parent, null);
+    }
+
+    /**
+     * Creates a new {@link ArraySyntaxCollection} using the given {@link Broadcaster} to broadcast new units.
+     *
+     * @param parent
+     *     The parent that owns this collection. Do not pass null.
+     * @param broadcaster
+     *     Used to broadcast new units.
+     */
+    public ArraySyntaxCollection(P parent, Broadcaster broadcaster) {
+        this.parent = parent;
+        this.broadcaster = broadcaster;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr();
+    }
+
+    @Override
+    public boolean isEmptyOrNoneWritable() {
+        for (int i = 0; i < size; i++) {
+            if (get(i).isWritable()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(T unit) {
+        return indexOf(unit) != -1;
+    }
+
+    @Override
+    public Optional<T> first() {
+        return size == 0 ? Optional.<T>absent() : Optional.of(get(0));
+    }
+
+    @Override
+    public Optional<T> last() {
+        return size == 0 ? Optional.<T>absent() : Optional.of(get(size - 1));
+    }
+
+    @Override
+    public Optional<T> next(T unit) {
+        int index = checkedIndexOf(unit);
+        return index == size - 1 ? Optional.<T>absent() : Optional.of(get(index + 1));
+    }
+
+    @Override
+    public Optional<T> previous(T unit) {
+        int index = checkedIndexOf(unit);
+        return index == 0 ? Optional.<T>absent() : Optional.of(get(index - 1));
+    }
+
+    @Override
+    public <S extends T> Optional<S> find(Class<S> klass) {
+        for (int i = 0; i < size; i++) {
+            T unit = get(i);
+            if (klass.isInstance(unit)) return Optional.of(klass.cast(unit));
+        }
+        return Optional.absent();
+    }
+
+    @Override
+    public SyntaxCollection<P, T> prepend(T unit) {
+        checkNotNull(unit, "unit cannot be null");
+        checkArgument(!unit.isDestroyed(), "cannot prepend a destroyed unit!");
+
+        unit.unlink();
+        insert(0, unit);
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> prependAll(Iterable<T> units) {
+        for (T unit : ImmutableList.copyOf(units).reverse()) prepend(unit);
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> prependBefore(T index, T unit) throws IllegalArgumentException {
+        checkNotNull(index, "exiting cannot be null");
+        checkNotNull(unit, "unit cannot be null");
+        checkArgument(!unit.isDestroyed(), "cannot prepend a destroyed unit!");
+        checkedIndexOf(index);
+        if (index == unit) return this; // nothing to move
+
+        // unlink first, as that may shift the position of the index unit
+        unit.unlink();
+        insert(checkedIndexOf(index), unit);
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> append(T unit) {
+        checkNotNull(unit, "unit cannot be null");
+        checkArgument(!unit.isDestroyed(), "cannot append a destroyed unit!");
+
+        unit.unlink();
+        insert(size, unit);
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> appendAll(Iterable<T> units) {
+        for (T unit : units) append(unit);
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> appendAfter(T index, T unit) throws IllegalArgumentException {
+        checkNotNull(index, "exiting cannot be null");
+        checkNotNull(unit, "unit cannot be null");
+        checkArgument(!unit.isDestroyed(), "cannot append a destroyed unit!");
+        checkedIndexOf(index);
+        if (index == unit) return this; // nothing to move
+
+        // unlink first, as that may shift the position of the index unit
+        unit.unlink();
+        insert(checkedIndexOf(index) + 1, unit);
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> remove(T unit) {
+        int index = indexOf(unit);
+
+        if (index != -1) {
+            // never modify the current array in place, as iterators may be reading it
+            Object[] copy = new Object[units.length];
+            System.arraycopy(units, 0, copy, 0, index);
+            System.arraycopy(units, index + 1, copy, index, size - index - 1);
+            units = copy;
+            size--;
+            reindex(index);
+
+            // ensure the unit is not associated with this group any longer
+            position(unit, -1);
+            unit.group(null);
+        }
+
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> clear() {
+        for (int i = 0; i < size; i++) {
+            T unit = get(i);
+            position(unit, -1);
+            unit.group(null);
+        }
+        units = EMPTY;
+        size = 0;
+        return this;
+    }
+
+    @Override
+    public SyntaxCollection<P, T> replaceExistingWith(T unit) {
+        return clear().append(unit);
+    }
+
+    @Override
+    public SyntaxCollection<P, T> replaceExistingWith(Iterable<T> units) {
+        return clear().appendAll(units);
+    }
+
+    @Override
+    public void destroyAll() {
+        for (T unit : this) {
+            unit.destroy();
+        }
+    }
+
+    @Override
+    public P parent() {
+        return parent;
+    }
+
+    @Override
+    public void propagateBroadcast(Broadcaster broadcaster) {
+        this.broadcaster = broadcaster;  // save a reference so that subsequent appended/prepended units will be broadcasted
+        for (T unit : this) unit.propagateBroadcast(broadcaster);
+    }
+
+    @Override
+    public String toString() {
+        return As.string(this).add("units", Lists.newArrayList(iterator())).toString();
+    }
+
+    private T get(int index) {
+        return get(units, index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(Object[] array, int index) {
+        return (T)array[index];
+    }
+
+    private void insert(int index, T unit) {
+        if (index == size) {
+            // appending in place doesn't affect iterators, as they never read past the size at the time they read the array
+            if (size == units.length) units = Arrays.copyOf(units, Math.max(MIN_CAPACITY, size * 2));
+        } else {
+            // never modify the current array in place otherwise, as iterators may be reading it
+            Object[] copy = new Object[size == units.length ? size * 2 : units.length];
+            System.arraycopy(units, 0, copy, 0, index);
+            System.arraycopy(units, index, copy, index + 1, size - index);
+            units = copy;
+        }
+
+        units[index] = unit;
+        size++;
+        reindex(index);
+
+        // perform associative actions on the unit
+        unit.group(this);
+
+        // broadcast the unit if it hasn't been broadcasted yet.
+        if (broadcaster != null && unit.status() == Status.UNBROADCASTED) unit.propagateBroadcast(broadcaster);
+    }
+
+    /** updates the cached positions of all units starting from the given index */
+    private void reindex(int from) {
+        for (int i = from; i < size; i++) {
+            position(units[i], i);
+        }
+    }
+
+    private int indexOf(T unit) {
+        // fast path, using the position cached on the unit
+        if (unit instanceof AbstractGroupable) {
+            int cached = ((AbstractGroupable<?, ?>)unit).position();
+            if (cached >= 0 && cached < size && units[cached] == unit) return cached;
+            if (unit.group() != this) return -1;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (units[i] == unit) return i;
+        }
+        return -1;
+    }
+
+    private int checkedIndexOf(T unit) {
+        int index = indexOf(unit);
+        if (index == -1) throw new IllegalArgumentException("the specified unit does not exist in this collection!");
+        return index;
+    }
+
+    private static void position(Object unit, int position) {
+        if (unit instanceof AbstractGroupable) ((AbstractGroupable<?, ?>)unit).position(position);
+    }
+
+    /** iterator over a snapshot of the units that skips any removed since, see the class docs */
+    private final class Itr implements Iterator<T> {
+        private Object[] snapshot = units;
+        private int start;
+        private int cursor;
+        private int end = size;
+
+        @Override
+        public boolean hasNext() {
+            do {
+                while (cursor < end) {
+                    if (isMember(get(snapshot, cursor))) return true;
+                    cursor++;
+                }
+            } while (extend());
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return get(snapshot, cursor++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(); // can be implemented when needed
+        }
+
+        /** continues with any units now after the last unit of the snapshot that is still present, e.g., appended units */
+        private boolean extend() {
+            for (int i = end - 1; i >= start; i--) {
+                T unit = get(snapshot, i);
+                if (isMember(unit)) {
+                    int index = indexOf(unit) + 1;
+                    if (index == size) return false;
+
+                    snapshot = units;
+                    start = cursor = index;
+                    end = size;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isMember(T unit) {
+            return unit.group() == ArraySyntaxCollection.this;
+        }
+    }
+}
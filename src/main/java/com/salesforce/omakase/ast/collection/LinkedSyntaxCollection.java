@@ -32,17 +32,12 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.salesforce.omakase.ast.Status;
-import com.salesforce.omakase.ast.Syntax;
 import com.salesforce.omakase.ast.selector.Selector;
 import com.salesforce.omakase.ast.selector.SelectorPart;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.util.As;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 
 import static com.google.common.base.Preconditions.*;
@@ -50,8 +45,15 @@ import static com.google.common.base.Preconditions.*;
 /**
  * Standard (default) implementation of the {@link SyntaxCollection}.
  * <p>
- * This uses a linked-node approach optimized for random lookups, insertions and removals. Uniqueness is maintained like a set and
- * prevents duplicates. Appending or prepending an existing unit will simply move it's position.
+ * This uses a linked approach optimized for random insertions and removals. The previous and next links are stored directly on
+ * each unit (see {@link AbstractGroupable}), so sibling navigation and removal are pointer hops without any per-collection
+ * lookup structure. As a consequence, all units must extend {@link AbstractGroupable}.
+ * <p>
+ * Uniqueness is maintained like a set and prevents duplicates. Appending or prepending an existing unit will simply move it's
+ * position.
+ * <p>
+ * Iteration continues with the old next sibling when the current unit is removed, replaced or moved while iterating. Units
+ * inserted after the current unit are included.
  *
  * @param <P>
  *     Type of the (P)arent object containing this collection (e.g., {@link SelectorPart}s have {@link Selector}s as the parent).
@@ -60,13 +62,12 @@ import static com.google.common.base.Preconditions.*;
  *
  * @author nmcwilliams
  */
-@SuppressWarnings("AutoBoxing")
 public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implements SyntaxCollection<P, T> {
     private final P parent;
-    private final Lookup<T> lookup = new Lookup<>();
 
-    private Node<T> first;
-    private Node<T> last;
+    private T first;
+    private T last;
+    private int size;
     private Broadcaster broadcaster;
 
     /**
@@ -94,7 +95,7 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
 
     @Override
     public int size() {
-        return lookup.size();
+        return size;
     }
 
     @Override
@@ -105,18 +106,44 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
     @Override
     public Iterator<T> iterator() {
         return new Iterator<T>() {
-            private Node<T> current;
+            private T current;
+
+            // the siblings of the current unit when it was handed out
+            private T previous;
+            private T next;
 
             @Override
             public boolean hasNext() {
-                return current == null ? first != null : current.next != null;
+                return peek() != null;
             }
 
             @Override
             public T next() {
-                if (!hasNext()) throw new NoSuchElementException();
-                current = (current == null) ? first : current.next;
-                return current.unit;
+                T unit = peek();
+                if (unit == null) throw new NoSuchElementException();
+
+                current = unit;
+                previous = links(unit).previousInGroup;
+                next = links(unit).nextInGroup;
+                return unit;
+            }
+
+            private T peek() {
+                if (current == null) return first;
+
+                // if the current unit is still in place then follow its links, so that units inserted after it are included
+                if (current.group() == LinkedSyntaxCollection.this) {
+                    AbstractGroupable<P, T> links = links(current);
+                    if (links.previousInGroup == previous || links.nextInGroup == next) return links.nextInGroup;
+                }
+
+                // otherwise it was removed or moved, so continue with the old next sibling. If that one is gone too then follow
+                // the links it had when it was removed. Links of units now in another collection don't apply here.
+                T unit = next;
+                while (unit != null && unit.group() != LinkedSyntaxCollection.this) {
+                    unit = unit.group() == null ? links(unit).nextInGroup : null;
+                }
+                return unit;
             }
 
             @Override
@@ -137,33 +164,27 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
 
     @Override
     public boolean contains(T unit) {
-        return lookup.contains(unit.id());
+        return unit.group() == this;
     }
 
     @Override
     public Optional<T> first() {
-        return first == null ? Optional.<T>absent() : Optional.of(first.unit);
+        return Optional.fromNullable(first);
     }
 
     @Override
     public Optional<T> last() {
-        return last == null ? Optional.<T>absent() : Optional.of(last.unit);
+        return Optional.fromNullable(last);
     }
 
     @Override
     public Optional<T> next(T unit) {
-        Node<T> node = lookup.get(unit.id());
-        if (node == null) throw new IllegalArgumentException("the specified unit does not exist in this collection!");
-        if (node.next == null) return Optional.absent();
-        return Optional.of(node.next.unit);
+        return Optional.fromNullable(checkedLinks(unit).nextInGroup);
     }
 
     @Override
     public Optional<T> previous(T unit) {
-        Node<T> node = lookup.get(unit.id());
-        if (node == null) throw new IllegalArgumentException("the specified unit does not exist in this collection!");
-        if (node.previous == null) return Optional.absent();
-        return Optional.of(node.previous.unit);
+        return Optional.fromNullable(checkedLinks(unit).previousInGroup);
     }
 
     @Override
@@ -178,14 +199,8 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
         checkNotNull(unit, "unit cannot be null");
         checkArgument(!unit.isDestroyed(), "cannot prepend a destroyed unit!");
 
-        // create a new node
-        first = new Node<>(null, first, unit);
-        lookup.put(unit.id(), first);
-        if (last == null) last = first;
-
-        // perform associative actions on the unit
-        associate(unit);
-
+        unit.unlink();
+        link(unit, null, first);
         return this;
     }
 
@@ -201,19 +216,12 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
         checkNotNull(unit, "unit cannot be null");
         checkArgument(!unit.isDestroyed(), "cannot prepend a destroyed unit!");
 
-        // find the node for the index unit
-        Node<T> node = lookup.get(index.id());
-        if (node == null) throw new IllegalArgumentException("the specified unit does not exist in this collection!");
-
-        // if the index unit is the first unit then delegate to #prepend
-        if (node == first || isEmpty()) return prepend(unit);
-
-        // create a new node
-        lookup.put(unit.id(), new Node<>(node.previous, node, unit));
-
-        // perform associative actions on the unit
-        associate(unit);
+        AbstractGroupable<P, T> links = checkedLinks(index);
+        if (index == unit) return this; // nothing to move
 
+        // unlink first, as that may change the links of the index unit
+        unit.unlink();
+        link(unit, links.previousInGroup, index);
         return this;
     }
 
@@ -222,14 +230,8 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
         checkNotNull(unit, "unit cannot be null");
         checkArgument(!unit.isDestroyed(), "cannot append a destroyed unit!");
 
-        // create a new node
-        last = new Node<>(last, null, unit);
-        lookup.put(unit.id(), last);
-        if (first == null) first = last;
-
-        // perform associative actions on the unit
-        associate(unit);
-
+        unit.unlink();
+        link(unit, last, null);
         return this;
     }
 
@@ -245,33 +247,29 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
         checkNotNull(unit, "unit cannot be null");
         checkArgument(!unit.isDestroyed(), "cannot append a destroyed unit!");
 
-        // find the node for the index unit
-        Node<T> node = lookup.get(index.id());
-        if (node == null) throw new IllegalArgumentException("the specified unit does not exist in this collection!");
-
-        // if the index unit is the last unit then delegate to #append
-        if (node == last || (node.previous == null && node.next == null)) return append(unit);
-
-        // create a new node
-        lookup.put(unit.id(), new Node<>(node, node.next, unit));
-
-        // perform associative actions on the unit
-        associate(unit);
+        AbstractGroupable<P, T> links = checkedLinks(index);
+        if (index == unit) return this; // nothing to move
 
+        // unlink first, as that may change the links of the index unit
+        unit.unlink();
+        link(unit, index, links.nextInGroup);
         return this;
     }
 
     @Override
     public SyntaxCollection<P, T> remove(T unit) {
-        Node<T> removed = lookup.remove(unit.id());
+        if (!contains(unit)) return this;
 
-        if (removed != null) {
-            // update our links
-            unlink(removed);
+        // update our links. the removed unit keeps its own links so that an iterator positioned on it can still advance
+        AbstractGroupable<P, T> links = links(unit);
+        if (unit == first) first = links.nextInGroup;
+        if (unit == last) last = links.previousInGroup;
+        if (links.previousInGroup != null) links(links.previousInGroup).nextInGroup = links.nextInGroup;
+        if (links.nextInGroup != null) links(links.nextInGroup).previousInGroup = links.previousInGroup;
+        size--;
 
-            // ensure the unit is not associated with this group any longer
-            unit.group(null);
-        }
+        // ensure the unit is not associated with this group any longer
+        unit.group(null);
 
         return this;
     }
@@ -315,97 +313,39 @@ public final class LinkedSyntaxCollection<P, T extends Groupable<P, T>> implemen
         return As.string(this).add("units", Lists.newArrayList(iterator())).toString();
     }
 
-    private void associate(T unit) {
-        unit.unlink().group(this);
-
-        // broadcast the unit if it hasn't been broadcasted yet.
-        if (broadcaster != null && unit.status() == Status.UNBROADCASTED) unit.propagateBroadcast(broadcaster);
-    }
-
-    private void unlink(Node<T> node) {
-        if (node == first) first = node.next;
-        if (node == last) last = node.previous;
-        if (node.previous != null) node.previous.next = node.next;
-        if (node.next != null) node.next.previous = node.previous;
-    }
-
-    private static final class Node<E> {
-        Node<E> previous;
-        Node<E> next;
-        final E unit;
-
-        Node(Node<E> previous, Node<E> next, E unit) {
-            this.unit = unit;
-            this.next = next;
-            this.previous = previous;
-
-            if (previous != null) previous.next = this;
-            if (next != null) next.previous = this;
-        }
-    }
+    private void link(T unit, T previous, T next) {
+        AbstractGroupable<P, T> links = links(unit);
+        links.previousInGroup = previous;
+        links.nextInGroup = next;
 
-    private static final class Lookup<E extends Syntax> {
-        private List<Node<E>> sparse = new ArrayList<>();
-        private Map<Integer, Node<E>> dense;
-        private int count = 0;
-
-        public void put(int id, Node<E> node) {
-            // for small collections use an array list, for larger use a map
-            if (count < 64) {
-                sparse.add(node);
-            } else if (count == 64) {
-                dense = new HashMap<>(128);
-                for (Node<E> n : sparse) {
-                    dense.put(n.unit.id(), n);
-                }
-                dense.put(id, node);
-                sparse = null;
-            } else {
-                dense.put(id, node);
-            }
-            count++;
+        if (previous == null) {
+            first = unit;
+        } else {
+            links(previous).nextInGroup = unit;
         }
 
-        public Node<E> get(int id) {
-            if (sparse != null) {
-                for (Node<E> n : sparse) {
-                    if (n.unit.id() == id) return n;
-                }
-                return null;
-            }
-            return dense.get(id);
+        if (next == null) {
+            last = unit;
+        } else {
+            links(next).previousInGroup = unit;
         }
+        size++;
 
-        public Node<E> remove(int id) {
-            if (sparse != null) {
-                for (Iterator<Node<E>> it = sparse.iterator(); it.hasNext(); ) {
-                    Node<E> next = it.next();
-                    if (next.unit.id() == id) {
-                        it.remove();
-                        return next;
-                    }
-                }
-                return null;
-            }
-            return dense.remove(id);
-        }
+        // perform associative actions on the unit
+        unit.group(this);
 
-        public int size() {
-            return sparse != null ? sparse.size() : dense.size();
-        }
+        // broadcast the unit if it hasn't been broadcasted yet.
+        if (broadcaster != null && unit.status() == Status.UNBROADCASTED) unit.propagateBroadcast(broadcaster);
+    }
 
-        public boolean isEmpty() {
-            return sparse != null ? sparse.isEmpty() : dense.isEmpty();
-        }
+    private AbstractGroupable<P, T> checkedLinks(T unit) {
+        if (!contains(unit)) throw new IllegalArgumentException("the specified unit does not exist in this collection!");
+        return links(unit);
+    }
 
-        public boolean contains(int id) {
-            if (sparse != null) {
-                for (Node<E> n : sparse) {
-                    if (n.unit.id() == id) return true;
-                }
-                return false;
-            }
-            return dense.containsKey(id);
-        }
+    @SuppressWarnings("unchecked")
+    private static <P, T extends Groupable<P, T>> AbstractGroupable<P, T> links(T unit) {
+        checkArgument(unit instanceof AbstractGroupable, "LinkedSyntaxCollection requires units extending AbstractGroupable");
+        return (AbstractGroupable<P, T>)unit;
     }
 }
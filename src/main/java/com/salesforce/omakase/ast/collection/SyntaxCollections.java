@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.ast.collection;
+
+import com.salesforce.omakase.broadcast.Broadcaster;
+
+/**
+ * Factory for the {@link SyntaxCollection} instances created by the AST objects, e.g., for the declarations within a rule.
+ * <p>
+ * This returns an {@link ArraySyntaxCollection}, which stores its units contiguously and suits the small collections typically
+ * created during parsing. Statement containers (stylesheets and at-rule blocks) construct a
+ * {@link LinkedSyntaxCollection} directly instead, as they can be large and are often edited in place by rework plugins, where
+ * the linear insertions and removals of the array would add up.
+ *
+ * @author nmcwilliams
+ */
+public final class SyntaxCollections {
+    /** do not construct */
+    private SyntaxCollections() {}
+
+    /**
+     * Creates a new {@link SyntaxCollection} with no available {@link Broadcaster}.
+     *
+     * @param parent
+     *     The parent that owns the collection. Do not pass null.
+     * @param <P>
+     *     Type of the parent object.
+     * @param <T>
+     *     Type of the units within the collection.
+     *
+     * @return The new collection.
+     */
+    public static <P, T extends Groupable<P, T>> SyntaxCollection<P, T> newCollection(P parent) {
+        return new ArraySyntaxCollection<>(parent);
+    }
+
+    /**
+     * Creates a new {@link SyntaxCollection} using the given {@link Broadcaster} to broadcast new units.
+     *
+     * @param parent
+     *     The parent that owns the collection. Do not pass null.
+     * @param broadcaster
+     *     Used to broadcast new units.
+     * @param <P>
+     *     Type of the parent object.
+     * @param <T>
+     *     Type of the units within the collection.
+     *
+     * @return The new collection.
+     */
+    public static <P, T extends Groupable<P, T>> SyntaxCollection<P, T> newCollection(P parent, Broadcaster broadcaster) {
+        return new ArraySyntaxCollection<>(parent, broadcaster);
+    }
+}
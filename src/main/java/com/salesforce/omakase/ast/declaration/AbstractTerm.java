@@ -28,6 +28,8 @@ package com.salesforce.omakase.ast.declaration;
 
 import com.salesforce.omakase.ast.Syntax;
 import com.salesforce.omakase.ast.collection.AbstractGroupable;
+import com.salesforce.omakase.ast.collection.Groupable;
+import com.salesforce.omakase.ast.collection.SyntaxCollection;
 
 /**
  * Base class for {@link Term}s.
@@ -64,4 +66,21 @@ public abstract class AbstractTerm extends AbstractGroupable<PropertyValue, Prop
     public Declaration declaration() {
         return parent() != null ? parent().declaration() : null;
     }
+
+    @Override
+    public Groupable<PropertyValue, PropertyValueMember> group(SyntaxCollection<PropertyValue, PropertyValueMember> group) {
+        changed(); // the previous parent
+        super.group(group);
+        changed();
+        return this;
+    }
+
+    /**
+     * Subclasses must call this whenever something affecting the written output changes, so that any cached output of the
+     * parent {@link PropertyValue} is discarded.
+     */
+    protected final void changed() {
+        PropertyValue parent = parent();
+        if (parent != null) parent.invalidateOutput();
+    }
 }
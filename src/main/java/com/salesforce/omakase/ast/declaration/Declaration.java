@@ -40,6 +40,7 @@ import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.broadcast.annotation.Description;
 import com.salesforce.omakase.broadcast.annotation.Subscribable;
 import com.salesforce.omakase.data.Property;
+import com.salesforce.omakase.parser.Source;
 import com.salesforce.omakase.parser.declaration.PropertyValueParser;
 import com.salesforce.omakase.parser.raw.RawDeclarationParser;
 import com.salesforce.omakase.parser.refiner.MasterRefiner;
@@ -48,7 +49,7 @@ import com.salesforce.omakase.writer.StyleWriter;
 
 import java.io.IOException;
 
-import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.*;
 import static com.salesforce.omakase.broadcast.BroadcastRequirement.AUTOMATIC;
 
 /**
@@ -67,9 +68,18 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
     private final transient MasterRefiner refiner;
     private transient Broadcaster broadcaster;
 
+    /* unrefined, compact form (offsets into a shared source buffer) */
+    private final transient String buffer;
+    private final int nameStart;
+    private final int nameEnd;
+    private final int valueLine;
+    private final int valueColumn;
+    private final int valueStart;
+    private final int valueEnd;
+
     /* unrefined */
-    private final RawSyntax rawPropertyName;
-    private final RawSyntax rawPropertyValue;
+    private RawSyntax rawPropertyName;
+    private RawSyntax rawPropertyValue;
 
     /* refined */
     private PropertyName propertyName;
@@ -91,11 +101,60 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
      */
     public Declaration(RawSyntax rawPropertyName, RawSyntax rawPropertyValue, MasterRefiner refiner) {
         super(rawPropertyName.line(), rawPropertyName.column());
+        this.buffer = null;
+        this.nameStart = this.nameEnd = this.valueLine = this.valueColumn = this.valueStart = this.valueEnd = -1;
         this.rawPropertyName = rawPropertyName;
         this.rawPropertyValue = rawPropertyValue;
         this.refiner = refiner;
     }
 
+    /**
+     * Creates a new instance of a {@link Declaration} with the raw property name and raw property value given as offsets into a
+     * shared source buffer. The property name and value can be further refined or validated by calling {@link #refine()}.
+     * <p>
+     * This is a compact alternative to {@link #Declaration(RawSyntax, RawSyntax, MasterRefiner)} used by the parser. No {@link
+     * RawSyntax} objects or content strings are created up front. Instead they are created on the first call to {@link
+     * #rawPropertyName()} or {@link #rawPropertyValue()} (which includes refinement), and unrefined declarations are written
+     * directly from the buffer. This considerably reduces the memory held by parsed but unrefined syntax trees, at the cost of
+     * keeping a reference to the source buffer.
+     *
+     * @param line
+     *     The line number of the start of the property name.
+     * @param column
+     *     The column number of the start of the property name.
+     * @param valueLine
+     *     The line number of the start of the property value.
+     * @param valueColumn
+     *     The column number of the start of the property value.
+     * @param buffer
+     *     The source buffer containing the declaration, e.g., {@link Source#fullSource()}.
+     * @param nameStart
+     *     The index of the first character of the property name within the buffer.
+     * @param nameEnd
+     *     The index after the last character of the property name within the buffer.
+     * @param valueStart
+     *     The index of the first character of the property value within the buffer.
+     * @param valueEnd
+     *     The index after the last character of the property value within the buffer.
+     * @param refiner
+     *     The {@link MasterRefiner} to be used later during refinement of this object.
+     */
+    public Declaration(int line, int column, int valueLine, int valueColumn, String buffer, int nameStart, int nameEnd,
+        int valueStart, int valueEnd, MasterRefiner refiner) {
+        super(line, column);
+        checkPositionIndexes(nameStart, nameEnd, buffer.length());
+        checkPositionIndexes(valueStart, valueEnd, buffer.length());
+        checkArgument(nameEnd <= valueStart, "the property name must come before the property value");
+        this.buffer = buffer;
+        this.nameStart = nameStart;
+        this.nameEnd = nameEnd;
+        this.valueLine = valueLine;
+        this.valueColumn = valueColumn;
+        this.valueStart = valueStart;
+        this.valueEnd = valueEnd;
+        this.refiner = refiner;
+    }
+
     /**
      * Creates a new instance of a {@link Declaration} with the given {@link PropertyName} and {@link PropertyValue}.
      * <p>
@@ -177,8 +236,8 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
      */
     public Declaration(PropertyName propertyName, PropertyValue propertyValue) {
         this.refiner = null;
-        this.rawPropertyName = null;
-        this.rawPropertyValue = null;
+        this.buffer = null;
+        this.nameStart = this.nameEnd = this.valueLine = this.valueColumn = this.valueStart = this.valueEnd = -1;
         propertyName(propertyName).propertyValue(propertyValue);
     }
 
@@ -189,6 +248,9 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
      * created unit).
      */
     public Optional<RawSyntax> rawPropertyName() {
+        if (rawPropertyName == null && buffer != null) {
+            rawPropertyName = new RawSyntax(line(), column(), buffer.substring(nameStart, nameEnd));
+        }
         return Optional.fromNullable(rawPropertyName);
     }
 
@@ -199,9 +261,24 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
      * created unit).
      */
     public Optional<RawSyntax> rawPropertyValue() {
+        if (rawPropertyValue == null && buffer != null) {
+            rawPropertyValue = new RawSyntax(valueLine, valueColumn, buffer.substring(valueStart, valueEnd));
+        }
         return Optional.fromNullable(rawPropertyValue);
     }
 
+    /**
+     * Gets the content of the original, raw, non-validated property value. Unlike <code>rawPropertyValue().get().content()</code>,
+     * this does not create the {@link RawSyntax} when not already done so.
+     *
+     * @return The raw property value content, or {@link Optional#absent()} if the raw property value is not set (e.g., a
+     * dynamically created unit).
+     */
+    public Optional<String> rawPropertyValueContent() {
+        if (rawPropertyValue == null && buffer != null) return Optional.of(buffer.substring(valueStart, valueEnd));
+        return rawPropertyValue != null ? Optional.of(rawPropertyValue.content()) : Optional.<String>absent();
+    }
+
     /**
      * Sets a new property name. Generally, doing this should be avoided.
      *
@@ -250,6 +327,18 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
         return refinePropertyName();
     }
 
+    /**
+     * Gets the property name without the vendor prefix, e.g., "border-radius" for "-webkit-border-radius". Unlike
+     * <code>propertyName().unprefixed()</code>, this does not refine the property name when not already done so.
+     *
+     * @return The unprefixed property name.
+     */
+    public String unprefixedPropertyName() {
+        if (propertyName != null || (rawPropertyName == null && buffer == null)) return propertyName().unprefixed();
+        String name = rawPropertyName != null ? rawPropertyName.content() : buffer.substring(nameStart, nameEnd);
+        return PropertyName.of(name).unprefixed();
+    }
+
     /**
      * Gets whether this {@link Declaration} has the given property name. Prefer to use {@link #isProperty(Property)} instead.
      * <p>
@@ -439,14 +528,15 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
     /** Refines just the property name */
     private PropertyName refinePropertyName() {
         if (propertyName == null && !isRefined()) {
-            propertyName = PropertyName.of(rawPropertyName.line(), rawPropertyName.column(), rawPropertyName.content());
+            String name = rawPropertyName != null ? rawPropertyName.content() : buffer.substring(nameStart, nameEnd);
+            propertyName = PropertyName.of(line(), column(), name);
         }
         return propertyName;
     }
 
     @Override
     public boolean containsRawSyntax() {
-        return rawPropertyName != null || rawPropertyValue != null;
+        return buffer != null || rawPropertyName != null || rawPropertyValue != null;
     }
 
     @Override
@@ -493,13 +583,43 @@ public final class Declaration extends AbstractGroupable<Rule, Declaration> impl
             writer.writeInner(propertyName, appendable);
             appendable.append(':').spaceIf(writer.isVerbose());
             writer.writeInner(propertyValue, appendable);
+        } else if (rawPropertyName == null && rawPropertyValue == null && !writer.hasCustomWriter(RawSyntax.class)) {
+            // compact form, write straight from the buffer without creating the raw syntax units
+            appendable.append(buffer, nameStart, nameEnd);
+            appendable.append(':').spaceIf(writer.isVerbose());
+            appendable.append(buffer, valueStart, valueEnd);
         } else {
-            writer.writeInner(rawPropertyName, appendable);
+            writer.writeInner(rawPropertyName().get(), appendable);
             appendable.append(':').spaceIf(writer.isVerbose());
-            writer.writeInner(rawPropertyValue, appendable);
+            writer.writeInner(rawPropertyValue().get(), appendable);
         }
     }
 
+    /**
+     * Creates a copy of this unrefined declaration that shares the same raw content and uses the given {@link MasterRefiner} for
+     * refinement.
+     * <p>
+     * Unlike {@link #copy()}, this doesn't refine (or otherwise modify) this declaration, which makes it safe to call concurrently
+     * on a shared declaration that isn't modified otherwise. The copy is cheap, as the raw content itself is not copied.
+     *
+     * @param refiner
+     *     The {@link MasterRefiner} to be used later during refinement of the copy.
+     *
+     * @return The copy.
+     *
+     * @throws IllegalStateException
+     *     If this declaration is already refined or doesn't have raw content.
+     */
+    public Declaration copyUnrefined(MasterRefiner refiner) {
+        checkState(!isRefined() && containsRawSyntax(), "only unrefined declarations with raw content can be copied unrefined");
+
+        Declaration copy = buffer != null
+            ? new Declaration(line(), column(), valueLine, valueColumn, buffer, nameStart, nameEnd, valueStart, valueEnd, refiner)
+            : new Declaration(rawPropertyName, rawPropertyValue, refiner);
+
+        return copy.copiedFrom(this);
+    }
+
     @Override
     public Declaration copy() {
         return new Declaration(propertyName().copy(), propertyValue().copy()).copiedFrom(this);
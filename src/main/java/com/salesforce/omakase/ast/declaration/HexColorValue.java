@@ -112,6 +112,7 @@ public final class HexColorValue extends AbstractTerm {
         // color is automatically lower-cased
         this.color = color.toLowerCase();
 
+        changed();
         return this;
     }
 
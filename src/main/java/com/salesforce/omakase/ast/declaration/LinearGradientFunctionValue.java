@@ -91,6 +91,7 @@ public final class LinearGradientFunctionValue extends AbstractTerm implements F
      */
     public LinearGradientFunctionValue args(String args) {
         this.args = checkNotNull(args, "args cannot be null");
+        changed();
         return this;
     }
 
@@ -113,6 +114,7 @@ public final class LinearGradientFunctionValue extends AbstractTerm implements F
      */
     public LinearGradientFunctionValue repeating(boolean repeating) {
         this.repeating = repeating;
+        changed();
         return this;
     }
 
@@ -135,6 +137,7 @@ public final class LinearGradientFunctionValue extends AbstractTerm implements F
      */
     public LinearGradientFunctionValue prefix(Prefix prefix) {
         this.prefix = prefix;
+        changed();
         return this;
     }
 
@@ -132,6 +132,7 @@ public final class NumericalValue extends AbstractTerm {
         } else {
             explicitSign = null;
         }
+        changed();
         return this;
     }
 
@@ -156,6 +157,7 @@ public final class NumericalValue extends AbstractTerm {
         } else {
             explicitSign = null;
         }
+        changed();
         return this;
     }
 
@@ -207,6 +209,7 @@ public final class NumericalValue extends AbstractTerm {
      */
     public NumericalValue unit(String unit) {
         this.unit = unit;
+        changed();
         return this;
     }
 
@@ -229,6 +232,7 @@ public final class NumericalValue extends AbstractTerm {
      */
     public NumericalValue explicitSign(Sign sign) {
         this.explicitSign = sign;
+        changed();
         return this;
     }
 
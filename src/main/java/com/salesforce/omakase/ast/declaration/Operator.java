@@ -29,6 +29,8 @@ package com.salesforce.omakase.ast.declaration;
 import com.salesforce.omakase.ast.Status;
 import com.salesforce.omakase.ast.Syntax;
 import com.salesforce.omakase.ast.collection.AbstractGroupable;
+import com.salesforce.omakase.ast.collection.Groupable;
+import com.salesforce.omakase.ast.collection.SyntaxCollection;
 import com.salesforce.omakase.writer.StyleAppendable;
 import com.salesforce.omakase.writer.StyleWriter;
 
@@ -91,6 +93,15 @@ public final class Operator extends AbstractGroupable<PropertyValue, PropertyVal
         return this;
     }
 
+    @Override
+    public Groupable<PropertyValue, PropertyValueMember> group(SyntaxCollection<PropertyValue, PropertyValueMember> group) {
+        // discard any cached output of the previous and new parent
+        if (parent() != null) parent().invalidateOutput();
+        super.group(group);
+        if (parent() != null) parent().invalidateOutput();
+        return this;
+    }
+
     @Override
     public boolean isWritable() {
         return true;
@@ -28,16 +28,18 @@ package com.salesforce.omakase.ast.declaration;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.salesforce.omakase.ast.AbstractSyntax;
 import com.salesforce.omakase.ast.Syntax;
-import com.salesforce.omakase.ast.collection.LinkedSyntaxCollection;
 import com.salesforce.omakase.ast.collection.SyntaxCollection;
+import com.salesforce.omakase.ast.collection.SyntaxCollections;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.broadcast.annotation.Description;
 import com.salesforce.omakase.broadcast.annotation.Subscribable;
 import com.salesforce.omakase.parser.declaration.PropertyValueParser;
 import com.salesforce.omakase.writer.StyleAppendable;
 import com.salesforce.omakase.writer.StyleWriter;
+import com.salesforce.omakase.writer.WriterMode;
 
 import java.io.IOException;
 
@@ -63,10 +65,17 @@ import static com.salesforce.omakase.broadcast.BroadcastRequirement.REFINED_DECL
 @Subscribable
 @Description(value = "interface for all property values", broadcasted = REFINED_DECLARATION)
 public final class PropertyValue extends AbstractSyntax {
+    private static final ImmutableSet<Class<?>> CACHEABLE = ImmutableSet.<Class<?>>of(KeywordValue.class, NumericalValue.class,
+        StringValue.class, HexColorValue.class, GenericFunctionValue.class, LinearGradientFunctionValue.class,
+        UrlFunctionValue.class, UnicodeRangeValue.class, Operator.class);
+
     private final SyntaxCollection<PropertyValue, PropertyValueMember> members;
     private transient Declaration declaration;
     private boolean important;
 
+    /** written output for each {@link WriterMode}, only used when requested with {@link StyleWriter#cacheOutput(boolean)} */
+    private transient String[] cachedOutput;
+
     /** Creates a new instance with no line or number specified (used for dynamically created {@link Syntax} units). */
     public PropertyValue() {
         this(-1, -1, null);
@@ -84,7 +93,7 @@ public final class PropertyValue extends AbstractSyntax {
      */
     public PropertyValue(int line, int column, Broadcaster broadcaster) {
         super(line, column);
-        members = new LinkedSyntaxCollection<>(this, broadcaster);
+        members = SyntaxCollections.newCollection(this, broadcaster);
     }
 
     /**
@@ -203,6 +212,7 @@ public final class PropertyValue extends AbstractSyntax {
      */
     public PropertyValue important(boolean important) {
         this.important = important;
+        invalidateOutput();
         return this;
     }
 
@@ -241,6 +251,31 @@ public final class PropertyValue extends AbstractSyntax {
 
     @Override
     public void write(StyleWriter writer, StyleAppendable appendable) throws IOException {
+        if (!writer.isCachingOutput()) {
+            writeMembers(writer, appendable);
+            return;
+        }
+
+        String[] cache = cachedOutput;
+        int index = writer.mode().ordinal();
+
+        if (cache == null || cache[index] == null) {
+            if (!isCacheable()) {
+                writeMembers(writer, appendable);
+                return;
+            }
+
+            StyleAppendable output = new StyleAppendable();
+            writeMembers(writer, output);
+
+            if (cache == null) cache = cachedOutput = new String[WriterMode.values().length];
+            cache[index] = output.toString();
+        }
+
+        appendable.append(cache[index]);
+    }
+
+    private void writeMembers(StyleWriter writer, StyleAppendable appendable) throws IOException {
         for (PropertyValueMember member : members) {
             writer.writeInner(member, appendable);
         }
@@ -250,12 +285,26 @@ public final class PropertyValue extends AbstractSyntax {
         }
     }
 
+    /** only library units are known to call {@link AbstractTerm#changed()} when modified */
+    private boolean isCacheable() {
+        for (PropertyValueMember member : members) {
+            if (!CACHEABLE.contains(member.getClass())) return false;
+        }
+        return true;
+    }
+
+    /** discards any cached output, called whenever something affecting the output changes */
+    void invalidateOutput() {
+        cachedOutput = null;
+    }
+
     @Override
     public PropertyValue copy() {
         PropertyValue copy = new PropertyValue().important(important).copiedFrom(this);
         for (PropertyValueMember member : members) {
             copy.append(member.copy());
         }
+        copy.cachedOutput = cachedOutput; // safe to share, invalidating replaces the array instead of clearing it
         return copy;
     }
 
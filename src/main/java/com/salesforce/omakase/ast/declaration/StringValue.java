@@ -102,6 +102,7 @@ public final class StringValue extends AbstractTerm {
     public StringValue content(QuotationMode mode, String content) {
         this.mode = checkNotNull(mode, "mode cannot be null");
         this.content = checkNotNull(content, "content cannot be null");
+        changed();
         return this;
     }
 
@@ -112,6 +112,7 @@ public class UnicodeRangeValue extends AbstractTerm {
     public UnicodeRangeValue value(String value) {
         checkNotNull(value, "value cannot be null");
         this.value = value.toLowerCase();
+        changed();
         return this;
     }
 
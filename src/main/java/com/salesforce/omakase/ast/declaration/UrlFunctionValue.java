@@ -91,6 +91,7 @@ public final class UrlFunctionValue extends AbstractTerm implements FunctionValu
      */
     public UrlFunctionValue url(String url) {
         this.url = checkNotNull(url, "url cannot be null");
+        changed();
         return this;
     }
 
@@ -113,6 +114,7 @@ public final class UrlFunctionValue extends AbstractTerm implements FunctionValu
      */
     public UrlFunctionValue quotationMode(QuotationMode quotationMode) {
         this.quotationMode = quotationMode;
+        changed();
         return this;
     }
 
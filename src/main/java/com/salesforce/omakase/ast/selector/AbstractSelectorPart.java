@@ -28,6 +28,8 @@ package com.salesforce.omakase.ast.selector;
 
 import com.salesforce.omakase.ast.Syntax;
 import com.salesforce.omakase.ast.collection.AbstractGroupable;
+import com.salesforce.omakase.ast.collection.Groupable;
+import com.salesforce.omakase.ast.collection.SyntaxCollection;
 
 /** Base class for {@link SelectorPart}s. */
 public abstract class AbstractSelectorPart extends AbstractGroupable<Selector, SelectorPart> implements SelectorPart {
@@ -50,4 +52,21 @@ public abstract class AbstractSelectorPart extends AbstractGroupable<Selector, S
     protected SelectorPart self() {
         return this;
     }
+
+    @Override
+    public Groupable<Selector, SelectorPart> group(SyntaxCollection<Selector, SelectorPart> group) {
+        changed(); // the previous parent
+        super.group(group);
+        changed();
+        return this;
+    }
+
+    /**
+     * Subclasses must call this whenever something affecting the written output changes, so that any cached output of the
+     * parent {@link Selector} is discarded.
+     */
+    protected final void changed() {
+        Selector parent = parent();
+        if (parent != null) parent.invalidateOutput();
+    }
 }
@@ -92,6 +92,7 @@ public final class AttributeSelector extends AbstractSelectorPart implements Sim
      */
     public AttributeSelector attribute(String attribute) {
         this.attribute = checkNotNull(attribute, "attribute cannot be null");
+        changed();
         return this;
     }
 
@@ -122,6 +123,7 @@ public final class AttributeSelector extends AbstractSelectorPart implements Sim
         this.matchType = matchType;
         this.value = value;
 
+        changed();
         return this;
     }
 
@@ -86,6 +86,7 @@ public final class IdSelector extends AbstractSelectorPart implements SimpleSele
      */
     public IdSelector name(String name) {
         this.name = checkNotNull(name, "name cannot be null");
+        changed();
         return this;
     }
 
@@ -79,6 +79,7 @@ public class KeyframeSelector extends AbstractSelectorPart {
      */
     public KeyframeSelector keyframe(String keyframe) {
         this.keyframe = checkNotNull(keyframe, "keyframe cannot be null");
+        changed();
         return this;
     }
 
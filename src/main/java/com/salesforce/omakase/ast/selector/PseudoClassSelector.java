@@ -111,6 +111,7 @@ public final class PseudoClassSelector extends AbstractSelectorPart implements S
             String.format("%s must be created as a PseudoElementSelector", name));
 
         this.name = checkNotNull(name, "name cannot be null");
+        changed();
         return this;
     }
 
@@ -131,6 +132,7 @@ public final class PseudoClassSelector extends AbstractSelectorPart implements S
      */
     public PseudoClassSelector args(String args) {
         this.args = args;
+        changed();
         return this;
     }
 
@@ -27,14 +27,15 @@
 package com.salesforce.omakase.ast.selector;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.salesforce.omakase.ast.RawSyntax;
 import com.salesforce.omakase.ast.Refinable;
 import com.salesforce.omakase.ast.Rule;
 import com.salesforce.omakase.ast.Syntax;
 import com.salesforce.omakase.ast.collection.AbstractGroupable;
-import com.salesforce.omakase.ast.collection.LinkedSyntaxCollection;
 import com.salesforce.omakase.ast.collection.SyntaxCollection;
+import com.salesforce.omakase.ast.collection.SyntaxCollections;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.broadcast.annotation.Description;
 import com.salesforce.omakase.broadcast.annotation.Subscribable;
@@ -43,11 +44,13 @@ import com.salesforce.omakase.parser.refiner.Refiner;
 import com.salesforce.omakase.parser.selector.ComplexSelectorParser;
 import com.salesforce.omakase.writer.StyleAppendable;
 import com.salesforce.omakase.writer.StyleWriter;
+import com.salesforce.omakase.writer.WriterMode;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkState;
 import static com.salesforce.omakase.broadcast.BroadcastRequirement.AUTOMATIC;
 
 /**
@@ -77,10 +80,17 @@ import static com.salesforce.omakase.broadcast.BroadcastRequirement.AUTOMATIC;
 @Subscribable
 @Description(broadcasted = AUTOMATIC)
 public final class Selector extends AbstractGroupable<Rule, Selector> implements Refinable<Selector> {
+    private static final ImmutableSet<Class<?>> CACHEABLE = ImmutableSet.<Class<?>>of(AttributeSelector.class,
+        ClassSelector.class, Combinator.class, IdSelector.class, KeyframeSelector.class, PseudoClassSelector.class,
+        PseudoElementSelector.class, TypeSelector.class, UniversalSelector.class);
+
     private final SyntaxCollection<Selector, SelectorPart> parts;
     private final RawSyntax raw;
     private final transient MasterRefiner refiner;
 
+    /** written parts for each {@link WriterMode}, only used when requested with {@link StyleWriter#cacheOutput(boolean)} */
+    private transient String[] cachedOutput;
+
     /**
      * Creates a new instance of a {@link Selector} with the given raw content. This selector can be further refined to the
      * individual {@link SelectorPart}s by using {@link #refine()}.
@@ -96,7 +106,7 @@ public final class Selector extends AbstractGroupable<Rule, Selector> implements
         super(raw.line(), raw.column());
         this.refiner = refiner;
         this.raw = raw;
-        this.parts = new LinkedSyntaxCollection<>(this, refiner.broadcaster());
+        this.parts = SyntaxCollections.newCollection(this, refiner.broadcaster());
     }
 
     /**
@@ -151,7 +161,7 @@ public final class Selector extends AbstractGroupable<Rule, Selector> implements
         super(line, column);
         this.refiner = null;
         this.raw = null;
-        this.parts = new LinkedSyntaxCollection<Selector, SelectorPart>(this).appendAll(parts);
+        this.parts = SyntaxCollections.<Selector, SelectorPart>newCollection(this).appendAll(parts);
     }
 
     /**
@@ -265,13 +275,68 @@ public final class Selector extends AbstractGroupable<Rule, Selector> implements
 
         writer.appendComments(comments(), appendable);
 
-        if (isRefined()) {
-            for (SelectorPart part : parts) {
-                writer.writeInner(part, appendable);
-            }
-        } else {
+        if (!isRefined()) {
             writer.writeInner(raw, appendable);
+        } else if (!writer.isCachingOutput()) {
+            writeParts(writer, appendable);
+        } else {
+            String[] cache = cachedOutput;
+            int index = writer.mode().ordinal();
+
+            if (cache == null || cache[index] == null) {
+                if (!isCacheable()) {
+                    writeParts(writer, appendable);
+                    return;
+                }
+
+                StyleAppendable output = new StyleAppendable();
+                writeParts(writer, output);
+
+                if (cache == null) cache = cachedOutput = new String[WriterMode.values().length];
+                cache[index] = output.toString();
+            }
+
+            appendable.append(cache[index]);
+        }
+    }
+
+    private void writeParts(StyleWriter writer, StyleAppendable appendable) throws IOException {
+        for (SelectorPart part : parts) {
+            writer.writeInner(part, appendable);
+        }
+    }
+
+    /** only library units are known to call {@link AbstractSelectorPart#changed()} when modified */
+    private boolean isCacheable() {
+        for (SelectorPart part : parts) {
+            if (!CACHEABLE.contains(part.getClass())) return false;
         }
+        return true;
+    }
+
+    /** discards any cached output, called whenever something affecting the output changes */
+    void invalidateOutput() {
+        cachedOutput = null;
+    }
+
+    /**
+     * Creates a copy of this unrefined selector that shares the same raw content and uses the given {@link MasterRefiner} for
+     * refinement.
+     * <p>
+     * Unlike {@link #copy()}, this keeps the raw content, and doesn't modify this selector, which makes it safe to call
+     * concurrently on a shared selector that isn't modified otherwise.
+     *
+     * @param refiner
+     *     The {@link MasterRefiner} to be used later during refinement of the copy.
+     *
+     * @return The copy.
+     *
+     * @throws IllegalStateException
+     *     If this selector is already refined.
+     */
+    public Selector copyUnrefined(MasterRefiner refiner) {
+        checkState(!isRefined(), "only unrefined selectors can be copied unrefined");
+        return new Selector(raw, refiner).copiedFrom(this);
     }
 
     @Override
@@ -282,7 +347,9 @@ public final class Selector extends AbstractGroupable<Rule, Selector> implements
             copiedParts.add(part.copy());
         }
 
-        return new Selector(copiedParts).copiedFrom(this);
+        Selector copy = new Selector(copiedParts).copiedFrom(this);
+        copy.cachedOutput = cachedOutput; // safe to share, invalidating replaces the array instead of clearing it
+        return copy;
     }
 
     @Override
@@ -87,6 +87,7 @@ public final class TypeSelector extends AbstractSelectorPart implements SimpleSe
     public TypeSelector name(String name) {
         checkNotNull(name, "name cannot be null");
         this.name = name.toLowerCase();
+        changed();
         return this;
     }
 
@@ -32,6 +32,7 @@ import com.salesforce.omakase.broadcast.emitter.Emitter;
 import com.salesforce.omakase.broadcast.emitter.SubscriptionPhase;
 import com.salesforce.omakase.error.ErrorManager;
 import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.plugin.basic.Metrics;
 
 /**
  * The main {@link Broadcaster}, this emits the broadcasted events to registered {@link Plugin} methods.
@@ -84,6 +85,16 @@ public final class EmittingBroadcaster extends AbstractBroadcaster {
         emitter.register(subscriber);
     }
 
+    /**
+     * See {@link Emitter#metrics(Metrics)}.
+     *
+     * @param metrics
+     *     The {@link Metrics} instance, or null to disable instrumentation.
+     */
+    public void metrics(Metrics metrics) {
+        emitter.metrics(metrics);
+    }
+
     /**
      * See {@link Emitter#phase(SubscriptionPhase)}.
      *
@@ -37,6 +37,7 @@ import com.salesforce.omakase.broadcast.annotation.Subscribable;
 import com.salesforce.omakase.broadcast.annotation.Validate;
 import com.salesforce.omakase.error.ErrorManager;
 import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.plugin.basic.Metrics;
 
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -84,6 +85,9 @@ public final class Emitter {
 
     private SubscriptionPhase phase = SubscriptionPhase.PROCESS;
 
+    /** optional instrumentation, only set when timing information is requested */
+    private Metrics metrics;
+
     /**
      * Sets the current {@link SubscriptionPhase}. This determines which registered subscribers receive broadcasts.
      *
@@ -103,6 +107,17 @@ public final class Emitter {
         return phase;
     }
 
+    /**
+     * Specifies the {@link Metrics} instance to record subscription timings with. When not specified (the default) no timing
+     * information is recorded.
+     *
+     * @param metrics
+     *     The {@link Metrics} instance, or null to disable instrumentation.
+     */
+    public void metrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Registers an instance of an object to receive broadcasted events (usually a {@link Plugin} instance).
      * <p>
@@ -149,6 +164,11 @@ public final class Emitter {
      *     The {@link ErrorManager} instance.
      */
     public void emit(Broadcastable event, ErrorManager em) {
+        if (metrics != null) {
+            emitAndMeasure(event, em);
+            return;
+        }
+
         // for each subscribable type in the event's hierarchy, inform each subscription to that type
         for (Subscription subscription : subscriptions(event)) {
             if (event.status() == Status.NEVER_EMIT) return;
@@ -156,6 +176,21 @@ public final class Emitter {
         }
     }
 
+    /** same as #emit, except the time spent in each subscription is recorded in the metrics */
+    private void emitAndMeasure(Broadcastable event, ErrorManager em) {
+        long start = System.nanoTime();
+
+        for (Subscription subscription : subscriptions(event)) {
+            if (event.status() == Status.NEVER_EMIT) break;
+
+            long before = System.nanoTime();
+            subscription.deliver(event, em);
+            metrics.subscription(subscription.subscriber(), subscription.method(), event.getClass(), System.nanoTime() - before);
+        }
+
+        metrics.broadcast(event.getClass(), System.nanoTime() - start);
+    }
+
     /** gets all subscriptions (including hierarchy) for the given event's class (see notes above for more details). */
     private Iterable<Subscription> subscriptions(Broadcastable event) {
         Map<Class<?>, Iterable<Subscription>> cache = (phase == SubscriptionPhase.PROCESS) ? processorsCache : validatorsCache;
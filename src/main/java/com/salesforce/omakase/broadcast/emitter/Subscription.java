@@ -68,6 +68,15 @@ final class Subscription implements Comparable<Subscription> {
         return phase;
     }
 
+    /**
+     * Gets the object (usually a plugin) that owns the subscription method.
+     *
+     * @return The subscriber.
+     */
+    public Object subscriber() {
+        return subscriber;
+    }
+
     /**
      * Gets the method for the subscription.
      *
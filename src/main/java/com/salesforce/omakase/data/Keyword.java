@@ -60,7 +60,7 @@ public enum Keyword {
     ALWAYS("always"),
 
     /** CSS keyword named 'aqua' */
-    AQUA("aqua"),
+    AQUA("aqua", "00ffff"),
 
     /** CSS keyword named 'auto' */
     AUTO("auto"),
@@ -84,13 +84,13 @@ public enum Keyword {
     BELOW("below"),
 
     /** CSS keyword named 'black' */
-    BLACK("black"),
+    BLACK("black", "000000"),
 
     /** CSS keyword named 'block' */
     BLOCK("block"),
 
     /** CSS keyword named 'blue' */
-    BLUE("blue"),
+    BLUE("blue", "0000ff"),
 
     /** CSS keyword named 'bold' */
     BOLD("bold"),
@@ -192,13 +192,13 @@ public enum Keyword {
     FLEX_END("flex-end"),
 
     /** CSS keyword named 'fuchsia' */
-    FUCHSIA("fuchsia"),
+    FUCHSIA("fuchsia", "ff00ff"),
 
     /** CSS keyword named 'gray' */
-    GRAY("gray"),
+    GRAY("gray", "808080"),
 
     /** CSS keyword named 'green' */
-    GREEN("green"),
+    GREEN("green", "008000"),
 
     /** CSS keyword named 'grid' */
     GRID("grid"),
@@ -258,7 +258,7 @@ public enum Keyword {
     LEFT("left"),
 
     /** CSS keyword named 'lime' */
-    LIME("lime"),
+    LIME("lime", "00ff00"),
 
     /** CSS keyword named 'line' */
     LINE("line"),
@@ -294,7 +294,7 @@ public enum Keyword {
     MANUAL("manual"),
 
     /** CSS keyword named 'maroon' */
-    MAROON("maroon"),
+    MAROON("maroon", "800000"),
 
     /** CSS keyword named 'max-height' */
     MAX_HEIGHT("max-height"),
@@ -312,7 +312,7 @@ public enum Keyword {
     MULTIPLE("multiple"),
 
     /** CSS keyword named 'navy' */
-    NAVY("navy"),
+    NAVY("navy", "000080"),
 
     /** CSS keyword named 'ne-resize' */
     NE_RESIZE("ne-resize"),
@@ -336,7 +336,7 @@ public enum Keyword {
     NWSE_RESIZE("nwse-resize"),
 
     /** CSS keyword named 'olive' */
-    OLIVE("olive"),
+    OLIVE("olive", "808000"),
 
     /** CSS keyword named 'open' */
     OPEN("open"),
@@ -369,7 +369,7 @@ public enum Keyword {
     PRE_WRAP("pre-wrap"),
 
     /** CSS keyword named 'purple' */
-    PURPLE("purple"),
+    PURPLE("purple", "800080"),
 
     /** CSS keyword named 'read-only' */
     READ_ONLY("read-only"),
@@ -378,7 +378,7 @@ public enum Keyword {
     READ_WRITE("read-write"),
 
     /** CSS keyword named 'red' */
-    RED("red"),
+    RED("red", "ff0000"),
 
     /** CSS keyword named 'relative' */
     RELATIVE("relative"),
@@ -426,7 +426,7 @@ public enum Keyword {
     SE_RESIZE("se-resize"),
 
     /** CSS keyword named 'silver' */
-    SILVER("silver"),
+    SILVER("silver", "c0c0c0"),
 
     /** CSS keyword named 'small-caps' */
     SMALL_CAPS("small-caps"),
@@ -492,7 +492,7 @@ public enum Keyword {
     TABLE_ROW_GROUP("table-row-group"),
 
     /** CSS keyword named 'teal' */
-    TEAL("teal"),
+    TEAL("teal", "008080"),
 
     /** CSS keyword named 'text' */
     TEXT("text"),
@@ -543,13 +543,13 @@ public enum Keyword {
     VISIBLE("visible"),
 
     /** CSS keyword named 'white' */
-    WHITE("white"),
+    WHITE("white", "ffffff"),
 
     /** CSS keyword named 'w-resize' */
     W_RESIZE("w-resize"),
 
     /** CSS keyword named 'yellow' */
-    YELLOW("yellow"),
+    YELLOW("yellow", "ffff00"),
 
     ;
 
@@ -564,9 +564,26 @@ public enum Keyword {
     }
 
     private final String keyword;
+    private final String color;
 
     Keyword(String keyword) {
+        this(keyword, null);
+    }
+
+    Keyword(String keyword, String color) {
         this.keyword = keyword;
+        this.color = color;
+    }
+
+    /**
+     * Gets the six-digit hex value (without the '#') of this keyword, if this keyword is one of the basic named colors (e.g.,
+     * "ff0000" for {@link #RED}). Only the basic named colors have a hex value, even though other color names are recognized
+     * keywords as well.
+     *
+     * @return The hex value, or {@link Optional#absent()} if this keyword isn't a basic named color.
+     */
+    public Optional<String> color() {
+        return Optional.fromNullable(color);
     }
 
     /**
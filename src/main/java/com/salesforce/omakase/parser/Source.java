@@ -57,6 +57,9 @@ public final class Source {
     /** the source to process */
     private final char[] chars;
 
+    /** the original source, also shared as a buffer for offset-based content */
+    private final String text;
+
     /** cached length of the source */
     private final int length;
 
@@ -164,7 +167,8 @@ public final class Source {
      *     performance reasons, to avoid extra processing that we know wouldn't be relevant.
      */
     public Source(CharSequence source, int anchorLine, int anchorColumn, boolean checkInString) {
-        this.chars = source.toString().toCharArray();
+        this.text = source.toString();
+        this.chars = text.toCharArray();
         this.length = chars.length;
         this.anchorLine = anchorLine;
         this.anchorColumn = anchorColumn;
@@ -270,11 +274,14 @@ public final class Source {
 
     /**
      * Gets the original source.
+     * <p>
+     * This returns the same shared instance on every call, so it can be used as a buffer for referencing content by offsets
+     * obtained from {@link #index()}.
      *
      * @return The full original source.
      */
     public String fullSource() {
-        return new String(chars);
+        return text;
     }
 
     /**
@@ -574,7 +581,19 @@ public final class Source {
     public String until(Token token) {
         // save the current index so we can return the matched substring
         final int start = index;
+        return new String(chars, start, skipUntil(token).index - start);
+    }
 
+    /**
+     * Same as {@link #until(Token)}, except this doesn't return the matched content. Use {@link #index()} before and after to get
+     * the offsets of the matched content within {@link #fullSource()}.
+     *
+     * @param token
+     *     The token to match.
+     *
+     * @return this, for chaining.
+     */
+    public Source skipUntil(Token token) {
         // keep track whether we are inside parenthesis
         boolean insideParens = false;
 
@@ -590,7 +609,7 @@ public final class Source {
                     insideParens = false;
                 } else if (!insideParens && token.matches(current) && !isEscaped()) {
                     // if unescaped then this is the matching token
-                    return new String(chars, start, index - start);
+                    return this;
                 }
             }
 
@@ -599,8 +618,8 @@ public final class Source {
 
         }
 
-        // closing token wasn't found, so return the substring from the start to the end of the source
-        return new String(chars, start, length - start);
+        // closing token wasn't found, so we are at the end of the source
+        return this;
     }
 
     /**
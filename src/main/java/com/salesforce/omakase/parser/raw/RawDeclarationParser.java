@@ -28,7 +28,6 @@ package com.salesforce.omakase.parser.raw;
 
 import com.google.common.base.Optional;
 import com.salesforce.omakase.Message;
-import com.salesforce.omakase.ast.RawSyntax;
 import com.salesforce.omakase.ast.declaration.Declaration;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.parser.AbstractParser;
@@ -50,34 +49,37 @@ public final class RawDeclarationParser extends AbstractParser {
         // grab our current position before parsing anything
         int line = source.originalLine();
         int column = source.originalColumn();
+        int nameStart = source.index();
 
         Optional<Token> specialToken = refiner.tokenFactory().specialDeclarationBegin();
-        Optional<Character> special = Optional.absent();
 
         if (specialToken.isPresent()) {
-            special = source.optional(specialToken.get());
+            source.optional(specialToken.get());
         }
 
         // read the property name
-        Optional<String> ident = source.readIdent();
-        if (!ident.isPresent()) return false;
-
-        String content = special.isPresent() ? special.get() + ident.get() : ident.get();
-        RawSyntax property = new RawSyntax(line, column, content.trim());
+        if (!source.readIdent().isPresent()) return false;
+        int nameEnd = source.index();
 
         // read colon
         source.skipWhitepace();
         source.expect(refiner.tokenFactory().propertyNameEnd(), Message.MISSING_COLON);
         source.skipWhitepace();
 
-        //read the property value
-        line = source.originalLine();
-        column = source.originalColumn();
-        content = source.until(refiner.tokenFactory().declarationEnd());
-        RawSyntax value = new RawSyntax(line, column, content.trim());
+        // read the property value. only the offsets are kept, the content is read from the shared buffer when needed
+        int valueLine = source.originalLine();
+        int valueColumn = source.originalColumn();
+        String buffer = source.fullSource();
+        int valueStart = source.index();
+        int valueEnd = source.skipUntil(refiner.tokenFactory().declarationEnd()).index();
+
+        // trim the value the same as String#trim
+        while (valueStart < valueEnd && buffer.charAt(valueStart) <= ' ') valueStart++;
+        while (valueEnd > valueStart && buffer.charAt(valueEnd - 1) <= ' ') valueEnd--;
 
         // create the new declaration and associate comments
-        Declaration declaration = new Declaration(property, value, refiner);
+        Declaration declaration = new Declaration(line, column, valueLine, valueColumn, buffer, nameStart, nameEnd, valueStart,
+            valueEnd, refiner);
         declaration.comments(source.flushComments());
 
         // notifier listeners of the new declaration
@@ -34,6 +34,7 @@ import com.salesforce.omakase.ast.atrule.AtRuleBlock;
 import com.salesforce.omakase.ast.atrule.AtRuleExpression;
 import com.salesforce.omakase.ast.declaration.Declaration;
 import com.salesforce.omakase.ast.declaration.GenericFunctionValue;
+import com.salesforce.omakase.ast.declaration.PropertyName;
 import com.salesforce.omakase.ast.declaration.PropertyValue;
 import com.salesforce.omakase.ast.declaration.RawFunction;
 import com.salesforce.omakase.ast.selector.Selector;
@@ -46,9 +47,13 @@ import com.salesforce.omakase.parser.ParserException;
 import com.salesforce.omakase.parser.token.StandardTokenFactory;
 import com.salesforce.omakase.parser.token.TokenFactory;
 import com.salesforce.omakase.plugin.SyntaxPlugin;
+import com.salesforce.omakase.plugin.basic.Metrics;
+import com.salesforce.omakase.plugin.basic.ParseStats;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -71,6 +76,16 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
     private final List<DeclarationRefiner> declarationRefiners = new ArrayList<>();
     private final List<FunctionRefiner> functionRefiners = new ArrayList<>();
 
+    /** optional instrumentation, only set when timing information is requested */
+    private Metrics metrics;
+
+    /** optional statistics, only set when parse statistics are requested */
+    private ParseStats stats;
+
+    /** optional memos of refinement results, keyed by raw content. Only set when memoization is requested */
+    private Map<String, List<SelectorPart>> selectorMemo;
+    private Map<String, PropertyValue> declarationMemo;
+
     /**
      * Creates a new {@link MasterRefiner} instance without a specific {@link Broadcaster} specified.
      * <p>
@@ -145,6 +160,59 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
         return this;
     }
 
+    /**
+     * Specifies the {@link Metrics} instance to record refinement timings with. When not specified (the default) no timing
+     * information is recorded.
+     *
+     * @param metrics
+     *     The {@link Metrics} instance, or null to disable instrumentation.
+     *
+     * @return this, for chaining.
+     */
+    public MasterRefiner metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ParseStats} instance to record declined refinement attempts with. When not specified (the default)
+     * nothing is recorded.
+     *
+     * @param stats
+     *     The {@link ParseStats} instance, or null to disable.
+     *
+     * @return this, for chaining.
+     */
+    public MasterRefiner parseStats(ParseStats stats) {
+        this.stats = stats;
+        return this;
+    }
+
+    /**
+     * Specifies whether to memoize the results of refining {@link Selector}s and {@link Declaration}s. When enabled, each
+     * distinct raw selector and each distinct property name and raw value combination is only refined once. Later occurrences of
+     * the same raw content receive copies of the originally refined {@link SelectorPart}s or {@link PropertyValue}, which are
+     * broadcasted in the same manner as if they were refined normally. This is useful for large stylesheets that repeat the same
+     * selectors and values many times.
+     * <p>
+     * The memo belongs to this {@link MasterRefiner}, so it only applies to the refiners registered here. When enabled, all
+     * registered {@link SelectorRefiner}s and {@link DeclarationRefiner}s must produce the same result for the same raw content.
+     * Units created from the memo do not have source positions (line and column numbers), however the parent selector or
+     * declaration still does. Raw content containing comments or functions is never memoized.
+     * <p>
+     * This is disabled by default.
+     *
+     * @param memoize
+     *     Whether to memoize refinement results.
+     *
+     * @return this, for chaining.
+     */
+    public MasterRefiner memoize(boolean memoize) {
+        selectorMemo = memoize ? new HashMap<String, List<SelectorPart>>() : null;
+        declarationMemo = memoize ? new HashMap<String, PropertyValue>() : null;
+        return this;
+    }
+
     /**
      * Refines an {@link AtRule} object.
      * <p>
@@ -178,6 +246,18 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
      * @return Whether refinement occurred or not.
      */
     public Refinement refine(AtRule atRule, Broadcaster broadcaster) {
+        if (metrics == null) return refineAtRule(atRule, broadcaster);
+
+        long start = System.nanoTime();
+        try {
+            return refineAtRule(atRule, broadcaster);
+        } finally {
+            metrics.refinement(AtRule.class, System.nanoTime() - start);
+        }
+    }
+
+    /** consults each registered refiner in order, then the standard refiner */
+    private Refinement refineAtRule(AtRule atRule, Broadcaster broadcaster) {
         Refinement refinement = Refinement.NONE;
 
         // tru the custom refiners
@@ -187,6 +267,8 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
                 return Refinement.FULL;
             } else if (result == Refinement.PARTIAL) {
                 refinement = Refinement.PARTIAL;
+            } else if (stats != null) {
+                stats.declinedRefinement();
             }
         }
 
@@ -257,6 +339,34 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
      * @return Whether refinement occurred or not.
      */
     public Refinement refine(Selector selector, Broadcaster broadcaster) {
+        if (metrics == null) return refineSelector(selector, broadcaster);
+
+        long start = System.nanoTime();
+        try {
+            return refineSelector(selector, broadcaster);
+        } finally {
+            metrics.refinement(Selector.class, System.nanoTime() - start);
+        }
+    }
+
+    /** consults each registered refiner in order, then the standard refiner */
+    private Refinement refineSelector(Selector selector, Broadcaster broadcaster) {
+        if (selectorMemo != null) {
+            List<SelectorPart> memoized = selectorMemo.get(memoKey(selector));
+            if (memoized != null) {
+                QueuingBroadcaster queue = new QueuingBroadcaster(broadcaster).pause();
+                List<SelectorPart> parts = new ArrayList<>(memoized.size());
+                for (SelectorPart part : memoized) {
+                    SelectorPart copy = part.copy();
+                    copy.propagateBroadcast(queue);
+                    parts.add(copy);
+                }
+                selector.appendAll(parts);
+                queue.resume();
+                return Refinement.FULL;
+            }
+        }
+
         Refinement refinement = Refinement.NONE;
 
         // try the custom refiners
@@ -266,6 +376,8 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
                 return Refinement.FULL;
             } else if (result == Refinement.PARTIAL) {
                 refinement = Refinement.PARTIAL;
+            } else if (stats != null) {
+                stats.declinedRefinement();
             }
         }
 
@@ -286,6 +398,18 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
             // store the parsed selector parts
             selector.appendAll(queryable.filter(SelectorPart.class));
 
+            // remember a copy before anything is broadcasted, as rework may change the parts
+            if (result == Refinement.FULL && selectorMemo != null) {
+                String key = memoKey(selector);
+                if (key != null) {
+                    List<SelectorPart> memoized = new ArrayList<>();
+                    for (SelectorPart part : selector.parts()) {
+                        memoized.add(part.copy());
+                    }
+                    selectorMemo.put(key, memoized);
+                }
+            }
+
             // once they are all added we're good to send them out
             queue.resume();
             return result;
@@ -327,6 +451,30 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
      * @return Whether refinement occurred or not.
      */
     public Refinement refine(Declaration declaration, Broadcaster broadcaster) {
+        if (metrics == null) return refineDeclaration(declaration, broadcaster);
+
+        long start = System.nanoTime();
+        try {
+            return refineDeclaration(declaration, broadcaster);
+        } finally {
+            metrics.refinement(Declaration.class, System.nanoTime() - start);
+        }
+    }
+
+    /** consults each registered refiner in order, then the standard refiner */
+    private Refinement refineDeclaration(Declaration declaration, Broadcaster broadcaster) {
+        if (declarationMemo != null) {
+            PropertyValue memoized = declarationMemo.get(memoKey(declaration));
+            if (memoized != null) {
+                QueuingBroadcaster queue = new QueuingBroadcaster(broadcaster).pause();
+                PropertyValue copy = memoized.copy();
+                copy.propagateBroadcast(queue);
+                declaration.propertyValue(copy);
+                queue.resume();
+                return Refinement.FULL;
+            }
+        }
+
         Refinement refinement = Refinement.NONE;
 
         // try the custom refiners
@@ -336,6 +484,8 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
                 return Refinement.FULL;
             } else if (result == Refinement.PARTIAL) {
                 refinement = Refinement.PARTIAL;
+            } else if (stats != null) {
+                stats.declinedRefinement();
             }
 
         }
@@ -358,6 +508,12 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
             if (!value.isPresent()) throw new ParserException(declaration, Message.BAD_DECLARATION_REFINER, refiner);
             declaration.propertyValue(value.get());
 
+            // remember a copy before anything is broadcasted, as rework may change the value
+            if (result == Refinement.FULL && declarationMemo != null) {
+                String key = memoKey(declaration);
+                if (key != null) declarationMemo.put(key, value.get().copy());
+            }
+
             // everything is linked so send the broadcasts out
             queue.resume();
             return result;
@@ -366,6 +522,27 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
         return Refinement.NONE;
     }
 
+    /** gets the memo key for the selector, or null if it shouldn't be memoized */
+    private static String memoKey(Selector selector) {
+        if (!selector.raw().isPresent()) return null;
+        String raw = selector.raw().get().content();
+        return raw.contains("/*") ? null : raw;
+    }
+
+    /** gets the memo key for the declaration, or null if it shouldn't be memoized */
+    private static String memoKey(Declaration declaration) {
+        // read the content directly, so that no raw syntax object is created for memoized values
+        Optional<String> content = declaration.rawPropertyValueContent();
+        if (!content.isPresent()) return null;
+        String raw = content.get();
+
+        // comments would be lost, and functions are refined (and broadcasted) separately
+        if (raw.contains("/*") || raw.indexOf('(') != -1) return null;
+
+        PropertyName name = declaration.propertyName();
+        return (name.hasStarHack() ? "*" : "") + name.name() + ':' + raw;
+    }
+
     /**
      * Refines a {@link GenericFunctionValue} object.
      * <p>
@@ -395,6 +572,18 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
      * @return Whether refinement occurred or not.
      */
     public Refinement refine(RawFunction raw, Broadcaster broadcaster) {
+        if (metrics == null) return refineFunction(raw, broadcaster);
+
+        long start = System.nanoTime();
+        try {
+            return refineFunction(raw, broadcaster);
+        } finally {
+            metrics.refinement(RawFunction.class, System.nanoTime() - start);
+        }
+    }
+
+    /** consults each registered refiner in order, then the standard refiner */
+    private Refinement refineFunction(RawFunction raw, Broadcaster broadcaster) {
         // try the custom refiners
         for (FunctionRefiner strategy : functionRefiners) {
             Refinement result = strategy.refine(raw, broadcaster, this);
@@ -402,6 +591,8 @@ public final class MasterRefiner implements Refiner, RefinerRegistry {
                 return Refinement.FULL;
             } else if (result == Refinement.PARTIAL) {
                 throw new UnsupportedOperationException("Partial refinement of RawFunctions is not supported");
+            } else if (stats != null) {
+                stats.declinedRefinement();
             }
         }
 
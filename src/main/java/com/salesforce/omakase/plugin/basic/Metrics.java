@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.basic;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.broadcast.emitter.Emitter;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
+import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.util.As;
+import com.salesforce.omakase.writer.StyleWriter;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in instrumentation for a single parsing operation.
+ * <p>
+ * When this plugin is registered, the {@link Emitter} records the time spent in each subscription method (per plugin class,
+ * method and syntax unit type), the {@link MasterRefiner} records the time spent refining each type of refinable unit and the
+ * {@link StyleWriter} records the time spent writing. When this plugin is not registered nothing is recorded and no extra work is
+ * performed.
+ * <p>
+ * Example:
+ * <pre><code>
+ * Metrics metrics = new Metrics();
+ * StyleWriter writer = StyleWriter.compressed();
+ * Omakase.source(input).use(metrics).use(new StandardValidation()).use(writer).process();
+ * String css = writer.write();
+ * System.out.println(metrics.summary());
+ * </code></pre>
+ * <p>
+ * The {@link Metrics} instance can also be retrieved from the {@link PluginRegistry} returned from {@link
+ * Omakase.Request#process()}.
+ * <p>
+ * Times are inclusive. For example, the time for a subscription method includes any refinement that it triggers, as well as any
+ * broadcasts of new units that result from that refinement. Likewise the time spent refining a {@link Declaration} includes the
+ * time spent refining any functions within it.
+ * <p>
+ * Like all plugins, an instance of this class should only be used for a single parsing operation. It is not thread-safe.
+ *
+ * @author nmcwilliams
+ */
+public final class Metrics implements Plugin {
+    private final Map<SubscriptionKey, Timer> subscriptions = new LinkedHashMap<>();
+    private final Map<Class<?>, Timer> broadcasts = new LinkedHashMap<>();
+    private final Map<Class<?>, Timer> refinements = new LinkedHashMap<>();
+    private final Timer writing = new Timer();
+
+    /**
+     * Records the time spent delivering a unit to a single subscription method. Library method - do not call directly.
+     *
+     * @param subscriber
+     *     The object (usually a {@link Plugin}) owning the subscription method.
+     * @param method
+     *     The subscription method.
+     * @param unitType
+     *     The class of the delivered unit.
+     * @param nanos
+     *     Elapsed time, in nanoseconds.
+     */
+    public void subscription(Object subscriber, Method method, Class<?> unitType, long nanos) {
+        SubscriptionKey key = new SubscriptionKey(subscriber.getClass(), method, unitType);
+        Timer timer = subscriptions.get(key);
+        if (timer == null) {
+            timer = new Timer();
+            subscriptions.put(key, timer);
+        }
+        timer.add(nanos);
+    }
+
+    /**
+     * Records the time spent emitting a unit to all of its subscription methods. Library method - do not call directly.
+     *
+     * @param unitType
+     *     The class of the emitted unit.
+     * @param nanos
+     *     Elapsed time, in nanoseconds.
+     */
+    public void broadcast(Class<?> unitType, long nanos) {
+        timer(broadcasts, unitType).add(nanos);
+    }
+
+    /**
+     * Records the time spent refining a unit. Library method - do not call directly.
+     *
+     * @param refinableType
+     *     The type of the refined unit.
+     * @param nanos
+     *     Elapsed time, in nanoseconds.
+     */
+    public void refinement(Class<?> refinableType, long nanos) {
+        timer(refinements, refinableType).add(nanos);
+    }
+
+    /**
+     * Records the time spent writing the stylesheet. Library method - do not call directly.
+     *
+     * @param nanos
+     *     Elapsed time, in nanoseconds.
+     */
+    public void writing(long nanos) {
+        writing.add(nanos);
+    }
+
+    /**
+     * Gets the recorded {@link Timer} for each subscription method, in the order in which each was first invoked.
+     *
+     * @return The timers, keyed by plugin class, method and unit type.
+     */
+    public Map<SubscriptionKey, Timer> subscriptions() {
+        return ImmutableMap.copyOf(subscriptions);
+    }
+
+    /**
+     * Gets the total time spent in the subscription methods of each plugin class, across all methods and unit types.
+     *
+     * @return The timers, keyed by plugin class.
+     */
+    public Map<Class<?>, Timer> plugins() {
+        Map<Class<?>, Timer> plugins = new LinkedHashMap<>();
+        for (Map.Entry<SubscriptionKey, Timer> entry : subscriptions.entrySet()) {
+            timer(plugins, entry.getKey().plugin()).add(entry.getValue());
+        }
+        return ImmutableMap.copyOf(plugins);
+    }
+
+    /**
+     * Gets the recorded {@link Timer} for each type of emitted unit. The count is the number of units of that type that were
+     * emitted (once per phase), and the time is the total time spent in all subscription methods for that type.
+     *
+     * @return The timers, keyed by unit type.
+     */
+    public Map<Class<?>, Timer> broadcasts() {
+        return ImmutableMap.copyOf(broadcasts);
+    }
+
+    /**
+     * Gets the recorded {@link Timer} for each type of refined unit.
+     *
+     * @return The timers, keyed by refinable type.
+     */
+    public Map<Class<?>, Timer> refinements() {
+        return ImmutableMap.copyOf(refinements);
+    }
+
+    /**
+     * Gets the recorded {@link Timer} for writing the stylesheet with the {@link StyleWriter}.
+     *
+     * @return The writing timer.
+     */
+    public Timer writing() {
+        return writing;
+    }
+
+    /**
+     * Gets a human-readable, multi-line summary of all recorded information.
+     *
+     * @return The summary.
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder(512);
+
+        builder.append("plugins:\n");
+        for (Map.Entry<Class<?>, Timer> entry : plugins().entrySet()) {
+            line(builder, entry.getKey().getName(), entry.getValue());
+        }
+
+        builder.append("subscriptions:\n");
+        for (Map.Entry<SubscriptionKey, Timer> entry : subscriptions.entrySet()) {
+            line(builder, entry.getKey().toString(), entry.getValue());
+        }
+
+        builder.append("broadcasts:\n");
+        for (Map.Entry<Class<?>, Timer> entry : broadcasts.entrySet()) {
+            line(builder, entry.getKey().getSimpleName(), entry.getValue());
+        }
+
+        builder.append("refinements:\n");
+        for (Map.Entry<Class<?>, Timer> entry : refinements.entrySet()) {
+            line(builder, entry.getKey().getSimpleName(), entry.getValue());
+        }
+
+        builder.append("writing:\n");
+        line(builder, StyleWriter.class.getSimpleName(), writing);
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return As.string(this)
+            .add("plugins", plugins().size())
+            .add("subscriptions", subscriptions.size())
+            .add("writing", writing)
+            .toString();
+    }
+
+    /** helper to get or create a timer for the given class */
+    private static Timer timer(Map<Class<?>, Timer> map, Class<?> klass) {
+        Timer timer = map.get(klass);
+        if (timer == null) {
+            timer = new Timer();
+            map.put(klass, timer);
+        }
+        return timer;
+    }
+
+    /** helper to append a line to the summary */
+    private static void line(StringBuilder builder, String label, Timer timer) {
+        builder.append("  ").append(label).append(": ").append(timer).append('\n');
+    }
+
+    /** Accumulated invocation count and elapsed time. */
+    public static final class Timer {
+        private long count;
+        private long nanos;
+
+        /**
+         * Adds a single invocation with the given elapsed time.
+         *
+         * @param elapsed
+         *     Elapsed time, in nanoseconds.
+         */
+        void add(long elapsed) {
+            count++;
+            nanos += elapsed;
+        }
+
+        /** adds the totals from another timer */
+        void add(Timer other) {
+            count += other.count;
+            nanos += other.nanos;
+        }
+
+        /**
+         * Gets the number of recorded invocations.
+         *
+         * @return The invocation count.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Gets the total elapsed time across all recorded invocations.
+         *
+         * @return The total time, in nanoseconds.
+         */
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * Gets the total elapsed time across all recorded invocations.
+         *
+         * @return The total time, in milliseconds.
+         */
+        public double millis() {
+            return nanos / (double)TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d in %.3fms", count, millis());
+        }
+    }
+
+    /** Identifies a subscription method by plugin class, method and the type of the unit delivered to it. */
+    public static final class SubscriptionKey {
+        private final Class<?> plugin;
+        private final Method method;
+        private final Class<?> unitType;
+
+        SubscriptionKey(Class<?> plugin, Method method, Class<?> unitType) {
+            this.plugin = plugin;
+            this.method = method;
+            this.unitType = unitType;
+        }
+
+        /**
+         * Gets the class of the plugin owning the subscription method.
+         *
+         * @return The plugin class.
+         */
+        public Class<?> plugin() {
+            return plugin;
+        }
+
+        /**
+         * Gets the subscription method.
+         *
+         * @return The method.
+         */
+        public Method method() {
+            return method;
+        }
+
+        /**
+         * Gets the class of the unit that was delivered to the method. This may be a subtype of the method's parameter type.
+         *
+         * @return The unit type.
+         */
+        public Class<?> unitType() {
+            return unitType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(plugin, method, unitType);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof SubscriptionKey) {
+                SubscriptionKey other = (SubscriptionKey)object;
+                return plugin == other.plugin && method.equals(other.method) && unitType == other.unitType;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return plugin.getName() + "#" + method.getName() + "(" + unitType.getSimpleName() + ")";
+        }
+    }
+}
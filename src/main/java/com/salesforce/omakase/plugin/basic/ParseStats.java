@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.basic;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.Statement;
+import com.salesforce.omakase.ast.StatementIterable;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.broadcast.annotation.Observe;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
+import com.salesforce.omakase.parser.refiner.Refinement;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.PostProcessingPlugin;
+import com.salesforce.omakase.util.As;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects high-level statistics about a single parsing operation.
+ * <p>
+ * This includes the input length, the time spent in each stage of processing (first-level parsing, the process phase, the
+ * validation phase and post-processing), the number of {@link Rule}s, {@link Declaration}s, {@link Selector}s and {@link AtRule}s
+ * created, how many of them ended up refined, how many custom refiner attempts declined to refine a unit, and the largest nesting
+ * depth of statements.
+ * <p>
+ * Example:
+ * <pre><code>
+ * PluginRegistry registry = Omakase.source(input).use(new ParseStats()).use(plugins).process();
+ * ParseStats stats = registry.retrieve(ParseStats.class).get();
+ * System.out.println(stats.inputLength() + " chars in " + stats.totalMillis() + "ms");
+ * </code></pre>
+ * <p>
+ * Unit counts include units added dynamically during rework, as they are counted as they are broadcasted. Refined counts and
+ * nesting depth are determined from the final syntax tree once processing is complete, so units that were destroyed are not
+ * included, and the contents of at-rules that were never refined are not visible.
+ * <p>
+ * Like all plugins, an instance of this class should only be used for a single parsing operation.
+ *
+ * @author nmcwilliams
+ * @see Metrics
+ */
+public final class ParseStats implements DependentPlugin, PostProcessingPlugin {
+    private transient SyntaxTree tree;
+
+    private int inputLength;
+
+    private long parseNanos;
+    private long processNanos;
+    private long validateNanos;
+    private long postProcessNanos;
+
+    private int rules;
+    private int declarations;
+    private int selectors;
+    private int atRules;
+
+    private int refinedDeclarations;
+    private int refinedSelectors;
+    private int refinedAtRules;
+    private int declinedRefinements;
+
+    private int maxDepth;
+
+    @Override
+    public void dependencies(PluginRegistry registry) {
+        tree = registry.require(SyntaxTree.class);
+    }
+
+    /**
+     * Subscription method - do not call directly.
+     *
+     * @param rule
+     *     The rule.
+     */
+    @Observe
+    public void rule(Rule rule) {
+        rules++;
+    }
+
+    /**
+     * Subscription method - do not call directly.
+     *
+     * @param declaration
+     *     The declaration.
+     */
+    @Observe
+    public void declaration(Declaration declaration) {
+        declarations++;
+    }
+
+    /**
+     * Subscription method - do not call directly.
+     *
+     * @param selector
+     *     The selector.
+     */
+    @Observe
+    public void selector(Selector selector) {
+        selectors++;
+    }
+
+    /**
+     * Subscription method - do not call directly.
+     *
+     * @param atRule
+     *     The at-rule.
+     */
+    @Observe
+    public void atRule(AtRule atRule) {
+        atRules++;
+    }
+
+    /**
+     * Records the first-level parsing. Library method - do not call directly.
+     *
+     * @param length
+     *     Number of characters in the source.
+     * @param nanos
+     *     Elapsed time, in nanoseconds.
+     */
+    public void parsed(int length, long nanos) {
+        this.inputLength = length;
+        this.parseNanos = nanos;
+    }
+
+    /**
+     * Records the time spent in each phase after first-level parsing. Library method - do not call directly.
+     *
+     * @param process
+     *     Elapsed time of the process phase (rework and observe), in nanoseconds.
+     * @param validate
+     *     Elapsed time of the validation phase, in nanoseconds.
+     * @param postProcess
+     *     Elapsed time of post-processing, in nanoseconds.
+     */
+    public void phases(long process, long validate, long postProcess) {
+        this.processNanos = process;
+        this.validateNanos = validate;
+        this.postProcessNanos = postProcess;
+    }
+
+    /**
+     * Records that a custom refiner returned {@link Refinement#NONE}. Library method - do not call directly.
+     *
+     * @see MasterRefiner
+     */
+    public void declinedRefinement() {
+        declinedRefinements++;
+    }
+
+    @Override
+    public void postProcess(PluginRegistry registry) {
+        if (tree.stylesheet() != null) {
+            scan(tree.stylesheet(), 1);
+        }
+    }
+
+    /** counts refined units and tracks the nesting depth, without triggering any further refinement */
+    private void scan(StatementIterable parent, int depth) {
+        for (Statement statement : parent.statements()) {
+            if (depth > maxDepth) maxDepth = depth;
+
+            if (statement instanceof Rule) {
+                Rule rule = (Rule)statement;
+                for (Selector selector : rule.selectors()) {
+                    if (selector.isRefined()) refinedSelectors++;
+                }
+                for (Declaration declaration : rule.declarations()) {
+                    if (declaration.isRefined()) refinedDeclarations++;
+                }
+            } else if (statement instanceof AtRule) {
+                AtRule atRule = (AtRule)statement;
+                if (atRule.isRefined()) refinedAtRules++;
+                if (atRule.hasRefinedBlock()) scan(atRule.block().get(), depth + 1);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of characters in the parsed source.
+     *
+     * @return The input length.
+     */
+    public int inputLength() {
+        return inputLength;
+    }
+
+    /**
+     * Gets the time spent in first-level parsing (separating the source into selectors, declarations and at-rules).
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long parseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Gets the time spent in the process phase, i.e., {@link Observe} and {@link Rework} subscription methods, including any refinement they trigger.
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long processNanos() {
+        return processNanos;
+    }
+
+    /**
+     * Gets the time spent in the validation phase.
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long validateNanos() {
+        return validateNanos;
+    }
+
+    /**
+     * Gets the time spent notifying {@link PostProcessingPlugin}s.
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long postProcessNanos() {
+        return postProcessNanos;
+    }
+
+    /**
+     * Gets the total time spent in all stages of {@link Omakase.Request#process()}.
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long totalNanos() {
+        return parseNanos + processNanos + validateNanos + postProcessNanos;
+    }
+
+    /**
+     * Gets the total time spent in all stages of {@link Omakase.Request#process()}.
+     *
+     * @return The elapsed time, in milliseconds.
+     */
+    public double totalMillis() {
+        return totalNanos() / (double)TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Gets the throughput of the whole parsing operation.
+     *
+     * @return The number of source characters processed per second, or 0 if nothing has been recorded.
+     */
+    public double charsPerSecond() {
+        long total = totalNanos();
+        return total == 0 ? 0 : inputLength / (total / (double)TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Gets the number of {@link Rule}s created.
+     *
+     * @return The number of rules.
+     */
+    public int rules() {
+        return rules;
+    }
+
+    /**
+     * Gets the number of {@link Declaration}s created.
+     *
+     * @return The number of declarations.
+     */
+    public int declarations() {
+        return declarations;
+    }
+
+    /**
+     * Gets the number of {@link Selector}s created.
+     *
+     * @return The number of selectors.
+     */
+    public int selectors() {
+        return selectors;
+    }
+
+    /**
+     * Gets the number of {@link AtRule}s created.
+     *
+     * @return The number of at-rules.
+     */
+    public int atRules() {
+        return atRules;
+    }
+
+    /**
+     * Gets the number of {@link Declaration}s in the final syntax tree that are refined.
+     *
+     * @return The number of refined declarations.
+     */
+    public int refinedDeclarations() {
+        return refinedDeclarations;
+    }
+
+    /**
+     * Gets the number of {@link Selector}s in the final syntax tree that are refined.
+     *
+     * @return The number of refined selectors.
+     */
+    public int refinedSelectors() {
+        return refinedSelectors;
+    }
+
+    /**
+     * Gets the number of {@link AtRule}s in the final syntax tree that are refined.
+     *
+     * @return The number of refined at-rules.
+     */
+    public int refinedAtRules() {
+        return refinedAtRules;
+    }
+
+    /**
+     * Gets the number of times a custom (plugin-provided) refiner was consulted but declined to refine the unit.
+     *
+     * @return The number of declined refinement attempts.
+     */
+    public int declinedRefinements() {
+        return declinedRefinements;
+    }
+
+    /**
+     * Gets the largest nesting depth of statements. Top-level statements have a depth of 1, statements directly inside of an
+     * at-rule block (e.g., rules within a media query) have a depth of 2, and so on.
+     *
+     * @return The largest nesting depth, or 0 if there are no statements.
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public String toString() {
+        return As.string(this).fields().toString();
+    }
+}
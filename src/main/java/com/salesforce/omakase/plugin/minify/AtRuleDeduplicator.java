@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.omakase.Message;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.Statement;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.Syntax;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.atrule.FontDescriptor;
+import com.salesforce.omakase.ast.atrule.FontFaceBlock;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.broadcast.annotation.Validate;
+import com.salesforce.omakase.error.ErrorLevel;
+import com.salesforce.omakase.error.ErrorManager;
+import com.salesforce.omakase.parser.refiner.KeyframesRefiner;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.util.Prefixes;
+import com.salesforce.omakase.writer.StyleWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes repeated <code>@keyframes</code> and <code>@font-face</code> at-rules, e.g., when many component stylesheets that each
+ * include the same animations and fonts are concatenated together.
+ * <p>
+ * Keyframes (as refined by {@link KeyframesRefiner}) are identified by the at-rule name, including any prefix, and the keyframes
+ * name. Font faces are identified by the family, style, weight, stretch and unicode-range descriptors. A later at-rule with the
+ * same identity and the same content (compared in a canonical form, e.g., the order of the font descriptors doesn't matter) is
+ * removed.
+ * <p>
+ * A later at-rule with the same identity but different content overrides the earlier one. Both are kept, and the later one is
+ * reported as a {@link ErrorLevel#WARNING} to the {@link ErrorManager} during validation, as this is usually unintended.
+ * <p>
+ * Only top-level at-rules are deduplicated. At-rules with comments are never removed. This automatically refines all at-rules.
+ *
+ * @author nmcwilliams
+ */
+public final class AtRuleDeduplicator implements DependentPlugin {
+    /** font descriptors that distinguish separate faces of the same family */
+    private static final Set<String> FACE_DESCRIPTORS = ImmutableSet.of(
+        "font-family", "font-style", "font-weight", "font-stretch", "unicode-range");
+
+    private static final Joiner JOINER = Joiner.on(';');
+
+    private final StyleWriter writer = StyleWriter.compressed();
+    private final Map<AtRule, String> conflicts = new IdentityHashMap<>();
+
+    @Override
+    public void dependencies(PluginRegistry registry) {
+        registry.require(AutoRefiner.class).atRules();
+    }
+
+    /**
+     * Removes the duplicate at-rules in the stylesheet.
+     *
+     * @param stylesheet
+     *     The stylesheet.
+     */
+    @Rework
+    public void stylesheet(Stylesheet stylesheet) {
+        conflicts.clear();
+
+        // identity -> content of the last at-rule with that identity, in canonical form
+        Map<String, String> index = new HashMap<>();
+
+        for (Statement statement : ImmutableList.copyOf(stylesheet.statements())) {
+            if (!statement.isWritable() || !(statement instanceof AtRule)) continue;
+
+            AtRule atRule = (AtRule)statement;
+            String name = Prefixes.unprefixed(atRule.name());
+
+            String identity;
+            String content;
+            String message;
+
+            if (name.equals("keyframes") && atRule.expression().isPresent() && atRule.hasRefinedBlock()) {
+                String keyframes = writer.writeSingle(atRule.expression().get());
+                identity = atRule.name() + ' ' + keyframes;
+                content = writer.writeSingle(atRule.block().get());
+                message = Message.CONFLICTING_KEYFRAMES.message(keyframes);
+            } else if (atRule.block().orNull() instanceof FontFaceBlock) {
+                FontFaceBlock block = (FontFaceBlock)atRule.block().get();
+                identity = "@font-face " + fontFaceIdentity(block);
+                content = fontFaceContent(block);
+                message = Message.CONFLICTING_FONT_FACE.message(fontFamily(block));
+            } else {
+                continue;
+            }
+
+            String previous = index.put(identity, content);
+            if (previous == null) continue;
+
+            if (!previous.equals(content)) {
+                conflicts.put(atRule, message);
+            } else if (!hasComments(atRule)) {
+                // the same content is already in effect, so this one is redundant
+                atRule.destroy();
+            }
+        }
+    }
+
+    /**
+     * Reports the at-rules that override an earlier at-rule with different content.
+     *
+     * @param atRule
+     *     The at-rule.
+     * @param em
+     *     The error manager.
+     */
+    @Validate
+    public void validate(AtRule atRule, ErrorManager em) {
+        String message = conflicts.get(atRule);
+        if (message != null) {
+            em.report(ErrorLevel.WARNING, atRule, message);
+        }
+    }
+
+    private String fontFaceIdentity(FontFaceBlock block) {
+        List<String> descriptors = new ArrayList<>();
+        for (FontDescriptor descriptor : block.fontDescriptors()) {
+            String property = descriptor.propertyName().name();
+            if (descriptor.isWritable() && FACE_DESCRIPTORS.contains(property)) {
+                descriptors.add(property + ':' + normalize(writer.writeSingle(descriptor.propertyValue())));
+            }
+        }
+        Collections.sort(descriptors);
+        return JOINER.join(descriptors);
+    }
+
+    private String fontFaceContent(FontFaceBlock block) {
+        List<String> descriptors = new ArrayList<>();
+        for (FontDescriptor descriptor : block.fontDescriptors()) {
+            if (descriptor.isWritable()) descriptors.add(writer.writeSingle(descriptor));
+        }
+        Collections.sort(descriptors);
+        return JOINER.join(descriptors);
+    }
+
+    private String fontFamily(FontFaceBlock block) {
+        for (FontDescriptor descriptor : block.fontDescriptors()) {
+            if (descriptor.isProperty("font-family")) return writer.writeSingle(descriptor.propertyValue());
+        }
+        return "";
+    }
+
+    private static String normalize(String value) {
+        return value.replace("\"", "").replace("'", "").toLowerCase();
+    }
+
+    private static boolean hasComments(Syntax syntax) {
+        return !syntax.comments().isEmpty() || !syntax.orphanedComments().isEmpty();
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.declaration.GenericFunctionValue;
+import com.salesforce.omakase.ast.declaration.HexColorValue;
+import com.salesforce.omakase.ast.declaration.KeywordValue;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.data.Keyword;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites color values to their shortest equivalent representation.
+ * <p>
+ * This handles {@link HexColorValue}s (<code>#aabbcc</code> to <code>#abc</code>, <code>#ff0000</code> to <code>red</code>),
+ * named colors (<code>white</code> to <code>#fff</code>), and the <code>rgb</code>, <code>rgba</code>, <code>hsl</code> and
+ * <code>hsla</code> functions when they are fully opaque (<code>rgb(255,0,0)</code> to <code>red</code>). A fully transparent
+ * black becomes <code>transparent</code>. Functions with any other alpha value, or with arguments that can't be computed statically
+ * (such as <code>var()</code> or <code>calc()</code>), are left alone.
+ * <p>
+ * Named colors are only replaced in color-valued properties, since the same words may be used as custom identifiers elsewhere,
+ * e.g., in <code>animation-name</code>. Only the 16 basic named colors (those with a {@link Keyword#color()}, such as
+ * <code>red</code> or <code>navy</code>) are ever replaced or produced. Other named colors (e.g., <code>orange</code> or
+ * <code>rebeccapurple</code>) are left as is, and hex colors are never replaced with them.
+ * <p>
+ * This is intended to be used with {@link com.salesforce.omakase.writer.WriterMode#COMPRESSED} output. This automatically refines
+ * all declarations.
+ *
+ * @author nmcwilliams
+ */
+public final class ColorMinifier implements DependentPlugin {
+    /** named colors that are longer than their hex equivalent */
+    private static final Map<Keyword, String> NAME_TO_HEX = new EnumMap<>(Keyword.class);
+
+    /** (six-digit) hex colors that are longer than their named equivalent */
+    private static final Map<String, String> HEX_TO_NAME = new HashMap<>();
+
+    static {
+        for (Keyword keyword : Keyword.values()) {
+            if (!keyword.color().isPresent()) continue;
+
+            String name = keyword.toString();
+            String full = keyword.color().get();
+            String hex = shorten(full);
+
+            if (name.length() < hex.length() + 1) {
+                HEX_TO_NAME.put(full, name);
+            } else if (hex.length() + 1 < name.length()) {
+                NAME_TO_HEX.put(keyword, hex);
+            }
+        }
+    }
+
+    private static final Set<String> COLOR_SHORTHANDS = ImmutableSet.of(
+        "background", "border", "border-top", "border-right", "border-bottom", "border-left", "border-block", "border-inline",
+        "outline", "box-shadow", "text-shadow", "column-rule", "text-decoration", "text-emphasis", "fill", "stroke");
+
+    private static final Splitter ARGS = Splitter.on(new CharMatcher() {
+        @Override
+        public boolean matches(char c) {
+            return c == ',' || c == '/' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+        }
+    }).omitEmptyStrings();
+
+    @Override
+    public void dependencies(PluginRegistry registry) {
+        registry.require(AutoRefiner.class).declarations();
+    }
+
+    /**
+     * Shortens hex colors.
+     *
+     * @param hex
+     *     The hex color.
+     */
+    @Rework
+    public void hexColor(HexColorValue hex) {
+        String color = hex.color();
+
+        String full = color.length() == 3 ? expand(color) : color;
+        if (full.length() != 6) return;
+
+        String name = HEX_TO_NAME.get(full);
+        if (name != null) {
+            hex.replaceWith(KeywordValue.of(name));
+        } else {
+            String shortened = shorten(full);
+            if (!shortened.equals(color)) {
+                hex.color(shortened);
+            }
+        }
+    }
+
+    /**
+     * Replaces named colors with shorter hex colors.
+     *
+     * @param keyword
+     *     The keyword.
+     */
+    @Rework
+    public void keyword(KeywordValue keyword) {
+        Keyword known = keyword.asKeyword().orNull();
+        if (known == null) return;
+
+        String hex = NAME_TO_HEX.get(known);
+        if (hex == null) return;
+
+        Declaration declaration = keyword.declaration();
+        if (declaration != null && isColorProperty(declaration.propertyName().unprefixed())) {
+            keyword.replaceWith(new HexColorValue(hex, true));
+        }
+    }
+
+    /**
+     * Replaces opaque rgb, rgba, hsl and hsla functions with the equivalent hex or named color.
+     *
+     * @param function
+     *     The function.
+     */
+    @Rework
+    public void function(GenericFunctionValue function) {
+        String name = function.name().toLowerCase();
+        boolean rgb = name.equals("rgb") || name.equals("rgba");
+        boolean hsl = name.equals("hsl") || name.equals("hsla");
+        if (!rgb && !hsl) return;
+
+        List<String> args = ImmutableList.copyOf(ARGS.split(function.args().toLowerCase()));
+        if (args.size() != 3 && args.size() != 4) return;
+
+        try {
+            int[] channels = rgb ? rgbChannels(args) : hslChannels(args);
+            if (channels == null) return;
+
+            double alpha = args.size() == 4 ? alpha(args.get(3)) : 1;
+            if (alpha <= 0 && channels[0] == 0 && channels[1] == 0 && channels[2] == 0) {
+                function.replaceWith(KeywordValue.of("transparent"));
+                return;
+            }
+            if (alpha < 1) return;
+
+            String full = String.format("%02x%02x%02x", channels[0], channels[1], channels[2]);
+            String named = HEX_TO_NAME.get(full);
+            if (named != null) {
+                function.replaceWith(KeywordValue.of(named));
+            } else {
+                function.replaceWith(new HexColorValue(shorten(full), true));
+            }
+        } catch (NumberFormatException e) {
+            // not a static value, e.g., var() or calc(), so leave it alone
+        }
+    }
+
+    private static boolean isColorProperty(String name) {
+        return name.endsWith("color") || COLOR_SHORTHANDS.contains(name);
+    }
+
+    private static int[] rgbChannels(List<String> args) {
+        int[] channels = new int[3];
+        for (int i = 0; i < 3; i++) {
+            String arg = args.get(i);
+            double value = arg.endsWith("%") ? percent(arg) * 255 : Double.parseDouble(arg);
+            channels[i] = clamp(value);
+        }
+        return channels;
+    }
+
+    private static int[] hslChannels(List<String> args) {
+        String hue = args.get(0);
+        if (hue.endsWith("deg")) {
+            hue = hue.substring(0, hue.length() - 3);
+        }
+        if (!args.get(1).endsWith("%") || !args.get(2).endsWith("%")) return null;
+
+        double h = ((Double.parseDouble(hue) % 360) + 360) % 360 / 360;
+        double s = Math.max(0, Math.min(1, percent(args.get(1))));
+        double l = Math.max(0, Math.min(1, percent(args.get(2))));
+
+        double q = l < 0.5 ? l * (1 + s) : l + s - l * s;
+        double p = 2 * l - q;
+
+        return new int[]{
+            clamp(hueToRgb(p, q, h + 1.0 / 3) * 255),
+            clamp(hueToRgb(p, q, h) * 255),
+            clamp(hueToRgb(p, q, h - 1.0 / 3) * 255)
+        };
+    }
+
+    private static double hueToRgb(double p, double q, double t) {
+        if (t < 0) t += 1;
+        if (t > 1) t -= 1;
+        if (t < 1.0 / 6) return p + (q - p) * 6 * t;
+        if (t < 1.0 / 2) return q;
+        if (t < 2.0 / 3) return p + (q - p) * (2.0 / 3 - t) * 6;
+        return p;
+    }
+
+    private static double alpha(String arg) {
+        return arg.endsWith("%") ? percent(arg) : Double.parseDouble(arg);
+    }
+
+    private static double percent(String arg) {
+        return Double.parseDouble(arg.substring(0, arg.length() - 1)) / 100;
+    }
+
+    private static int clamp(double value) {
+        return (int)Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    private static String expand(String color) {
+        char r = color.charAt(0);
+        char g = color.charAt(1);
+        char b = color.charAt(2);
+        return new String(new char[]{r, r, g, g, b, b});
+    }
+
+    /** shortens a six-digit hex color to three digits if possible */
+    private static String shorten(String color) {
+        if (color.charAt(0) == color.charAt(1) && color.charAt(2) == color.charAt(3) && color.charAt(4) == color.charAt(5)) {
+            return new String(new char[]{color.charAt(0), color.charAt(2), color.charAt(4)});
+        }
+        return color;
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.Statement;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.atrule.FontDescriptor;
+import com.salesforce.omakase.ast.atrule.FontFaceBlock;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.util.Prefixes;
+import com.salesforce.omakase.writer.CustomWriter;
+import com.salesforce.omakase.writer.StyleAppendable;
+import com.salesforce.omakase.writer.StyleWriter;
+import com.salesforce.omakase.writer.WriterMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Splits a stylesheet into a critical part, with the rules needed for the first paint, and a deferred part with everything else.
+ * <p>
+ * A {@link Rule} is critical when any of its selectors {@linkplain SelectorInventory#matches(Selector) matches} the given
+ * {@link SelectorInventory}, which should contain the names used by the above-the-fold markup. Both parts are written from the
+ * same syntax tree, using the writers from {@link #critical()} and {@link #deferred()}:
+ * <pre><code>
+ * CriticalCssExtractor extractor = new CriticalCssExtractor(inventory);
+ * Omakase.source(input).use(extractor).process();
+ * String inline = extractor.critical().write();
+ * String linked = extractor.deferred().write();
+ * </code></pre>
+ * Each rule ends up in exactly one of the two parts. <code>@media</code> and <code>@supports</code> at-rules are written in
+ * whichever parts contain some of their inner rules, so they may appear in both. <code>@font-face</code> and
+ * <code>@keyframes</code> at-rules go in the critical part when a critical rule references the font family or animation name,
+ * otherwise they are deferred. <code>@charset</code> is written in both parts, and any other at-rule is deferred.
+ * <p>
+ * This automatically refines all at-rules and the selectors of all rules. The syntax tree must not be changed after processing,
+ * as the split is determined once at the end of processing.
+ *
+ * @author nmcwilliams
+ */
+public final class CriticalCssExtractor implements DependentPlugin {
+    private static final Set<String> CONDITIONAL_AT_RULES = ImmutableSet.of("media", "supports");
+    private static final Splitter TOKENS = Splitter.onPattern("[\\s,]+").omitEmptyStrings();
+
+    private final SelectorInventory inventory;
+    private final StyleWriter critical;
+    private final StyleWriter deferred;
+    private final StyleWriter text = StyleWriter.compressed();
+
+    /** statements written in the critical part (for other than conditional at-rules) */
+    private final Set<Statement> criticalStatements = Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+
+    /**
+     * Creates a new {@link CriticalCssExtractor} instance, writing both parts using {@link WriterMode#COMPRESSED}.
+     *
+     * @param inventory
+     *     The names used by the critical markup.
+     */
+    public CriticalCssExtractor(SelectorInventory inventory) {
+        this(inventory, WriterMode.COMPRESSED);
+    }
+
+    /**
+     * Creates a new {@link CriticalCssExtractor} instance.
+     *
+     * @param inventory
+     *     The names used by the critical markup.
+     * @param mode
+     *     The {@link WriterMode} to use for both parts.
+     */
+    public CriticalCssExtractor(SelectorInventory inventory, WriterMode mode) {
+        this.inventory = checkNotNull(inventory, "inventory cannot be null");
+        this.critical = new StyleWriter(mode);
+        this.deferred = new StyleWriter(mode);
+
+        critical.addCustomWriter(Rule.class, new Filter<Rule>(true));
+        critical.addCustomWriter(AtRule.class, new Filter<AtRule>(true));
+        deferred.addCustomWriter(Rule.class, new Filter<Rule>(false));
+        deferred.addCustomWriter(AtRule.class, new Filter<AtRule>(false));
+    }
+
+    @Override
+    public void dependencies(PluginRegistry registry) {
+        registry.require(AutoRefiner.class).atRules();
+
+        // the writers are only given access to the syntax tree, they aren't registered as plugins of their own
+        critical.dependencies(registry);
+        deferred.dependencies(registry);
+    }
+
+    /**
+     * Gets the writer for the critical part. Don't add custom writers for {@link Rule} or {@link AtRule} to it.
+     *
+     * @return The writer for the critical part.
+     */
+    public StyleWriter critical() {
+        return critical;
+    }
+
+    /**
+     * Gets the writer for the deferred part. Don't add custom writers for {@link Rule} or {@link AtRule} to it.
+     *
+     * @return The writer for the deferred part.
+     */
+    public StyleWriter deferred() {
+        return deferred;
+    }
+
+    /**
+     * Determines which statements are critical.
+     *
+     * @param stylesheet
+     *     The stylesheet.
+     */
+    @Rework
+    public void stylesheet(Stylesheet stylesheet) {
+        criticalStatements.clear();
+
+        List<AtRule> dependencies = new ArrayList<>();
+        Set<String> fonts = new HashSet<>();
+        Set<String> animations = new HashSet<>();
+
+        classify(stylesheet.statements(), dependencies, fonts, animations);
+
+        for (AtRule atRule : dependencies) {
+            String name = Prefixes.unprefixed(atRule.name());
+            if (name.equals("keyframes") ? animations.contains(keyframesName(atRule)) : usesFont(fonts, fontFamily(atRule))) {
+                criticalStatements.add(atRule);
+
+                // keyframe rules go wherever the keyframes go
+                if (name.equals("keyframes") && atRule.hasRefinedBlock()) {
+                    for (Statement inner : atRule.block().get()) {
+                        criticalStatements.add(inner);
+                    }
+                }
+            }
+        }
+    }
+
+    private void classify(Iterable<Statement> statements, List<AtRule> dependencies, Set<String> fonts, Set<String> animations) {
+        for (Statement statement : statements) {
+            if (!statement.isWritable()) continue;
+
+            if (statement instanceof Rule) {
+                Rule rule = (Rule)statement;
+                if (isCritical(rule)) {
+                    criticalStatements.add(rule);
+                    collectReferences(rule, fonts, animations);
+                }
+            } else if (statement instanceof AtRule) {
+                AtRule atRule = (AtRule)statement;
+                String name = Prefixes.unprefixed(atRule.name());
+
+                if (isConditional(atRule)) {
+                    classify(atRule.block().get(), dependencies, fonts, animations);
+                } else if (name.equals("keyframes") || name.equals("font-face")) {
+                    dependencies.add(atRule);
+                } else if (name.equals("charset")) {
+                    criticalStatements.add(atRule);
+                }
+            }
+        }
+    }
+
+    private boolean isCritical(Rule rule) {
+        for (Selector selector : rule.selectors()) {
+            if (selector.isWritable() && inventory.matches(selector)) return true;
+        }
+        return false;
+    }
+
+    /** collects font family names and animation names used in the rule */
+    private void collectReferences(Rule rule, Set<String> fonts, Set<String> animations) {
+        for (Declaration declaration : rule.declarations()) {
+            if (!declaration.isWritable()) continue;
+
+            String property = declaration.propertyName().unprefixed();
+            if (property.equals("font-family") || property.equals("font")) {
+                fonts.add(normalize(text.writeSingle(declaration.propertyValue())));
+            } else if (property.equals("animation") || property.equals("animation-name")) {
+                for (String token : TOKENS.split(text.writeSingle(declaration.propertyValue()))) {
+                    animations.add(token);
+                }
+            }
+        }
+    }
+
+    private String keyframesName(AtRule atRule) {
+        if (atRule.expression().isPresent()) return text.writeSingle(atRule.expression().get());
+        return atRule.rawExpression().isPresent() ? atRule.rawExpression().get().content().trim() : null;
+    }
+
+    private String fontFamily(AtRule atRule) {
+        if (!(atRule.block().orNull() instanceof FontFaceBlock)) return null;
+
+        for (FontDescriptor descriptor : ((FontFaceBlock)atRule.block().get()).fontDescriptors()) {
+            if (descriptor.isProperty("font-family")) return normalize(text.writeSingle(descriptor.propertyValue()));
+        }
+        return null;
+    }
+
+    /** whether any of the font declaration values mention the family (a false positive only means an extra critical font) */
+    private static boolean usesFont(Set<String> fonts, String family) {
+        if (family == null || family.isEmpty()) return false;
+        for (String font : fonts) {
+            if (font.contains(family)) return true;
+        }
+        return false;
+    }
+
+    private static String normalize(String fontValue) {
+        return fontValue.replace("\"", "").replace("'", "").toLowerCase();
+    }
+
+    private static boolean isConditional(AtRule atRule) {
+        return atRule.hasRefinedBlock() && CONDITIONAL_AT_RULES.contains(atRule.name());
+    }
+
+    /** whether the statement should be written in the critical (true) or deferred (false) part */
+    private boolean includes(Statement statement, boolean inCritical) {
+        if (statement instanceof AtRule) {
+            AtRule atRule = (AtRule)statement;
+            if (isConditional(atRule)) {
+                for (Statement inner : atRule.block().get()) {
+                    if (inner.isWritable() && includes(inner, inCritical)) return true;
+                }
+                return false;
+            }
+            if (atRule.name().equals("charset")) return true;
+        }
+        return criticalStatements.contains(statement) == inCritical;
+    }
+
+    /** skips the statements that don't belong in one of the parts */
+    private final class Filter<T extends Statement> implements CustomWriter<T> {
+        private final boolean inCritical;
+
+        Filter(boolean inCritical) {
+            this.inCritical = inCritical;
+        }
+
+        @Override
+        public boolean write(T unit, StyleWriter writer, StyleAppendable appendable) throws IOException {
+            // returning true without writing anything skips the unit
+            return !includes(unit, inCritical);
+        }
+    }
+}
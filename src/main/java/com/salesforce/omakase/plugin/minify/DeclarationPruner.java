@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.declaration.FunctionValue;
+import com.salesforce.omakase.ast.declaration.KeywordValue;
+import com.salesforce.omakase.ast.declaration.NumericalValue;
+import com.salesforce.omakase.ast.declaration.PropertyName;
+import com.salesforce.omakase.ast.declaration.Term;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.data.Property;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes {@link Declaration}s that are overridden by a later declaration of the same property within the same {@link Rule}.
+ * <p>
+ * For example, <code>.a{color:red;margin:0;color:blue}</code> becomes <code>.a{margin:0;color:blue}</code>. An
+ * <code>!important</code> declaration is only overridden by a later <code>!important</code> declaration, and a later
+ * non-important declaration is removed instead.
+ * <p>
+ * Declarations that look like deliberate fallbacks are kept. Two declarations are considered to be a fallback pair when their
+ * values differ in type, e.g., a newer unit, a function or vendor-prefixed keyword (<code>display:-webkit-box;display:flex</code>
+ * or <code>width:100px;width:calc(100% - 10px)</code>). Only known, unprefixed properties without the star hack are considered,
+ * and declarations with comments are left alone.
+ * <p>
+ * This automatically refines all declarations.
+ *
+ * @author nmcwilliams
+ */
+public final class DeclarationPruner implements DependentPlugin {
+    private static final Property[] PROPERTIES = Property.values();
+
+    /** units supported everywhere, which therefore never indicate a fallback */
+    private static final Set<String> BASIC_UNITS = ImmutableSet.of("", "px", "%", "em", "ex", "pt", "pc", "in", "cm", "mm", "deg",
+        "s", "ms");
+
+    /** the last kept declaration of each property in the current rule, by ordinal */
+    private final Declaration[] winners = new Declaration[PROPERTIES.length];
+    private final String[] signatures = new String[PROPERTIES.length];
+    private final List<Property> seen = new ArrayList<>();
+
+    @Override
+    public void dependencies(PluginRegistry registry) {
+        registry.require(AutoRefiner.class).declarations();
+    }
+
+    /**
+     * Removes overridden declarations in the rule.
+     *
+     * @param rule
+     *     The rule.
+     */
+    @Rework
+    public void rule(Rule rule) {
+        if (rule.declarations().size() < 2) return;
+
+        try {
+            for (Declaration declaration : ImmutableList.copyOf(rule.declarations())) {
+                if (!declaration.isWritable() || hasComments(declaration)) continue;
+
+                PropertyName name = declaration.propertyName();
+                if (name.hasStarHack()) continue;
+
+                Property property = name.asProperty().orNull();
+                if (property == null) continue;
+
+                int ordinal = property.ordinal();
+                Declaration winner = winners[ordinal];
+                String signature = signature(declaration);
+
+                if (winner == null) {
+                    seen.add(property);
+                } else if (signature.equals(signatures[ordinal])) {
+                    if (winner.propertyValue().isImportant() && !declaration.propertyValue().isImportant()) {
+                        declaration.destroy();
+                        continue;
+                    }
+                    winner.destroy();
+                }
+
+                winners[ordinal] = declaration;
+                signatures[ordinal] = signature;
+            }
+        } finally {
+            for (Property property : seen) {
+                winners[property.ordinal()] = null;
+                signatures[property.ordinal()] = null;
+            }
+            seen.clear();
+        }
+    }
+
+    private static boolean hasComments(Declaration declaration) {
+        return !declaration.comments().isEmpty() || !declaration.orphanedComments().isEmpty();
+    }
+
+    /** describes the type of each term in the value, so that fallbacks can be distinguished from plain overrides */
+    private static String signature(Declaration declaration) {
+        StringBuilder builder = new StringBuilder(16);
+        for (Term term : declaration.propertyValue().terms()) {
+            if (term instanceof NumericalValue) {
+                String unit = ((NumericalValue)term).unit().or("");
+                builder.append('n').append(BASIC_UNITS.contains(unit) ? "" : unit);
+            } else if (term instanceof KeywordValue) {
+                String keyword = ((KeywordValue)term).keyword();
+                builder.append(keyword.charAt(0) == '-' ? keyword : "k");
+            } else if (term instanceof FunctionValue) {
+                builder.append(((FunctionValue)term).name()).append("()");
+            } else {
+                builder.append(term.getClass().getSimpleName());
+            }
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+}
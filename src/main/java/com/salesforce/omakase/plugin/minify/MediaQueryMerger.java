@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.Statement;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.atrule.AtRuleBlock;
+import com.salesforce.omakase.ast.atrule.AtRuleExpression;
+import com.salesforce.omakase.ast.atrule.FontFaceBlock;
+import com.salesforce.omakase.ast.atrule.GenericAtRuleBlock;
+import com.salesforce.omakase.ast.atrule.MediaQuery;
+import com.salesforce.omakase.ast.atrule.MediaQueryExpression;
+import com.salesforce.omakase.ast.atrule.MediaQueryList;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.util.PropertyRoots;
+import com.salesforce.omakase.writer.StyleWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Merges <code>@media</code> at-rules with equivalent media queries into a single at-rule.
+ * <p>
+ * Media queries are compared in a canonical form, so the order of the queries in the list and the order of the expressions
+ * within each query don't matter, e.g., <code>@media screen and (min-width:10em) and (max-width:20em), print</code> is equivalent
+ * to <code>@media print, screen and (max-width:20em) and (min-width:10em)</code>.
+ * <p>
+ * The contents of a later at-rule are appended to the first equivalent at-rule, which moves them earlier in the stylesheet. By
+ * default this is only done when it is safe for the cascade: nothing in between may declare a property related to one declared
+ * in the moved rules (e.g., <code>margin</code> and <code>margin-top</code>). Use {@link #ignoreCascadeOrder()} to merge all
+ * equivalent at-rules regardless, which is only safe when the rules in those blocks don't compete with other rules.
+ * <p>
+ * Only top-level at-rules are merged. At-rules with comments, or with unknown content in between, are left alone. This
+ * automatically refines all at-rules.
+ *
+ * @author nmcwilliams
+ */
+public final class MediaQueryMerger implements DependentPlugin {
+    private final StyleWriter writer = StyleWriter.compressed();
+    private boolean ignoreCascadeOrder;
+
+    /**
+     * Merges all equivalent media at-rules, even when it may change which declarations win in the cascade.
+     *
+     * @return this, for chaining.
+     */
+    public MediaQueryMerger ignoreCascadeOrder() {
+        this.ignoreCascadeOrder = true;
+        return this;
+    }
+
+    @Override
+    public void dependencies(PluginRegistry registry) {
+        registry.require(AutoRefiner.class).atRules();
+    }
+
+    /**
+     * Merges the media at-rules in the stylesheet.
+     *
+     * @param stylesheet
+     *     The stylesheet.
+     */
+    @Rework
+    public void stylesheet(Stylesheet stylesheet) {
+        Map<String, Target> targets = new HashMap<>();
+        Map<String, Integer> lastSeen = new HashMap<>();
+        int lastAny = -1; // the last statement with any declarations
+        int lastBarrier = -1; // the last statement with unknown content or an 'all' declaration
+
+        int index = -1;
+        for (Statement statement : ImmutableList.copyOf(stylesheet.statements())) {
+            index++;
+            if (!statement.isWritable()) continue;
+
+            Set<String> roots = new HashSet<>();
+            boolean known = collectRoots(statement, roots);
+
+            String key = statement instanceof AtRule ? key((AtRule)statement) : null;
+            if (key != null) {
+                Target target = targets.get(key);
+
+                boolean safe = known && target != null && canMoveTo(target.index, roots, lastSeen, lastAny, lastBarrier);
+                if (target != null && (ignoreCascadeOrder || safe)) {
+                    GenericAtRuleBlock block = (GenericAtRuleBlock)((AtRule)statement).block().get();
+                    target.block.statements().appendAll(ImmutableList.copyOf(block.statements()));
+                    statement.destroy();
+
+                    // the declarations now live in the target
+                    for (String root : roots) {
+                        Integer seen = lastSeen.get(root);
+                        lastSeen.put(root, seen == null ? target.index : Math.max(seen, target.index));
+                    }
+                    continue;
+                }
+
+                targets.put(key, new Target(index, (GenericAtRuleBlock)((AtRule)statement).block().get()));
+            }
+
+            if (!known || roots.contains("all")) {
+                lastBarrier = index;
+            }
+            if (!roots.isEmpty()) {
+                lastAny = index;
+            }
+            for (String root : roots) {
+                lastSeen.put(root, index);
+            }
+        }
+    }
+
+    private static boolean canMoveTo(int target, Set<String> roots, Map<String, Integer> lastSeen, int lastAny, int lastBarrier) {
+        if (lastBarrier > target) return false;
+        if (roots.contains("all")) return lastAny <= target;
+
+        for (String root : roots) {
+            Integer seen = lastSeen.get(root);
+            if (seen != null && seen > target) return false;
+        }
+        return true;
+    }
+
+    /** collects the property roots declared in the statement, returning false if the content isn't known */
+    private static boolean collectRoots(Statement statement, Set<String> roots) {
+        if (statement instanceof Rule) {
+            for (Declaration declaration : ((Rule)statement).declarations()) {
+                if (declaration.isWritable()) {
+                    roots.add(PropertyRoots.root(declaration.unprefixedPropertyName()));
+                }
+            }
+            return true;
+        }
+
+        if (statement instanceof AtRule) {
+            AtRule atRule = (AtRule)statement;
+            if (atRule.block().isPresent()) {
+                AtRuleBlock block = atRule.block().get();
+                if (block instanceof FontFaceBlock) return true;
+
+                boolean known = true;
+                for (Statement inner : block) {
+                    known &= collectRoots(inner, roots);
+                }
+                return known;
+            }
+
+            // unrefined, or without a block at all (e.g., @import)
+            return !atRule.rawBlock().isPresent() || atRule.name().endsWith("keyframes") || atRule.name().equals("page");
+        }
+
+        return false;
+    }
+
+    /** gets the canonical form of the media query list, or null if this isn't a mergeable media at-rule */
+    private String key(AtRule atRule) {
+        if (!atRule.name().equalsIgnoreCase("media")) return null;
+        if (!atRule.comments().isEmpty() || !atRule.orphanedComments().isEmpty()) return null;
+        if (!atRule.hasRefinedExpression() || !(atRule.block().orNull() instanceof GenericAtRuleBlock)) return null;
+
+        AtRuleExpression expression = atRule.expression().get();
+        if (!(expression instanceof MediaQueryList)) return null;
+
+        Set<String> queries = new TreeSet<>();
+        for (MediaQuery query : ((MediaQueryList)expression).queries()) {
+            if (!query.isWritable()) continue;
+
+            StringBuilder builder = new StringBuilder(32);
+            if (query.restriction().isPresent()) {
+                builder.append(writer.writeSingle(query.restriction().get())).append(' ');
+            }
+            String type = query.type().or("all");
+            if (!type.equals("all") || query.restriction().isPresent()) {
+                builder.append(type);
+            }
+
+            List<String> expressions = new ArrayList<>();
+            for (MediaQueryExpression queryExpression : query.expressions()) {
+                if (queryExpression.isWritable()) {
+                    expressions.add(writer.writeSingle(queryExpression));
+                }
+            }
+            Joiner.on('&').appendTo(builder.append('|'), Ordering.natural().sortedCopy(expressions));
+
+            queries.add(builder.toString().toLowerCase());
+        }
+
+        return queries.isEmpty() ? null : Joiner.on(',').join(queries);
+    }
+
+    /** the first media at-rule with a particular query that can still receive statements */
+    private static final class Target {
+        final int index;
+        final GenericAtRuleBlock block;
+
+        Target(int index, GenericAtRuleBlock block) {
+            this.index = index;
+            this.block = block;
+        }
+    }
+}
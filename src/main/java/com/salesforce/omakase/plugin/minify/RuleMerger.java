@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.Statement;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.Syntax;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.util.PropertyRoots;
+import com.salesforce.omakase.writer.StyleWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges {@link Rule}s that are redundant with each other.
+ * <p>
+ * Two kinds of merges are made:
+ * <ol>
+ * <li>Adjacent rules with identical selectors are combined into one rule, e.g., <code>.a{color:red} .a{margin:0}</code> becomes
+ * <code>.a{color:red;margin:0}</code>.</li>
+ * <li>Rules with identical declarations are combined into one selector group, e.g., <code>.a{color:red} .b{margin:0}
+ * .c{color:red}</code> becomes <code>.a,.c{color:red} .b{margin:0}</code>. This is only done when no rule in between declares
+ * anything that may override the same properties, so that cascade order is preserved.</li>
+ * </ol>
+ * <p>
+ * Rules are compared by their compressed output and unrefined property names, so declarations aren't refined. Each rule is
+ * written and hashed once, which keeps the work linear in the number of rules. Rules inside of <code>@media</code> and
+ * <code>@supports</code> blocks are merged with each other as well, but never across the at-rule boundary. Any other at-rule acts
+ * as a barrier.
+ * <p>
+ * Rules with comments are left alone, since comments may contain {@link com.salesforce.omakase.ast.CssAnnotation}s. A browser
+ * drops the whole rule when it doesn't understand one of the selectors, so rules with pseudo-classes or pseudo-elements other
+ * than a small set supported by all browsers (e.g., <code>:hover</code>, <code>:first-child</code> or <code>::before</code>)
+ * are never grouped with other selectors. This includes vendor-prefixed pseudo selectors (e.g., <code>::-moz-selection</code>)
+ * and newer ones such as <code>:focus-within</code>, <code>:is()</code>, <code>:has()</code> or <code>::backdrop</code>.
+ * <p>
+ * This plugin runs after all other rework, so it doesn't matter in which order it is registered.
+ *
+ * @author nmcwilliams
+ */
+public final class RuleMerger implements Plugin {
+    private static final Set<String> CONDITIONAL_AT_RULES = ImmutableSet.of("media", "supports");
+
+    /** pseudo-classes and pseudo-elements that all browsers understand, so selectors using them are safe to group */
+    private static final Set<String> SAFE_PSEUDOS = ImmutableSet.of(
+        "link", "visited", "hover", "active", "focus", "target", "lang", "root", "empty", "enabled", "disabled", "checked",
+        "first-child", "last-child", "only-child", "first-of-type", "last-of-type", "only-of-type", "nth-child",
+        "nth-last-child", "nth-of-type", "nth-last-of-type", "not", "before", "after", "first-line", "first-letter");
+
+    private final StyleWriter writer = StyleWriter.compressed();
+
+    /**
+     * Merges rules in the stylesheet and within conditional at-rules.
+     *
+     * @param stylesheet
+     *     The stylesheet.
+     */
+    @Rework
+    public void stylesheet(Stylesheet stylesheet) {
+        merge(stylesheet.statements());
+    }
+
+    private void merge(Iterable<Statement> statements) {
+        List<Entry> entries = new ArrayList<>();
+
+        // merge adjacent rules with the same selectors
+        Entry previous = null;
+        for (Statement statement : ImmutableList.copyOf(statements)) {
+            if (!statement.isWritable()) continue;
+
+            if (statement instanceof Rule) {
+                Entry entry = entry((Rule)statement);
+                if (entry == null) {
+                    entries.add(null);
+                    previous = null;
+                } else if (previous != null && previous.selectors.equals(entry.selectors)) {
+                    if (!previous.block.equals(entry.block)) {
+                        previous.rule.declarations().appendAll(ImmutableList.copyOf(entry.rule.declarations()));
+                        previous.block = join(previous.block, entry.block);
+                        previous.roots.addAll(entry.roots);
+                        previous.barrier |= entry.barrier;
+                    }
+                    entry.rule.destroy();
+                } else {
+                    entries.add(entry);
+                    previous = entry;
+                }
+            } else {
+                if (statement instanceof AtRule) {
+                    AtRule atRule = (AtRule)statement;
+                    if (atRule.hasRefinedBlock() && CONDITIONAL_AT_RULES.contains(atRule.name())) {
+                        merge(atRule.block().get());
+                    }
+                }
+                entries.add(null);
+                previous = null;
+            }
+        }
+
+        // merge rules with the same declarations, as long as nothing in between could override them
+        Map<String, Integer> candidates = new HashMap<>();
+        Map<String, Integer> lastSeen = new HashMap<>();
+
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+
+            if (entry == null || entry.barrier) {
+                candidates.clear();
+                lastSeen.clear();
+                continue;
+            }
+
+            Integer candidate = entry.ungroupable ? null : candidates.get(entry.block);
+            if (candidate != null && isUnobstructed(entry, candidate, lastSeen)) {
+                Entry target = entries.get(candidate);
+                for (Selector selector : ImmutableList.copyOf(entry.rule.selectors())) {
+                    if (target.selectorSet.add(writer.writeSingle(selector))) {
+                        target.rule.selectors().append(selector);
+                    }
+                }
+                entry.rule.destroy();
+                continue;
+            }
+
+            if (!entry.ungroupable) {
+                candidates.put(entry.block, i);
+            }
+            for (String root : entry.roots) {
+                lastSeen.put(root, i);
+            }
+        }
+    }
+
+    /** checks that no rule after the candidate declares a property related to one in the given entry */
+    private static boolean isUnobstructed(Entry entry, int candidate, Map<String, Integer> lastSeen) {
+        for (String root : entry.roots) {
+            Integer index = lastSeen.get(root);
+            if (index != null && index != candidate) return false;
+        }
+        return true;
+    }
+
+    /** returns null if the rule shouldn't be touched */
+    private Entry entry(Rule rule) {
+        if (hasComments(rule)) return null;
+
+        Entry entry = new Entry(rule);
+        StringBuilder builder = new StringBuilder(64);
+
+        for (Selector selector : rule.selectors()) {
+            if (!selector.isWritable()) continue;
+            if (hasComments(selector)) return null;
+
+            String selectorKey = writer.writeSingle(selector);
+            if (!isSafeToGroup(selectorKey)) {
+                entry.ungroupable = true;
+            }
+
+            entry.selectorSet.add(selectorKey);
+            if (builder.length() > 0) builder.append(',');
+            builder.append(selectorKey);
+        }
+        entry.selectors = builder.toString();
+
+        builder.setLength(0);
+        for (Declaration declaration : rule.declarations()) {
+            if (!declaration.isWritable()) continue;
+            if (hasComments(declaration)) return null;
+
+            if (builder.length() > 0) builder.append(';');
+            builder.append(writer.writeSingle(declaration));
+
+            String root = PropertyRoots.root(declaration.unprefixedPropertyName());
+            if (root.equals("all")) {
+                entry.barrier = true;
+            }
+            entry.roots.add(root);
+        }
+        entry.block = builder.toString();
+
+        return entry;
+    }
+
+    /**
+     * checks that every pseudo-class and pseudo-element in the given (written) selector is in {@link #SAFE_PSEUDOS}, and that
+     * functional ones only use arguments from before selectors level 4. Anything that can't be read is considered unsafe.
+     */
+    private static boolean isSafeToGroup(String selector) {
+        int length = selector.length();
+        for (int i = 0; i < length; i++) {
+            char c = selector.charAt(i);
+            if (c == '\\') {
+                i++; // escaped character, e.g., in a class name
+            } else if (c == '\'' || c == '"') {
+                int end = selector.indexOf(c, i + 1);
+                if (end == -1) return false;
+                i = end;
+            } else if (c == ':') {
+                int start = i + 1 < length && selector.charAt(i + 1) == ':' ? i + 2 : i + 1;
+                int end = start;
+                while (end < length && isNameChar(selector.charAt(end))) end++;
+
+                String name = selector.substring(start, end).toLowerCase();
+                if (!SAFE_PSEUDOS.contains(name)) return false;
+
+                if (end < length && selector.charAt(end) == '(') {
+                    int close = selector.indexOf(')', end);
+                    if (close == -1) return false;
+                    String args = selector.substring(end + 1, close);
+                    if (name.equals("not") ? !isSimpleArgument(args) : args.contains(" of ")) return false;
+                    end = close + 1;
+                }
+                i = end - 1;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    /** level 3 only allows a single simple selector within <code>:not()</code> */
+    private static boolean isSimpleArgument(String args) {
+        return CharMatcher.anyOf(" ,>+~(:").matchesNoneOf(args);
+    }
+
+    private static String join(String block, String other) {
+        if (block.isEmpty()) return other;
+        if (other.isEmpty()) return block;
+        return block + ';' + other;
+    }
+
+    private static boolean hasComments(Syntax syntax) {
+        return !syntax.comments().isEmpty() || !syntax.orphanedComments().isEmpty();
+    }
+
+    /** information about a rule being considered for merging */
+    private static final class Entry {
+        final Rule rule;
+        final Set<String> selectorSet = new HashSet<>();
+        final Set<String> roots = new HashSet<>();
+        String selectors;
+        String block;
+        boolean ungroupable;
+        boolean barrier;
+
+        Entry(Rule rule) {
+            this.rule = rule;
+        }
+    }
+}
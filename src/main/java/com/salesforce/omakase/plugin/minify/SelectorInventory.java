@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.collect.Iterables;
+import com.salesforce.omakase.ast.selector.ClassSelector;
+import com.salesforce.omakase.ast.selector.IdSelector;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.ast.selector.SelectorPart;
+import com.salesforce.omakase.ast.selector.TypeSelector;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The class names, ids and element names known to be used by some markup, for determining which {@link Selector}s can match.
+ * <p>
+ * Each kind of name is only checked if it was specified, e.g., if no element names are given then any type selector is assumed
+ * to match. Class names and ids are case-sensitive, element names are not.
+ * <pre><code>
+ * SelectorInventory inventory = new SelectorInventory().classes("button", "icon").ids("main");
+ * </code></pre>
+ *
+ * @author nmcwilliams
+ * @see UnusedSelectorPruner
+ * @see CriticalCssExtractor
+ */
+public final class SelectorInventory {
+    private Set<String> classes;
+    private Set<String> ids;
+    private Set<String> elements;
+
+    /**
+     * Adds class names (without the '.') to the inventory.
+     *
+     * @param names
+     *     The class names.
+     *
+     * @return this, for chaining.
+     */
+    public SelectorInventory classes(String... names) {
+        return classes(Arrays.asList(names));
+    }
+
+    /**
+     * Adds class names (without the '.') to the inventory.
+     *
+     * @param names
+     *     The class names.
+     *
+     * @return this, for chaining.
+     */
+    public SelectorInventory classes(Iterable<String> names) {
+        if (classes == null) classes = new HashSet<>();
+        Iterables.addAll(classes, names);
+        return this;
+    }
+
+    /**
+     * Adds ids (without the '#') to the inventory.
+     *
+     * @param names
+     *     The ids.
+     *
+     * @return this, for chaining.
+     */
+    public SelectorInventory ids(String... names) {
+        return ids(Arrays.asList(names));
+    }
+
+    /**
+     * Adds ids (without the '#') to the inventory.
+     *
+     * @param names
+     *     The ids.
+     *
+     * @return this, for chaining.
+     */
+    public SelectorInventory ids(Iterable<String> names) {
+        if (ids == null) ids = new HashSet<>();
+        Iterables.addAll(ids, names);
+        return this;
+    }
+
+    /**
+     * Adds element names to the inventory.
+     *
+     * @param names
+     *     The element names.
+     *
+     * @return this, for chaining.
+     */
+    public SelectorInventory elements(String... names) {
+        return elements(Arrays.asList(names));
+    }
+
+    /**
+     * Adds element names to the inventory.
+     *
+     * @param names
+     *     The element names.
+     *
+     * @return this, for chaining.
+     */
+    public SelectorInventory elements(Iterable<String> names) {
+        if (elements == null) elements = new HashSet<>();
+        for (String name : names) {
+            elements.add(name.toLowerCase());
+        }
+        return this;
+    }
+
+    /**
+     * Gets whether any names have been specified.
+     *
+     * @return True if no kind of name has been specified, in which case every selector matches.
+     */
+    public boolean isEmpty() {
+        return classes == null && ids == null && elements == null;
+    }
+
+    /**
+     * Gets whether the given selector may match, i.e., every {@link ClassSelector}, {@link IdSelector} and {@link TypeSelector}
+     * within it is in the inventory. The selector is refined if necessary.
+     * <p>
+     * This is a single pass over the selector parts with a hash lookup for each relevant part.
+     *
+     * @param selector
+     *     The selector.
+     *
+     * @return True if the selector may match.
+     */
+    public boolean matches(Selector selector) {
+        for (SelectorPart part : selector.refine().parts()) {
+            if (part instanceof ClassSelector) {
+                if (classes != null && !classes.contains(((ClassSelector)part).name())) return false;
+            } else if (part instanceof IdSelector) {
+                if (ids != null && !ids.contains(((IdSelector)part).name())) return false;
+            } else if (part instanceof TypeSelector) {
+                if (elements != null && !elements.contains(((TypeSelector)part).name().toLowerCase())) return false;
+            }
+        }
+        return true;
+    }
+}
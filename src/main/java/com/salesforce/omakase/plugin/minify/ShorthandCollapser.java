@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.declaration.OperatorType;
+import com.salesforce.omakase.ast.declaration.PropertyName;
+import com.salesforce.omakase.ast.declaration.PropertyValue;
+import com.salesforce.omakase.ast.declaration.Term;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.data.Property;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.writer.StyleWriter;
+
+import java.util.Set;
+
+/**
+ * Replaces complete sets of longhand {@link Declaration}s with the equivalent shorthand.
+ * <p>
+ * For example, <code>.a{margin-top:0;margin-right:1px;margin-bottom:0;margin-left:1px}</code> becomes
+ * <code>.a{margin:0 1px}</code>. The shorthand value is reduced to the fewest terms possible, e.g., <code>1px 2px 1px 2px</code>
+ * becomes <code>1px 2px</code>.
+ * <p>
+ * This handles <code>margin</code>, <code>padding</code>, <code>border-width</code>, <code>border-style</code>,
+ * <code>border-color</code> and <code>border-radius</code>. The <code>border</code> and <code>background</code> shorthands are not
+ * generated, as they also reset properties (such as <code>border-image</code> or <code>background-origin</code>) that usually
+ * aren't specified in the longhands.
+ * <p>
+ * A set is only collapsed when all four longhands appear exactly once in the rule with the same importance and a single term
+ * each, none of them have comments, and no other declaration in the rule (such as the shorthand itself, <code>border-top</code>
+ * or <code>margin-inline-start</code>) could interact with them. The shorthand takes the place of the first longhand.
+ * <p>
+ * This automatically refines all declarations.
+ *
+ * @author nmcwilliams
+ */
+public final class ShorthandCollapser implements DependentPlugin {
+    private static final Set<String> RESETTING_KEYWORDS = ImmutableSet.of("inherit", "initial", "unset", "revert");
+
+    private final StyleWriter writer = StyleWriter.compressed();
+
+    @Override
+    public void dependencies(PluginRegistry registry) {
+        registry.require(AutoRefiner.class).declarations();
+    }
+
+    /**
+     * Collapses longhand declarations in the rule.
+     *
+     * @param rule
+     *     The rule.
+     */
+    @Rework
+    public void rule(Rule rule) {
+        if (rule.declarations().size() < 4) return;
+
+        Group[] groups = Group.values();
+        Declaration[][] found = new Declaration[groups.length][];
+        boolean[] blocked = new boolean[groups.length];
+
+        for (Declaration declaration : rule.declarations()) {
+            if (!declaration.isWritable()) continue;
+
+            String name = declaration.propertyName().unprefixed();
+            for (int g = 0; g < groups.length; g++) {
+                if (blocked[g]) continue;
+
+                Group group = groups[g];
+                int index = group.indexOf(name);
+
+                if (index == -1) {
+                    blocked[g] = group.interactsWith(name);
+                } else if (!isCandidate(declaration)) {
+                    blocked[g] = true;
+                } else {
+                    if (found[g] == null) {
+                        found[g] = new Declaration[4];
+                    }
+                    if (found[g][index] != null) {
+                        blocked[g] = true; // duplicates, which is out of scope here
+                    } else {
+                        found[g][index] = declaration;
+                    }
+                }
+            }
+        }
+
+        for (int g = 0; g < groups.length; g++) {
+            if (!blocked[g] && found[g] != null) {
+                collapse(groups[g], found[g]);
+            }
+        }
+    }
+
+    private void collapse(Group group, Declaration[] longhands) {
+        boolean important = false;
+        Term[] terms = new Term[4];
+        String[] keys = new String[4];
+        Declaration first = null;
+
+        for (int i = 0; i < 4; i++) {
+            Declaration declaration = longhands[i];
+            if (declaration == null) return;
+
+            if (i == 0) {
+                important = declaration.propertyValue().isImportant();
+            } else if (declaration.propertyValue().isImportant() != important) {
+                return;
+            }
+
+            terms[i] = declaration.propertyValue().terms().get(0);
+            keys[i] = writer.writeSingle(terms[i]);
+
+            if (RESETTING_KEYWORDS.contains(keys[i].toLowerCase()) || keys[i].contains("var(")) return;
+
+            if (first == null || isBefore(declaration, first)) {
+                first = declaration;
+            }
+        }
+
+        // reduce the number of terms, e.g., "1px 2px 1px 2px" to "1px 2px"
+        int count = 4;
+        if (keys[3].equals(keys[1])) {
+            count = 3;
+            if (keys[2].equals(keys[0])) {
+                count = 2;
+                if (keys[1].equals(keys[0])) {
+                    count = 1;
+                }
+            }
+        }
+
+        Term[] copies = new Term[count];
+        for (int i = 0; i < count; i++) {
+            copies[i] = terms[i].copy();
+        }
+
+        PropertyValue value = PropertyValue.ofTerms(OperatorType.SPACE, copies).important(important);
+        Declaration shorthand = new Declaration(group.shorthand, value);
+
+        first.prepend(shorthand);
+        for (Declaration longhand : longhands) {
+            longhand.destroy();
+        }
+    }
+
+    private static boolean isCandidate(Declaration declaration) {
+        PropertyName name = declaration.propertyName();
+        return !name.isPrefixed()
+            && !name.hasStarHack()
+            && declaration.comments().isEmpty()
+            && declaration.orphanedComments().isEmpty()
+            && declaration.propertyValue().members().size() == 1;
+    }
+
+    private static boolean isBefore(Declaration declaration, Declaration other) {
+        for (Declaration next = declaration.next().orNull(); next != null; next = next.next().orNull()) {
+            if (next == other) return true;
+        }
+        return false;
+    }
+
+    /** the shorthands that can be generated, with their longhands in the order of the shorthand's terms */
+    private enum Group {
+        MARGIN(Property.MARGIN, null,
+            Property.MARGIN_TOP, Property.MARGIN_RIGHT, Property.MARGIN_BOTTOM, Property.MARGIN_LEFT),
+        PADDING(Property.PADDING, null,
+            Property.PADDING_TOP, Property.PADDING_RIGHT, Property.PADDING_BOTTOM, Property.PADDING_LEFT),
+        BORDER_WIDTH(Property.BORDER_WIDTH, "-width",
+            Property.BORDER_TOP_WIDTH, Property.BORDER_RIGHT_WIDTH, Property.BORDER_BOTTOM_WIDTH, Property.BORDER_LEFT_WIDTH),
+        BORDER_STYLE(Property.BORDER_STYLE, "-style",
+            Property.BORDER_TOP_STYLE, Property.BORDER_RIGHT_STYLE, Property.BORDER_BOTTOM_STYLE, Property.BORDER_LEFT_STYLE),
+        BORDER_COLOR(Property.BORDER_COLOR, "-color",
+            Property.BORDER_TOP_COLOR, Property.BORDER_RIGHT_COLOR, Property.BORDER_BOTTOM_COLOR, Property.BORDER_LEFT_COLOR),
+        BORDER_RADIUS(Property.BORDER_RADIUS, "-radius",
+            Property.BORDER_TOP_LEFT_RADIUS, Property.BORDER_TOP_RIGHT_RADIUS, Property.BORDER_BOTTOM_RIGHT_RADIUS,
+            Property.BORDER_BOTTOM_LEFT_RADIUS);
+
+        private static final Set<String> BORDER_SHORTHANDS = ImmutableSet.of(
+            "border", "border-top", "border-right", "border-bottom", "border-left");
+
+        final Property shorthand;
+        final String prefix;
+        final String suffix;
+        final String[] longhands;
+
+        Group(Property shorthand, String suffix, Property... longhands) {
+            this.shorthand = shorthand;
+            this.suffix = suffix;
+            this.prefix = suffix == null ? shorthand.toString() : "border";
+            this.longhands = new String[longhands.length];
+            for (int i = 0; i < longhands.length; i++) {
+                this.longhands[i] = longhands[i].toString();
+            }
+        }
+
+        int indexOf(String name) {
+            for (int i = 0; i < longhands.length; i++) {
+                if (longhands[i].equals(name)) return i;
+            }
+            return -1;
+        }
+
+        /** whether a declaration of the given (non-longhand) property may conflict with the longhands */
+        boolean interactsWith(String name) {
+            if (!name.startsWith(prefix)) return false;
+            if (suffix == null) return true;
+            return name.endsWith(suffix)
+                || BORDER_SHORTHANDS.contains(name)
+                || name.startsWith("border-block")
+                || name.startsWith("border-inline");
+        }
+    }
+}
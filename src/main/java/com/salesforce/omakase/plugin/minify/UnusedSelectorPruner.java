@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.collect.ImmutableList;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.plugin.Plugin;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Removes {@link Selector}s that can never match, based on a known inventory of the class names, ids and element names that are
+ * used by the markup.
+ * <p>
+ * A selector is removed when it doesn't {@linkplain SelectorInventory#matches(Selector) match} the {@link SelectorInventory}.
+ * {@link Rule}s left without any selectors are removed as well. Each kind of inventory is only checked if it was specified, e.g.,
+ * if no element names are given then type selectors are never considered unused:
+ * <pre><code>
+ * UnusedSelectorPruner pruner = new UnusedSelectorPruner().classes("button", "icon").ids("main");
+ * Omakase.source(input).use(pruner).process();
+ * </code></pre>
+ * An existing {@link SelectorInventory} can be given to the constructor instead, e.g., to share it with a {@link
+ * CriticalCssExtractor}. Keyframe selectors are ignored. This automatically refines selectors of all rules.
+ *
+ * @author nmcwilliams
+ */
+public final class UnusedSelectorPruner implements Plugin {
+    private final SelectorInventory inventory;
+
+    /** Creates a new {@link UnusedSelectorPruner} instance with an empty inventory. */
+    public UnusedSelectorPruner() {
+        this(new SelectorInventory());
+    }
+
+    /**
+     * Creates a new {@link UnusedSelectorPruner} instance using the given inventory. Names added to this pruner are added to the
+     * given inventory.
+     *
+     * @param inventory
+     *     The names used by the markup.
+     */
+    public UnusedSelectorPruner(SelectorInventory inventory) {
+        this.inventory = checkNotNull(inventory, "inventory cannot be null");
+    }
+
+    /**
+     * Adds class names (without the '.') to the inventory.
+     *
+     * @param names
+     *     The class names.
+     *
+     * @return this, for chaining.
+     */
+    public UnusedSelectorPruner classes(String... names) {
+        inventory.classes(names);
+        return this;
+    }
+
+    /**
+     * Adds class names (without the '.') to the inventory.
+     *
+     * @param names
+     *     The class names.
+     *
+     * @return this, for chaining.
+     */
+    public UnusedSelectorPruner classes(Iterable<String> names) {
+        inventory.classes(names);
+        return this;
+    }
+
+    /**
+     * Adds ids (without the '#') to the inventory.
+     *
+     * @param names
+     *     The ids.
+     *
+     * @return this, for chaining.
+     */
+    public UnusedSelectorPruner ids(String... names) {
+        inventory.ids(names);
+        return this;
+    }
+
+    /**
+     * Adds ids (without the '#') to the inventory.
+     *
+     * @param names
+     *     The ids.
+     *
+     * @return this, for chaining.
+     */
+    public UnusedSelectorPruner ids(Iterable<String> names) {
+        inventory.ids(names);
+        return this;
+    }
+
+    /**
+     * Adds element names to the inventory.
+     *
+     * @param names
+     *     The element names.
+     *
+     * @return this, for chaining.
+     */
+    public UnusedSelectorPruner elements(String... names) {
+        inventory.elements(names);
+        return this;
+    }
+
+    /**
+     * Adds element names to the inventory.
+     *
+     * @param names
+     *     The element names.
+     *
+     * @return this, for chaining.
+     */
+    public UnusedSelectorPruner elements(Iterable<String> names) {
+        inventory.elements(names);
+        return this;
+    }
+
+    /**
+     * Removes unused selectors from the rule, and the rule itself if no selectors remain.
+     *
+     * @param rule
+     *     The rule.
+     */
+    @Rework
+    public void rule(Rule rule) {
+        if (inventory.isEmpty()) return;
+
+        boolean removed = false;
+        for (Selector selector : ImmutableList.copyOf(rule.selectors())) {
+            if (selector.isKeyframe()) return;
+
+            if (!inventory.matches(selector)) {
+                selector.destroy();
+                removed = true;
+            }
+        }
+
+        if (removed && rule.selectors().isEmpty()) {
+            rule.destroy();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.util;
+
+/**
+ * Utilities for grouping property names by the other properties that may override them, for checking whether moving or
+ * reordering declarations changes the cascade.
+ *
+ * @author nmcwilliams
+ */
+public final class PropertyRoots {
+    private PropertyRoots() {}
+
+    /**
+     * Gets the part of the (unprefixed) property name that groups it with the shorthand and longhand properties that may
+     * override it, e.g., "border" for "border-top-width". Aliases and the logical and physical versions of a property share the
+     * same root as well, e.g., "word-wrap" and "overflow-wrap", or "inline-size" and "width". This is intentionally coarse;
+     * grouping too much only means fewer merges or reordering.
+     * <p>
+     * Two declarations with different roots never override each other, with the exception of <code>all</code>, which overrides
+     * almost every property. Callers must handle <code>all</code> separately.
+     *
+     * @param property
+     *     The unprefixed property name.
+     *
+     * @return The root.
+     */
+    public static String root(String property) {
+        if (property.startsWith("--")) return property;
+
+        // aliases of properties with a different root
+        if (property.equals("word-wrap")) return "overflow";
+        if (property.startsWith("page-break-") || property.startsWith("column-break-")) return "break";
+        if (property.startsWith("text-wrap")) return "white";
+
+        int dash = property.indexOf('-');
+        String root = dash == -1 ? property : property.substring(0, dash);
+
+        switch (root) {
+        case "line":
+            return "font";
+        case "place":
+        case "justify":
+            return "align";
+        case "top":
+        case "right":
+        case "bottom":
+        case "left":
+            return "inset";
+        case "width":
+        case "height":
+        case "min":
+        case "max":
+        case "inline":
+        case "block":
+            return "size";
+        case "gap":
+        case "row":
+        case "column":
+        case "columns":
+            return "grid";
+        case "motion":
+            return "offset";
+        case "alignment":
+        case "baseline":
+            return "vertical";
+        default:
+            return root;
+        }
+    }
+}
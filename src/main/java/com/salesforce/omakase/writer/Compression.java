@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.omakase.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The content encodings available for pre-compressed output. See {@link StyleWriter#writeCompressed(Compression)}.
+ *
+ * @author nmcwilliams
+ */
+public enum Compression {
+    /** The gzip format, for <code>Content-Encoding: gzip</code>. */
+    GZIP {
+        @Override
+        DeflaterOutputStream wrap(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output, Utf8Appendable.DEFAULT_SIZE);
+        }
+    },
+
+    /** The zlib format, for <code>Content-Encoding: deflate</code>. */
+    DEFLATE {
+        @Override
+        DeflaterOutputStream wrap(OutputStream output) {
+            // same buffer size as gzip. the deflater is given explicitly for that, so it must be ended explicitly too
+            return new DeflaterOutputStream(output, new Deflater(), Utf8Appendable.DEFAULT_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        }
+    };
+
+    /**
+     * Wraps the given stream with one that compresses everything written to it. Closing the returned stream releases the
+     * deflater.
+     */
+    abstract DeflaterOutputStream wrap(OutputStream output) throws IOException;
+}
@@ -134,6 +134,26 @@ public final class StyleAppendable {
         return this;
     }
 
+    /**
+     * Appends a subsequence of the specified {@link CharSequence} or String.
+     *
+     * @param sequence
+     *     The character sequence containing the subsequence to append.
+     * @param start
+     *     The index of the first character in the subsequence.
+     * @param end
+     *     The index of the character following the last character in the subsequence.
+     *
+     * @return this, for chaining.
+     *
+     * @throws IOException
+     *     If an I/O error occurs.
+     */
+    public StyleAppendable append(CharSequence sequence, int start, int end) throws IOException {
+        appendable.append(sequence, start, end);
+        return this;
+    }
+
     /**
      * Appends a newline character.
      *
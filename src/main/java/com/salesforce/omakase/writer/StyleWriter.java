@@ -26,22 +26,42 @@
 
 package com.salesforce.omakase.writer;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.salesforce.omakase.Omakase;
 import com.salesforce.omakase.PluginRegistry;
 import com.salesforce.omakase.ast.Comment;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.Statement;
+import com.salesforce.omakase.ast.Stylesheet;
+import com.salesforce.omakase.ast.StylesheetSnapshot;
+import com.salesforce.omakase.ast.declaration.PropertyValue;
+import com.salesforce.omakase.ast.declaration.PropertyValueMember;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.ast.selector.SelectorPart;
 import com.salesforce.omakase.ast.Syntax;
 import com.salesforce.omakase.plugin.DependentPlugin;
 import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.plugin.basic.Metrics;
 import com.salesforce.omakase.plugin.basic.SyntaxTree;
 import com.salesforce.omakase.util.As;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.Deque;
-import java.util.Iterator;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DeflaterOutputStream;
 
 import static com.google.common.base.Preconditions.*;
 
@@ -67,6 +87,11 @@ import static com.google.common.base.Preconditions.*;
  * verbose.writeTo(System.out);
  * </code></pre>
  * <pre><code>
+ * StyleWriter compressed = StyleWriter.compressed();
+ * Omakase.source(input).use(compressed).process();
+ * compressed.writeTo(response.getOutputStream()); // streamed as UTF-8
+ * </code></pre>
+ * <pre><code>
  * String classSelector = StyleWriter.inline().writeSingle(new ClassSelector("test"));
  * </code></pre>
  * <p>
@@ -77,15 +102,34 @@ import static com.google.common.base.Preconditions.*;
  * @author nmcwilliams
  */
 public final class StyleWriter implements DependentPlugin {
+    /** number of top-level statements written by each worker when writing in parallel */
+    static final int PARALLEL_CHUNK_SIZE = 256;
+
     private WriterMode mode;
+    private PluginRegistry registry;
     private SyntaxTree tree;
-    private Multimap<Class<? extends Writable>, CustomWriter<?>> overrides;
+
+    /** custom writers for each concrete class, in the order added. Arrays so that dispatching doesn't allocate an iterator */
+    private Map<Class<? extends Writable>, CustomWriter<?>[]> overrides;
 
     private boolean writeAllComments;
     private boolean writeAnnotatedComments;
     private boolean writeBangComments;
 
-    private final Deque<StackEntry> stack = new ArrayDeque<>();
+    /** when set, top-level statements are written in chunks using this executor */
+    private ExecutorService executor;
+
+    /** whether units may cache their written output, and whether a custom writer exists for any of those units */
+    private boolean cacheOutput;
+    private boolean overridesCachedUnits;
+    private boolean sortDeclarations;
+
+    /**
+     * number of units written directly below each depth level, indexed by depth. Depth 0 means nothing is currently being
+     * written. Entries above the current depth are stale and are reset when that depth is entered again.
+     */
+    private int[] childCounts = new int[32];
+    private int depth;
 
     /** Creates a new {@link StyleWriter} instance using {@link WriterMode#INLINE}. */
     public StyleWriter() {
@@ -104,6 +148,7 @@ public final class StyleWriter implements DependentPlugin {
 
     @Override
     public void dependencies(PluginRegistry registry) {
+        this.registry = registry;
         tree = registry.require(SyntaxTree.class);
     }
 
@@ -240,10 +285,115 @@ public final class StyleWriter implements DependentPlugin {
      * @return this, for chaining.
      */
     public <T extends Writable> StyleWriter addCustomWriter(Class<T> writable, CustomWriter<T> writer) {
+        checkNotNull(writable, "writable cannot be null");
+        checkNotNull(writer, "writer cannot be null");
+
         if (overrides == null) {
-            overrides = ArrayListMultimap.create();
+            overrides = new IdentityHashMap<>();
+        }
+
+        CustomWriter<?>[] existing = overrides.get(writable);
+        if (existing == null) {
+            overrides.put(writable, new CustomWriter<?>[]{writer});
+        } else {
+            CustomWriter<?>[] updated = Arrays.copyOf(existing, existing.length + 1);
+            updated[existing.length] = writer;
+            overrides.put(writable, updated);
+        }
+
+        if (writable == PropertyValue.class || PropertyValueMember.class.isAssignableFrom(writable)
+            || SelectorPart.class.isAssignableFrom(writable)) {
+            overridesCachedUnits = true;
         }
-        overrides.put(writable, writer);
+        return this;
+    }
+
+    /**
+     * Gets whether any {@link CustomWriter} was added for the given class of unit.
+     *
+     * @param writable
+     *     The class of the unit.
+     *
+     * @return True if at least one {@link CustomWriter} was added for the given class.
+     */
+    public boolean hasCustomWriter(Class<? extends Writable> writable) {
+        return overrides != null && overrides.containsKey(writable);
+    }
+
+    /**
+     * Sets whether the written output of refined {@link Selector}s and {@link PropertyValue}s should be cached on the units
+     * themselves. The cached output is reused by later writes, for as long as the unit and its parts or members are not modified.
+     * The cache is kept separately for each {@link WriterMode}, and copies of a unit share the cached output of the original.
+     * <p>
+     * This is useful when the same syntax tree (or copies of it, e.g., from a {@link StylesheetSnapshot} of refined units) is
+     * written many times while most of it stays untouched. The first write is slightly slower and the syntax tree uses more
+     * memory. Caching is skipped while any comments are written or a {@link CustomWriter} is added for any of the cached units.
+     * Units with custom parts or members are never cached.
+     *
+     * @param cacheOutput
+     *     Whether output should be cached.
+     *
+     * @return this, for chaining.
+     */
+    public StyleWriter cacheOutput(boolean cacheOutput) {
+        this.cacheOutput = cacheOutput;
+        return this;
+    }
+
+    /**
+     * Gets whether units should currently use their cached output. See {@link #cacheOutput(boolean)}.
+     *
+     * @return True if cached output should be used.
+     */
+    public boolean isCachingOutput() {
+        return cacheOutput && !overridesCachedUnits && !writeAllComments && !writeAnnotatedComments && !writeBangComments;
+    }
+
+    /**
+     * Sets whether the declarations of each {@link Rule} should be written in a canonical order, grouped and sorted by property
+     * (e.g., all "background" properties, then all "border" properties, and so on).
+     * <p>
+     * Declarations that {@link com.salesforce.omakase.util.PropertyRoots} groups together, such as <code>margin</code> and
+     * <code>margin-top</code>, <code>width</code> and <code>inline-size</code>, or prefixed and unprefixed versions of a property,
+     * keep their relative order. Rules that declare <code>all</code> are not sorted. Properties that affect each other in ways
+     * that grouping doesn't capture (e.g., nonstandard properties) may still be reordered, so only enable this when that's
+     * acceptable. The more consistent ordering across rules makes the output more repetitive, which usually improves gzip and
+     * brotli compression of the output.
+     *
+     * @param sortDeclarations
+     *     Whether declarations should be sorted.
+     *
+     * @return this, for chaining.
+     */
+    public StyleWriter sortDeclarations(boolean sortDeclarations) {
+        this.sortDeclarations = sortDeclarations;
+        return this;
+    }
+
+    /**
+     * Gets whether declarations should be written in a canonical order. See {@link #sortDeclarations(boolean)}.
+     *
+     * @return True if declarations should be sorted.
+     */
+    public boolean shouldSortDeclarations() {
+        return sortDeclarations;
+    }
+
+    /**
+     * Specifies an {@link ExecutorService} to use for writing large stylesheets in parallel. When set, the top-level statements of
+     * stylesheets with more than {@value #PARALLEL_CHUNK_SIZE} statements are split into chunks, which are written concurrently
+     * and then concatenated in order. The output is identical to writing serially.
+     * <p>
+     * This only applies to {@link #write()} and the {@code writeTo} methods. Any {@link CustomWriter}s must be safe to use from
+     * multiple threads at once, and the syntax tree must not be modified while writing.
+     *
+     * @param executor
+     *     Used to write the chunks, or null to always write serially (the default).
+     *
+     * @return this, for chaining.
+     */
+    public StyleWriter parallel(ExecutorService executor) {
+        this.executor = executor;
         return this;
     }
 
@@ -257,7 +407,7 @@ public final class StyleWriter implements DependentPlugin {
 
         StyleAppendable appendable = new StyleAppendable();
         try {
-            writeInner(tree.stylesheet(), appendable);
+            writeStylesheet(appendable);
         } catch (IOException e) {
             throw new AssertionError("Using a StringBuilder shouldn't cause an IOException.", e);
         }
@@ -276,7 +426,185 @@ public final class StyleWriter implements DependentPlugin {
     public void writeTo(Appendable appendable) throws IOException {
         checkNotNull(appendable, "appendable cannot be null");
         checkState(tree != null, "syntax tree not set (did you add this writer before parsing?)");
-        writeInner(tree.stylesheet(), new StyleAppendable(appendable));
+        writeStylesheet(new StyleAppendable(appendable));
+    }
+
+    /**
+     * Writes the entire processed stylesheet to the given {@link OutputStream}, encoded as UTF-8.
+     * <p>
+     * The output is encoded directly into a small buffer which is written to the stream whenever it fills up, so the full output
+     * is never held in memory. This is the preferred method when sending large output somewhere other than a string, e.g., an
+     * HTTP response or a file. The stream doesn't need to be buffered.
+     *
+     * @param output
+     *     Write the processed CSS source code to this stream. The stream is flushed but not closed.
+     *
+     * @throws IOException
+     *     If an I/O error occurs.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        checkNotNull(output, "output cannot be null");
+        checkState(tree != null, "syntax tree not set (did you add this writer before parsing?)");
+
+        Utf8Appendable utf8 = new Utf8Appendable(output, Utf8Appendable.DEFAULT_SIZE);
+        writeStylesheet(new StyleAppendable(utf8));
+        utf8.flush();
+    }
+
+    /**
+     * Writes the entire processed stylesheet to the given {@link WritableByteChannel}, encoded as UTF-8.
+     * <p>
+     * Same as {@link #writeTo(OutputStream)}, but for channels.
+     *
+     * @param output
+     *     Write the processed CSS source code to this channel. The channel is not closed.
+     *
+     * @throws IOException
+     *     If an I/O error occurs.
+     */
+    public void writeTo(WritableByteChannel output) throws IOException {
+        checkNotNull(output, "output cannot be null");
+        checkState(tree != null, "syntax tree not set (did you add this writer before parsing?)");
+
+        Utf8Appendable utf8 = new Utf8Appendable(output, Utf8Appendable.DEFAULT_SIZE);
+        writeStylesheet(new StyleAppendable(utf8));
+        utf8.flush();
+    }
+
+    /**
+     * Writes the entire processed stylesheet encoded as UTF-8 and compressed with the given {@link Compression}, e.g., for
+     * caching ready-to-serve bytes along with the appropriate <code>Content-Encoding</code>.
+     * <p>
+     * Characters are encoded and compressed as they are written, so no intermediate string or uncompressed byte array is created.
+     * The returned buffer is read-only and wraps the compressed bytes directly. Use {@link #writeTo(OutputStream)} with a
+     * compressing stream instead to stream compressed output somewhere without holding it in memory.
+     *
+     * @param compression
+     *     The compression format.
+     *
+     * @return The compressed output, positioned at the start.
+     */
+    public ByteBuffer writeCompressed(Compression compression) {
+        checkNotNull(compression, "compression cannot be null");
+        checkState(tree != null, "syntax tree not set (did you add this writer before parsing?)");
+
+        ByteBufferOutputStream bytes = new ByteBufferOutputStream(Utf8Appendable.DEFAULT_SIZE);
+        try (DeflaterOutputStream output = compression.wrap(bytes)) {
+            Utf8Appendable utf8 = new Utf8Appendable(output, Utf8Appendable.DEFAULT_SIZE);
+            writeStylesheet(new StyleAppendable(utf8));
+            utf8.flush();
+        } catch (IOException e) {
+            throw new AssertionError("Writing to a byte array shouldn't cause an IOException.", e);
+        }
+        return bytes.toByteBuffer();
+    }
+
+    /** writes the whole stylesheet, recording the time spent if a {@link Metrics} plugin is registered */
+    private void writeStylesheet(StyleAppendable appendable) throws IOException {
+        Metrics metrics = registry.retrieve(Metrics.class).orNull();
+        if (metrics == null) {
+            writeTree(appendable);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            writeTree(appendable);
+        } finally {
+            metrics.writing(System.nanoTime() - start);
+        }
+    }
+
+    /** writes the stylesheet in parallel if requested and worthwhile, otherwise serially */
+    private void writeTree(StyleAppendable appendable) throws IOException {
+        Stylesheet stylesheet = tree.stylesheet();
+
+        if (executor == null || stylesheet.statements().size() <= PARALLEL_CHUNK_SIZE || hasCustomWriter(Stylesheet.class)) {
+            writeInner(stylesheet, appendable);
+        } else {
+            writeParallel(stylesheet, appendable);
+        }
+    }
+
+    /**
+     * Writes the stylesheet the same way as {@link #writeInner(Writable, StyleAppendable)}, except that the statements are written
+     * in chunks by separate workers. Each chunk is written assuming that all preceding statements were counted as written peers
+     * (they usually are). That assumption is verified when concatenating, and any chunk where it doesn't hold is written again with
+     * the correct count, so that separators and newlines depending on the peer count come out the same as when writing serially.
+     */
+    private void writeParallel(Stylesheet stylesheet, StyleAppendable appendable) throws IOException {
+        incrementDepth();
+
+        if (stylesheet.isWritable()) {
+            appendComments(stylesheet.comments(), appendable);
+
+            List<Statement> statements = Lists.newArrayList(stylesheet.statements());
+            List<Future<Chunk>> futures = new ArrayList<>();
+            int assumed = childCounts[depth];
+
+            for (int i = 0; i < statements.size(); i += PARALLEL_CHUNK_SIZE) {
+                final List<Statement> slice = statements.subList(i, Math.min(i + PARALLEL_CHUNK_SIZE, statements.size()));
+                final int peers = assumed;
+                futures.add(executor.submit(new Callable<Chunk>() {
+                    @Override
+                    public Chunk call() throws IOException {
+                        return writeChunk(slice, peers);
+                    }
+                }));
+                assumed += slice.size();
+            }
+
+            int peers = childCounts[depth];
+            for (int i = 0; i < futures.size(); i++) {
+                Chunk chunk = await(futures.get(i));
+                if (chunk.peers != peers) {
+                    int start = i * PARALLEL_CHUNK_SIZE;
+                    chunk = writeChunk(statements.subList(start, Math.min(start + PARALLEL_CHUNK_SIZE, statements.size())), peers);
+                }
+                appendable.append(chunk.output);
+                peers += chunk.written;
+            }
+            childCounts[depth] = peers;
+
+            appendComments(stylesheet.orphanedComments(), appendable);
+        }
+
+        decrementDepth();
+    }
+
+    /** writes the given statements with a separate writer, as if the given number of peers were already written before them */
+    private Chunk writeChunk(List<Statement> statements, int peers) throws IOException {
+        StyleWriter worker = new StyleWriter(mode);
+        worker.overrides = overrides;
+        worker.writeAllComments = writeAllComments;
+        worker.writeAnnotatedComments = writeAnnotatedComments;
+        worker.writeBangComments = writeBangComments;
+        worker.cacheOutput = cacheOutput;
+        worker.overridesCachedUnits = overridesCachedUnits;
+        worker.sortDeclarations = sortDeclarations;
+
+        // same depth as the statements of a stylesheet
+        worker.incrementDepth();
+        worker.childCounts[worker.depth] = peers;
+
+        StyleAppendable output = new StyleAppendable(new StringBuilder(statements.size() * 64));
+        for (Statement statement : statements) {
+            worker.writeInner(statement, output);
+        }
+        return new Chunk(peers, worker.childCounts[worker.depth] - peers, output.toString());
+    }
+
+    /** waits for the chunk, rethrowing any errors from writing it */
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing in parallel");
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
     }
 
     /**
@@ -340,15 +668,15 @@ public final class StyleWriter implements DependentPlugin {
         if (writable.isWritable()) {
             boolean handled = false;
 
-            if (useOverrides && overrides != null && overrides.containsKey(klass)) {
-                Collection<CustomWriter<?>> writers = overrides.get(klass);
-                Iterator<CustomWriter<?>> iterator = writers.iterator();
-
-                while (!handled && iterator.hasNext()) {
-                    // cast is safe as long as the map is guarded by #override
-                    @SuppressWarnings("unchecked")
-                    CustomWriter<T> writer = (CustomWriter<T>)iterator.next();
-                    handled = writer.write(writable, this, appendable);
+            if (useOverrides && overrides != null) {
+                CustomWriter<?>[] writers = overrides.get(klass);
+                if (writers != null) {
+                    for (int i = 0; !handled && i < writers.length; i++) {
+                        // cast is safe as long as the map is guarded by #addCustomWriter
+                        @SuppressWarnings("unchecked")
+                        CustomWriter<T> writer = (CustomWriter<T>)writers[i];
+                        handled = writer.write(writable, this, appendable);
+                    }
                 }
             }
 
@@ -367,7 +695,7 @@ public final class StyleWriter implements DependentPlugin {
                 }
 
                 // keep track of how many syntax units written at this depth
-                stack.peek().incrementPeerCountAtDepth();
+                if (depth > 1) childCounts[depth - 1]++;
             }
         }
 
@@ -436,7 +764,8 @@ public final class StyleWriter implements DependentPlugin {
      * @return this, for chaining.
      */
     public StyleWriter incrementDepth() {
-        stack.push(new StackEntry(stack.peek()));
+        if (++depth == childCounts.length) childCounts = Arrays.copyOf(childCounts, depth * 2);
+        childCounts[depth] = 0;
         return this;
     }
 
@@ -449,7 +778,8 @@ public final class StyleWriter implements DependentPlugin {
      * @return this, for chaining.
      */
     public StyleWriter decrementDepth() {
-        stack.pop();
+        if (depth == 0) throw new NoSuchElementException("depth is already at zero");
+        depth--;
         return this;
     }
 
@@ -460,7 +790,7 @@ public final class StyleWriter implements DependentPlugin {
      * @return The number of peers previously written out at the current depth level.
      */
     public int countAtCurrentDepth() {
-        return stack.isEmpty() ? 0 : stack.peek().numberOfPreviousPeers();
+        return depth > 1 ? childCounts[depth - 1] : 0;
     }
 
     /**
@@ -510,35 +840,18 @@ public final class StyleWriter implements DependentPlugin {
         return new StyleWriter(WriterMode.COMPRESSED);
     }
 
-    /** used to help keep track of how many inner units are written at a certain depth. */
-    private static final class StackEntry {
-        private final StackEntry parent;
-        private int numChildren;
-
-        public StackEntry(StackEntry parent) {
-            this.parent = parent;
-        }
-
-        /** increment the count of children directly below this depth */
-        public void incrementNumChildren() {
-            numChildren++;
-        }
-
-        /** gets the number of children directly below this depth */
-        public int totalChildren() {
-            return numChildren;
-        }
-
-        /** increment the number of peers at this depth */
-        public void incrementPeerCountAtDepth() {
-            if (this.parent != null) {
-                this.parent.incrementNumChildren();
-            }
-        }
-
-        /** gets the number of peers at this depth */
-        public int numberOfPreviousPeers() {
-            return this.parent != null ? this.parent.totalChildren() : 0;
+    /** the output of writing a chunk of statements in parallel */
+    private static final class Chunk {
+        /** the number of previously written peers that the chunk was written with */
+        final int peers;
+        /** the number of statements counted as written */
+        final int written;
+        final String output;
+
+        Chunk(int peers, int written, String output) {
+            this.peers = peers;
+            this.written = written;
+            this.output = output;
         }
     }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.writer;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link Appendable} that encodes characters as UTF-8 directly into a byte buffer, which is written out to an {@link
+ * OutputStream} or {@link WritableByteChannel} whenever it fills up. This allows output to be streamed without ever holding the
+ * full output in memory as a string.
+ * <p>
+ * Unpaired surrogate characters are encoded as '?', same as the standard UTF-8 encoder. Be sure to call {@link #flush()} at the
+ * end to write out any remaining buffered content.
+ *
+ * @author nmcwilliams
+ */
+final class Utf8Appendable implements Appendable, Flushable {
+    /** default buffer size, in bytes */
+    static final int DEFAULT_SIZE = 8192;
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private int position;
+
+    /** a high surrogate that is still waiting on the low surrogate, otherwise 0 */
+    private char pending;
+
+    /**
+     * Creates a new {@link Utf8Appendable} that writes to the given {@link OutputStream}.
+     *
+     * @param stream
+     *     Write to this stream.
+     * @param size
+     *     The buffer size, in bytes (at least 4).
+     */
+    Utf8Appendable(OutputStream stream, int size) {
+        this(stream, null, size);
+    }
+
+    /**
+     * Creates a new {@link Utf8Appendable} that writes to the given {@link WritableByteChannel}.
+     *
+     * @param channel
+     *     Write to this channel.
+     * @param size
+     *     The buffer size, in bytes (at least 4).
+     */
+    Utf8Appendable(WritableByteChannel channel, int size) {
+        this(null, channel, size);
+    }
+
+    private Utf8Appendable(OutputStream stream, WritableByteChannel channel, int size) {
+        checkArgument(size >= 4, "buffer size must be at least 4");
+        this.stream = stream;
+        this.channel = channel;
+        this.buffer = new byte[size];
+    }
+
+    @Override
+    public Utf8Appendable append(CharSequence csq) throws IOException {
+        String s = String.valueOf(csq); // same as StringBuilder, null is written as "null"
+        return append(s, 0, s.length());
+    }
+
+    @Override
+    public Utf8Appendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) return append("null", start, end);
+
+        for (int i = start; i < end; i++) {
+            char c = csq.charAt(i);
+
+            // fast path for ascii
+            if (c < 0x80 && pending == 0) {
+                if (position == buffer.length) drain();
+                buffer[position++] = (byte)c;
+            } else {
+                encode(c);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public Utf8Appendable append(char c) throws IOException {
+        encode(c);
+        return this;
+    }
+
+    /**
+     * Writes out all buffered content and flushes the underlying {@link OutputStream}, if applicable. A high surrogate at the very
+     * end (with no low surrogate written yet) is written as '?'.
+     *
+     * @throws IOException
+     *     If an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (pending != 0) {
+            pending = 0;
+            put('?');
+        }
+        drain();
+        if (stream != null) stream.flush();
+    }
+
+    private void encode(char c) throws IOException {
+        if (pending != 0) {
+            char high = pending;
+            pending = 0;
+
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                ensure(4);
+                buffer[position++] = (byte)(0xF0 | (cp >> 18));
+                buffer[position++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                buffer[position++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                buffer[position++] = (byte)(0x80 | (cp & 0x3F));
+                return;
+            }
+
+            put('?'); // unpaired, fall through to encode the current char
+        }
+
+        if (c < 0x80) {
+            put(c);
+        } else if (c < 0x800) {
+            ensure(2);
+            buffer[position++] = (byte)(0xC0 | (c >> 6));
+            buffer[position++] = (byte)(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pending = c;
+        } else if (Character.isLowSurrogate(c)) {
+            put('?');
+        } else {
+            ensure(3);
+            buffer[position++] = (byte)(0xE0 | (c >> 12));
+            buffer[position++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte)(0x80 | (c & 0x3F));
+        }
+    }
+
+    private void put(char ascii) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte)ascii;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) drain();
+    }
+
+    /** writes out the buffered bytes */
+    private void drain() throws IOException {
+        if (position == 0) return;
+
+        if (stream != null) {
+            stream.write(buffer, 0, position);
+        } else {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, position);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        position = 0;
+    }
+}
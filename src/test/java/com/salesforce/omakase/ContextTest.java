@@ -43,7 +43,9 @@ import com.salesforce.omakase.plugin.BroadcastingPlugin;
 import com.salesforce.omakase.plugin.DependentPlugin;
 import com.salesforce.omakase.plugin.Plugin;
 import com.salesforce.omakase.plugin.PostProcessingPlugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
 import com.salesforce.omakase.plugin.basic.SyntaxTree;
+import com.salesforce.omakase.writer.StyleWriter;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -297,6 +299,27 @@ public class ContextTest {
         }
     }
 
+    @Test
+    public void memoizedRefinementMatchesNormalRefinement() {
+        String src = ".a .b{margin:0;color:red}.a .b{margin:0}.c,.a .b{margin:0;color:red}";
+
+        StyleWriter normal = StyleWriter.compressed();
+        Omakase.source(src).use(new AutoRefiner().all()).use(new RenamingPlugin()).use(normal).process();
+
+        StyleWriter memoized = StyleWriter.compressed();
+        Omakase.source(src).memoizeRefinement().use(new AutoRefiner().all()).use(new RenamingPlugin()).use(memoized).process();
+
+        assertThat(memoized.write()).isEqualTo(normal.write());
+        assertThat(memoized.write()).isEqualTo(".a-x .b-x{margin:0;color:red}.a-x .b-x{margin:0}.c-x,.a-x .b-x{margin:0;color:red}");
+    }
+
+    public static final class RenamingPlugin implements Plugin {
+        @Rework
+        public void classSelector(ClassSelector cs) {
+            cs.name(cs.name() + "-x");
+        }
+    }
+
     public static final class CustomTokenFactory extends BaseTokenFactory {}
 
     public static final class CustomTokenFactory2 extends BaseTokenFactory {}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase;
+
+import com.salesforce.omakase.ast.selector.ClassSelector;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.error.FatalException;
+import com.salesforce.omakase.parser.token.BaseTokenFactory;
+import com.salesforce.omakase.plugin.DependentPlugin;
+import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.plugin.basic.ParseStats;
+import com.salesforce.omakase.plugin.basic.SyntaxTree;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+/**
+ * Unit tests for {@link ParseCache}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class ParseCacheTest {
+    private static final String SRC = ".a {color:red}\n@media (max-width:800px) {.b {top:0}}\n.c, .d {margin:0 auto}";
+
+    private static String write(ParseCache cache, String source, Plugin... plugins) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.Request request = Omakase.source(source);
+        if (cache != null) request.cache(cache);
+        request.use(plugins).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void missThenHit() {
+        ParseCache cache = new ParseCache(1000);
+        write(cache, SRC);
+        write(cache, SRC);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void differentSourcesAreDifferentEntries() {
+        ParseCache cache = new ParseCache(1000);
+        write(cache, SRC);
+        write(cache, SRC + " ");
+        assertThat(cache.stats().missCount()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void outputSameAsWithoutCache() {
+        ParseCache cache = new ParseCache(1000);
+        assertThat(write(cache, SRC)).isEqualTo(write(null, SRC));
+        assertThat(write(cache, SRC)).isEqualTo(write(null, SRC));
+        assertThat(write(cache, SRC, new AutoRefiner().all())).isEqualTo(write(null, SRC, new AutoRefiner().all()));
+    }
+
+    @Test
+    public void reworkDoesNotAffectCachedStylesheet() {
+        ParseCache cache = new ParseCache(1000);
+        String reworked = write(cache, SRC, new AutoRefiner().all(), new Renamer());
+        assertThat(reworked).contains(".a-x");
+        assertThat(write(cache, SRC)).isEqualTo(write(null, SRC));
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void pluginsStillRunOnHit() {
+        ParseCache cache = new ParseCache(1000);
+        write(cache, SRC);
+
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(SRC).cache(cache).use(tree).process();
+        assertThat(tree.stylesheet().statements().size()).isEqualTo(3);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void parseStatsRecorded() {
+        ParseCache cache = new ParseCache(1000);
+        write(cache, SRC);
+
+        ParseStats stats = new ParseStats();
+        Omakase.source(SRC).cache(cache).use(stats).process();
+        assertThat(stats.inputLength()).isEqualTo(SRC.length());
+        assertThat(stats.parseNanos()).isGreaterThan(0);
+        assertThat(stats.rules()).isEqualTo(2);
+    }
+
+    @Test
+    public void evictsWhenOverMaximumLength() {
+        ParseCache cache = new ParseCache(SRC.length() * 10);
+        for (int i = 0; i < 50; i++) {
+            write(cache, SRC + "/*" + (i + 10) + "*/");
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.stats().evictionCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void tokenFactoryIsPartOfKey() {
+        ParseCache cache = new ParseCache(1000);
+        write(cache, SRC);
+        write(cache, SRC, new CustomTokenFactoryPlugin());
+        assertThat(cache.stats().missCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void errorsAreNotCached() {
+        ParseCache cache = new ParseCache(1000);
+        for (int i = 0; i < 2; i++) {
+            try {
+                write(cache, ".a {color:red");
+                fail("expected exception");
+            } catch (FatalException e) {
+                // expected
+            }
+        }
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.stats().missCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void clear() {
+        ParseCache cache = new ParseCache(1000);
+        write(cache, SRC);
+        cache.clear();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    public static final class Renamer implements Plugin {
+        @Rework
+        public void rework(ClassSelector selector) {
+            selector.name(selector.name() + "-x");
+        }
+    }
+
+    public static final class CustomTokenFactory extends BaseTokenFactory {}
+
+    public static final class CustomTokenFactoryPlugin implements DependentPlugin {
+        @Override
+        public void dependencies(PluginRegistry registry) {
+            registry.requireTokenFactory(CustomTokenFactory.class, com.google.common.base.Suppliers.ofInstance(new CustomTokenFactory()));
+        }
+    }
+}
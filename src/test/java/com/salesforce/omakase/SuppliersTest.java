@@ -27,6 +27,8 @@
 package com.salesforce.omakase;
 
 import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.plugin.basic.Metrics;
+import com.salesforce.omakase.plugin.basic.ParseStats;
 import com.salesforce.omakase.plugin.basic.SyntaxTree;
 import org.junit.Test;
 
@@ -48,4 +50,14 @@ public class SuppliersTest {
     public void testAutoRefiner() {
         assertThat(Suppliers.get(AutoRefiner.class).isPresent()).isTrue();
     }
+
+    @Test
+    public void testMetrics() {
+        assertThat(Suppliers.get(Metrics.class).isPresent()).isTrue();
+    }
+
+    @Test
+    public void testParseStats() {
+        assertThat(Suppliers.get(ParseStats.class).isPresent()).isTrue();
+    }
 }
@@ -28,12 +28,21 @@ package com.salesforce.omakase.ast;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.salesforce.omakase.Omakase;
 import com.salesforce.omakase.broadcast.QueryableBroadcaster;
+import com.salesforce.omakase.plugin.basic.SyntaxTree;
 import com.salesforce.omakase.writer.StyleAppendable;
 import com.salesforce.omakase.writer.StyleWriter;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -321,6 +330,57 @@ public class AbstractSyntaxTest {
         assertThat(t1.id()).isNotEqualTo(t2.id());
     }
 
+    @Test
+    public void idIsStable() {
+        TestSyntax t = new TestSyntax();
+        assertThat(t.id()).isEqualTo(t.id());
+        assertThat(t.id()).isNotEqualTo(0);
+    }
+
+    @Test
+    public void nextIdSkipsZeroWhenWrapping() {
+        AtomicInteger sequence = new AtomicInteger(-1);
+        assertThat(AbstractSyntax.nextId(sequence)).isEqualTo(1);
+    }
+
+    @Test
+    public void parsingDoesNotAssignIds() {
+        int before = new TestSyntax().id();
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(".a{color:red} .b{margin:0} @media print{.c{color:blue}}").use(tree).process();
+        for (Statement statement : tree.stylesheet()) {
+            statement.next();
+        }
+        assertThat(new TestSyntax().id()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void idIsStableAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 200; i++) {
+                final TestSyntax t = new TestSyntax();
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<Integer>> ids = Lists.newArrayList();
+                for (int j = 0; j < 4; j++) {
+                    ids.add(executor.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws Exception {
+                            start.await();
+                            return t.id();
+                        }
+                    }));
+                }
+                start.countDown();
+                for (Future<Integer> id : ids) {
+                    assertThat(id.get()).isEqualTo(t.id());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     public static final class TestSyntax extends AbstractSyntax {
         private String name;
 
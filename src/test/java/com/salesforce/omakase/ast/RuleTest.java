@@ -40,6 +40,8 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -358,6 +360,43 @@ public class RuleTest {
         assertThat(rule.isWritable()).isFalse();
     }
 
+    @Test
+    public void replacingDeclarationsWhileIterating() {
+        Rule rule = new Rule();
+        rule.selectors().append(new Selector(new ClassSelector("a")));
+        rule.declarations().append(new Declaration(Property.COLOR, KeywordValue.of(Keyword.RED)));
+        rule.declarations().append(new Declaration(Property.MARGIN, NumericalValue.of(1, "px")));
+        rule.declarations().append(new Declaration(Property.PADDING, NumericalValue.of(1, "px")));
+
+        List<String> seen = new ArrayList<>();
+        for (Declaration declaration : rule.declarations()) {
+            seen.add(declaration.propertyName().name());
+            if (declaration.isProperty(Property.MARGIN)) {
+                declaration.prepend(new Declaration(Property.MARGIN, NumericalValue.of(2, "px")));
+                declaration.destroy();
+            }
+        }
+        assertThat(seen).containsExactly("color", "margin", "padding");
+        assertThat(StyleWriter.compressed().writeSingle(rule)).isEqualTo(".a{color:red;margin:2px;padding:1px}");
+    }
+
+    @Test
+    public void movingDeclarationsWhileIterating() {
+        Rule rule = new Rule();
+        rule.selectors().append(new Selector(new ClassSelector("a")));
+        rule.declarations().append(new Declaration(Property.COLOR, KeywordValue.of(Keyword.RED)));
+        rule.declarations().append(new Declaration(Property.MARGIN, NumericalValue.of(1, "px")));
+        rule.declarations().append(new Declaration(Property.PADDING, NumericalValue.of(1, "px")));
+
+        List<String> seen = new ArrayList<>();
+        for (Declaration declaration : rule.declarations()) {
+            seen.add(declaration.propertyName().name());
+            if (declaration.isProperty(Property.COLOR) && seen.size() == 1) rule.declarations().append(declaration);
+        }
+        assertThat(seen).containsExactly("color", "margin", "padding", "color");
+        assertThat(StyleWriter.compressed().writeSingle(rule)).isEqualTo(".a{margin:1px;padding:1px;color:red}");
+    }
+
     @Test
     public void writeVerbose() throws IOException {
         Rule rule = new Rule();
@@ -391,6 +430,17 @@ public class RuleTest {
         assertThat(StyleWriter.compressed().writeSingle(rule)).isEqualTo(".class,#id{display:none;margin:5px}");
     }
 
+    @Test
+    public void writeSortedDeclarations() throws IOException {
+        Rule rule = new Rule();
+        rule.selectors().append(new Selector(new ClassSelector("class")));
+        rule.declarations().append(new Declaration(Property.MARGIN, NumericalValue.of(5, "px")));
+        rule.declarations().append(new Declaration(Property.DISPLAY, KeywordValue.of(Keyword.NONE)));
+
+        StyleWriter writer = StyleWriter.compressed().sortDeclarations(true);
+        assertThat(writer.writeSingle(rule)).isEqualTo(".class{display:none;margin:5px}");
+    }
+
     @Test
     public void writeWhenDetached() throws IOException {
         Stylesheet stylesheet = new Stylesheet(null);
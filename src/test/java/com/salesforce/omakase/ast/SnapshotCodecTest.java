@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.ast;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.atrule.MediaQueryList;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.selector.ClassSelector;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.plugin.basic.SyntaxTree;
+import com.salesforce.omakase.tools.Tools;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SnapshotCodec}, by way of {@link StylesheetSnapshot#writeTo} and {@link StylesheetSnapshot#readFrom}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class SnapshotCodecTest {
+    private static final String SRC = "/*a*/.a > #b, p.c:hover::before, [href^='x'] {color:#ABC; margin:-1px auto 0 !important}\n" +
+        "@media screen and (max-width:800px), print {.c {top:0; font-family:'Arial', sans-serif}}\n" +
+        "@keyframes spin {from {top:0} 50% {top:10px}}\n" +
+        ".d {\n  display:none;\n  background: linear-gradient(red, blue), rgba(0,0,0,0.5);\n  width: calc(100% - 10px)\n}\n" +
+        "/*orphaned*/";
+
+    private static StylesheetSnapshot snapshot(String source, Plugin... plugins) {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(source).use(plugins).use(tree).process();
+        return new StylesheetSnapshot(tree.stylesheet());
+    }
+
+    private static StylesheetSnapshot roundTrip(StylesheetSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot.writeTo(output);
+        return StylesheetSnapshot.readFrom(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    private static String write(StylesheetSnapshot snapshot, Plugin... plugins) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(snapshot).use(plugins).use(writer).process();
+        return writer.write();
+    }
+
+    private static Stylesheet thaw(StylesheetSnapshot snapshot) {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(snapshot).use(tree).process();
+        return tree.stylesheet();
+    }
+
+    @Test
+    public void roundTripUnrefined() throws IOException {
+        StylesheetSnapshot snapshot = snapshot(SRC);
+        assertThat(write(roundTrip(snapshot))).isEqualTo(write(snapshot));
+        assertThat(write(roundTrip(snapshot), new AutoRefiner().all())).isEqualTo(write(snapshot, new AutoRefiner().all()));
+    }
+
+    @Test
+    public void roundTripSourceLength() throws IOException {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(SRC).use(tree).process();
+        StylesheetSnapshot snapshot = new StylesheetSnapshot(tree.stylesheet(), SRC.length());
+        assertThat(roundTrip(snapshot).sourceLength()).isEqualTo(SRC.length());
+    }
+
+    @Test
+    public void roundTripRefined() throws IOException {
+        StylesheetSnapshot snapshot = snapshot(SRC, new AutoRefiner().all());
+        assertThat(write(roundTrip(snapshot))).isEqualTo(write(snapshot));
+    }
+
+    @Test
+    public void refinedUnitsStayRefined() throws IOException {
+        Stylesheet stylesheet = thaw(roundTrip(snapshot(SRC, new AutoRefiner().all())));
+
+        Rule rule = (Rule)stylesheet.statements().first().get();
+        Selector selector = rule.selectors().first().get();
+        Declaration declaration = rule.declarations().first().get();
+        assertThat(selector.isRefined()).isTrue();
+        assertThat(selector.parts().first().get()).isInstanceOf(ClassSelector.class);
+        assertThat(declaration.isRefined()).isTrue();
+        assertThat(declaration.propertyValue().isImportant()).isFalse();
+        assertThat(rule.declarations().last().get().propertyValue().isImportant()).isTrue();
+
+        AtRule media = (AtRule)stylesheet.statements().first().get().next().get();
+        assertThat(media.isRefined()).isTrue();
+        assertThat(media.expression().get()).isInstanceOf(MediaQueryList.class);
+    }
+
+    @Test
+    public void unrefinedUnitsStayUnrefined() throws IOException {
+        Stylesheet stylesheet = thaw(roundTrip(snapshot(SRC)));
+        Rule rule = (Rule)stylesheet.statements().first().get();
+        assertThat(rule.selectors().first().get().isRefined()).isFalse();
+        assertThat(rule.declarations().first().get().isRefined()).isFalse();
+    }
+
+    @Test
+    public void positionsArePreserved() throws IOException {
+        Stylesheet stylesheet = thaw(roundTrip(snapshot(SRC)));
+        Rule rule = (Rule)stylesheet.statements().last().get();
+        Declaration declaration = rule.declarations().first().get();
+        assertThat(rule.line()).isEqualTo(4);
+        assertThat(declaration.line()).isEqualTo(5);
+        assertThat(declaration.column()).isEqualTo(3);
+        assertThat(declaration.rawPropertyValue().get().line()).isEqualTo(5);
+        assertThat(declaration.rawPropertyValue().get().column()).isEqualTo(11);
+    }
+
+    @Test
+    public void commentsArePreserved() throws IOException {
+        Stylesheet stylesheet = thaw(roundTrip(snapshot(SRC)));
+        Rule rule = (Rule)stylesheet.statements().first().get();
+        assertThat(rule.selectors().first().get().comments()).hasSize(1);
+        assertThat(stylesheet.orphanedComments()).hasSize(1);
+        assertThat(stylesheet.orphanedComments().get(0).content()).isEqualTo("orphaned");
+    }
+
+    @Test
+    public void annotationsArePreserved() throws IOException {
+        String src = "/* @noflip */ .a {margin-left:1px}";
+        Stylesheet stylesheet = thaw(roundTrip(snapshot(src, new AutoRefiner().all())));
+        Rule rule = (Rule)stylesheet.statements().first().get();
+        assertThat(rule.selectors().first().get().hasAnnotation("noflip")).isTrue();
+    }
+
+    @Test
+    public void refinedCustomSyntaxWrittenAsText() throws IOException {
+        String src = "@font-face {font-family:Foo; src:url(foo.woff)}";
+        StylesheetSnapshot snapshot = snapshot(src, new AutoRefiner().all());
+        Stylesheet stylesheet = thaw(roundTrip(snapshot));
+
+        AtRule atRule = (AtRule)stylesheet.statements().first().get();
+        assertThat(atRule.isRefined()).isFalse();
+        assertThat(write(roundTrip(snapshot), new AutoRefiner().all())).isEqualTo(write(snapshot));
+    }
+
+    @Test
+    public void roundTripLargeStylesheet() throws IOException {
+        String src = Tools.readFile("/perftest/heavy.css");
+
+        StylesheetSnapshot unrefined = snapshot(src);
+        assertThat(write(roundTrip(unrefined))).isEqualTo(write(unrefined));
+
+        StylesheetSnapshot refined = snapshot(src, new AutoRefiner().all());
+        assertThat(write(roundTrip(refined))).isEqualTo(write(refined));
+    }
+
+    @Test
+    public void repeatedStringsAreWrittenOnce() throws IOException {
+        StringBuilder src = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            src.append(".some-long-class-name {display:none}\n");
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot(src.toString(), new AutoRefiner().all()).writeTo(output);
+        String bytes = new String(output.toByteArray(), "ISO-8859-1");
+        assertThat(bytes.indexOf("some-long-class-name")).isNotEqualTo(-1);
+        assertThat(bytes.indexOf("some-long-class-name")).isEqualTo(bytes.lastIndexOf("some-long-class-name"));
+        assertThat(output.size()).isLessThan(src.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void errorsIfNotASnapshot() throws IOException {
+        StylesheetSnapshot.readFrom(new ByteArrayInputStream(".a{color:red}".getBytes("UTF-8")));
+    }
+
+    @Test(expected = IOException.class)
+    public void errorsIfTruncated() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        snapshot(SRC).writeTo(output);
+        byte[] bytes = output.toByteArray();
+        StylesheetSnapshot.readFrom(new ByteArrayInputStream(bytes, 0, bytes.length / 2));
+    }
+}
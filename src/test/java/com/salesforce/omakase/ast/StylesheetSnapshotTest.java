@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.ast;
+
+import com.google.common.collect.Lists;
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.ast.atrule.AtRule;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.selector.ClassSelector;
+import com.salesforce.omakase.broadcast.annotation.Observe;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.plugin.basic.SyntaxTree;
+import com.salesforce.omakase.plugin.prefixer.Prefixer;
+import com.salesforce.omakase.tools.Tools;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link StylesheetSnapshot}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class StylesheetSnapshotTest {
+    private static final String SRC = "/*a*/.a, .b {color:red; margin:0}\n" +
+        "@media (max-width:800px) {.c {top:0}}\n" +
+        ".d {\n  display:none;\n  border: 1px solid red\n}\n" +
+        "/*orphaned*/";
+
+    private static StylesheetSnapshot snapshot(String source) {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(source).use(tree).process();
+        return new StylesheetSnapshot(tree.stylesheet());
+    }
+
+    private static String write(StylesheetSnapshot snapshot, Plugin... plugins) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(snapshot).use(plugins).use(writer).process();
+        return writer.write();
+    }
+
+    private static String write(String source, Plugin... plugins) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(plugins).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void size() {
+        assertThat(snapshot(SRC).size()).isEqualTo(3);
+    }
+
+    @Test
+    public void outputSameAsParsing() {
+        assertThat(write(snapshot(SRC))).isEqualTo(write(SRC));
+    }
+
+    @Test
+    public void outputSameAsParsingWhenRefined() {
+        assertThat(write(snapshot(SRC), new AutoRefiner().all())).isEqualTo(write(SRC, new AutoRefiner().all()));
+    }
+
+    @Test
+    public void reworkDoesNotAffectSnapshot() {
+        StylesheetSnapshot snapshot = snapshot(SRC);
+        String original = write(snapshot);
+
+        assertThat(write(snapshot, new AutoRefiner().all(), new Renamer())).contains(".a-x");
+        assertThat(write(snapshot)).isEqualTo(original);
+    }
+
+    @Test
+    public void snapshotIndependentFromOriginalStylesheet() {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(SRC).use(tree).process();
+        StylesheetSnapshot snapshot = new StylesheetSnapshot(tree.stylesheet());
+        String before = write(snapshot);
+
+        tree.stylesheet().statements().first().get().destroy();
+        assertThat(write(snapshot)).isEqualTo(before);
+    }
+
+    @Test
+    public void snapshotOfRefinedStylesheet() {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(SRC).use(tree).use(new AutoRefiner().all()).process();
+        StylesheetSnapshot snapshot = new StylesheetSnapshot(tree.stylesheet());
+        assertThat(write(snapshot)).isEqualTo(write(SRC, new AutoRefiner().all()));
+    }
+
+    @Test
+    public void snapshotOfRefinedFontFaceWithPrefixer() throws IOException {
+        for (String source : Lists.newArrayList("@font-face{font-family:X;src:url(a.woff)}",
+            Tools.readFile("/goldfile/sources/commented.css"))) {
+            SyntaxTree tree = new SyntaxTree();
+            Omakase.source(source).use(tree).use(new AutoRefiner().all()).process();
+            StylesheetSnapshot snapshot = new StylesheetSnapshot(tree.stylesheet());
+
+            String expected = write(source, new AutoRefiner().all(), Prefixer.defaultBrowserSupport());
+            assertThat(write(snapshot, new AutoRefiner().all(), Prefixer.defaultBrowserSupport())).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void takingSnapshotDoesNotRefineSource() {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source("@media (max-width:800px) {.c {top:0}}").use(tree).use(new AutoRefiner().atRules()).process();
+        new StylesheetSnapshot(tree.stylesheet());
+
+        AtRule media = (AtRule)tree.stylesheet().statements().first().get();
+        Rule rule = (Rule)media.block().get().statements().first().get();
+        assertThat(rule.declarations().first().get().isRefined()).isFalse();
+        assertThat(rule.selectors().first().get().isRefined()).isFalse();
+    }
+
+    @Test
+    public void unitsAreBroadcasted() {
+        Counter counter = new Counter();
+        Omakase.source(snapshot(SRC)).use(counter).process();
+        assertThat(counter.rules).isEqualTo(2);
+        assertThat(counter.declarations).isEqualTo(4);
+        assertThat(counter.stylesheets).isEqualTo(1);
+    }
+
+    @Test
+    public void positionsArePreserved() {
+        Positions positions = new Positions();
+        Omakase.source(snapshot(SRC)).use(positions).process();
+        assertThat(positions.lines).containsExactly(1, 1, 4, 5);
+    }
+
+    @Test
+    public void commentsArePreserved() {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(snapshot(SRC)).use(tree).process();
+        Rule rule = (Rule)tree.stylesheet().statements().first().get();
+        assertThat(rule.selectors().first().get().comments()).hasSize(1);
+        assertThat(tree.stylesheet().orphanedComments()).hasSize(1);
+    }
+
+    @Test
+    public void concurrentUse() throws Exception {
+        final StylesheetSnapshot snapshot = snapshot(SRC);
+        final String expected = write(SRC, new AutoRefiner().all(), new Renamer());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return write(snapshot, new AutoRefiner().all(), new Renamer());
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static final class Renamer implements Plugin {
+        @Rework
+        public void rename(ClassSelector selector) {
+            selector.name(selector.name() + "-x");
+        }
+    }
+
+    public static final class Counter implements Plugin {
+        int rules;
+        int declarations;
+        int stylesheets;
+
+        @Observe
+        public void rule(Rule rule) {
+            rules++;
+        }
+
+        @Observe
+        public void declaration(Declaration declaration) {
+            declarations++;
+        }
+
+        @Observe
+        public void stylesheet(Stylesheet stylesheet) {
+            stylesheets++;
+        }
+    }
+
+    public static final class Positions implements Plugin {
+        final List<Integer> lines = new ArrayList<>();
+
+        @Observe
+        public void declaration(Declaration declaration) {
+            lines.add(declaration.line());
+        }
+    }
+}
@@ -379,6 +379,26 @@ public class AtRuleTest {
         assertThat(copy.rawBlock().isPresent()).isTrue();
     }
 
+    @Test
+    public void copyUnrefined() {
+        AtRule ar = new AtRule(5, 5, "media-x", rawExpression, rawBlock, refiner);
+        ar.shouldWriteName(false);
+        AtRule copy = ar.copyUnrefined(refiner);
+
+        assertThat(copy.name()).isEqualTo("media-x");
+        assertThat(copy.line()).isEqualTo(5);
+        assertThat(copy.rawExpression().get()).isSameAs(rawExpression);
+        assertThat(copy.rawBlock().get()).isSameAs(rawBlock);
+        assertThat(copy.shouldWriteName()).isFalse();
+    }
+
+    @Test
+    public void copyUnrefinedWhenRefined() {
+        AtRule ar = new AtRule("test", new CustomExpression(), new CustomBlock());
+        exception.expect(IllegalStateException.class);
+        ar.copyUnrefined(refiner);
+    }
+
     @Test
     public void markAsMetadataRule() {
         AtRule ar = new AtRule(1, 1, "meta", new RawSyntax(1, 1, "ahoy"), null, refiner);
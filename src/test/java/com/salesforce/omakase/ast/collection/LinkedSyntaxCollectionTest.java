@@ -42,6 +42,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -543,6 +544,118 @@ public class LinkedSyntaxCollectionTest {
         assertThat(child1.status()).isNotSameAs(Status.UNBROADCASTED);
     }
 
+    @Test
+    public void iteratorContinuesAfterRemovingCurrent() {
+        collection.appendAll(Lists.newArrayList(child1, child2, child3));
+        List<Child> seen = Lists.newArrayList();
+        for (Child child : collection) {
+            seen.add(child);
+            if (child == child2) child2.destroy();
+        }
+        assertThat(seen).containsExactly(child1, child2, child3);
+        assertThat(collection).containsExactly(child1, child3);
+    }
+
+    @Test
+    public void iteratorContinuesAfterReplacingCurrent() {
+        Child replacement = new Child(4);
+        collection.appendAll(Lists.newArrayList(child1, child2, child3));
+        List<Child> seen = Lists.newArrayList();
+        for (Child child : collection) {
+            seen.add(child);
+            if (child == child2) {
+                child2.prepend(replacement);
+                child2.destroy();
+            }
+        }
+        assertThat(seen).containsExactly(child1, child2, child3);
+        assertThat(collection).containsExactly(child1, replacement, child3);
+    }
+
+    @Test
+    public void iteratorContinuesWithOldNextSiblingAfterMovingCurrentToEnd() {
+        collection.appendAll(Lists.newArrayList(child1, child2, child3));
+        List<Child> seen = Lists.newArrayList();
+        for (Child child : collection) {
+            seen.add(child);
+            if (seen.size() == 1) collection.append(child1);
+        }
+        assertThat(seen).containsExactly(child1, child2, child3, child1);
+    }
+
+    @Test
+    public void iteratorContinuesWithOldNextSiblingAfterMovingCurrentToStart() {
+        collection.appendAll(Lists.newArrayList(child1, child2, child3));
+        List<Child> seen = Lists.newArrayList();
+        for (Child child : collection) {
+            seen.add(child);
+            if (child == child2) collection.prepend(child2);
+        }
+        assertThat(seen).containsExactly(child1, child2, child3);
+        assertThat(collection).containsExactly(child2, child1, child3);
+    }
+
+    @Test
+    public void iteratorIncludesUnitsInsertedAfterCurrent() {
+        Child inserted = new Child(4);
+        collection.appendAll(Lists.newArrayList(child1, child2, child3));
+        List<Child> seen = Lists.newArrayList();
+        for (Child child : collection) {
+            seen.add(child);
+            if (child == child1) child1.append(inserted);
+        }
+        assertThat(seen).containsExactly(child1, inserted, child2, child3);
+    }
+
+    @Test
+    public void iteratorSkipsNextSiblingRemovedWhileIterating() {
+        collection.appendAll(Lists.newArrayList(child1, child2, child3));
+        List<Child> seen = Lists.newArrayList();
+        for (Child child : collection) {
+            seen.add(child);
+            if (child == child1) child2.destroy();
+        }
+        assertThat(seen).containsExactly(child1, child3);
+    }
+
+    @Test
+    public void iteratorContinuesAfterRemovingCurrentAndNextSibling() {
+        Child child4 = new Child(4);
+        collection.appendAll(Lists.newArrayList(child1, child2, child3, child4));
+        List<Child> seen = Lists.newArrayList();
+        for (Child child : collection) {
+            seen.add(child);
+            if (child == child2) {
+                child3.destroy();
+                child2.destroy();
+            }
+        }
+        assertThat(seen).containsExactly(child1, child2, child4);
+    }
+
+    @Test
+    public void linksCorrectAfterMovingWithinCollection() {
+        collection.appendAll(Lists.newArrayList(child1, child2, child3));
+        collection.append(child1);
+        assertThat(collection).containsExactly(child2, child3, child1);
+        assertThat(child1.previous().get()).isSameAs(child3);
+        assertThat(child2.previous().isPresent()).isFalse();
+        assertThat(collection.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void largeCollectionNeighbors() {
+        List<Child> children = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            children.add(new Child(i));
+        }
+        collection.appendAll(children);
+        collection.remove(children.get(70));
+        assertThat(collection.size()).isEqualTo(99);
+        assertThat(collection.next(children.get(69)).get()).isSameAs(children.get(71));
+        assertThat(collection.previous(children.get(71)).get()).isSameAs(children.get(69));
+    }
+
     private static final class Parent {
         private final SyntaxCollection<Parent, Child> collection = new LinkedSyntaxCollection<>(this);
     }
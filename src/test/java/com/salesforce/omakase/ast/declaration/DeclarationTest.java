@@ -47,6 +47,8 @@ import com.salesforce.omakase.data.Property;
 import com.salesforce.omakase.parser.refiner.MasterRefiner;
 import com.salesforce.omakase.test.StatusChangingBroadcaster;
 import com.salesforce.omakase.util.Values;
+import com.salesforce.omakase.writer.CustomWriter;
+import com.salesforce.omakase.writer.StyleAppendable;
 import com.salesforce.omakase.writer.StyleWriter;
 import org.junit.Before;
 import org.junit.Test;
@@ -107,6 +109,21 @@ public class DeclarationTest {
         assertThat(fromRaw.propertyName().name()).isEqualTo("display");
     }
 
+    @Test
+    public void unprefixedPropertyNameWhenUnrefined() {
+        RawSyntax name = new RawSyntax(2, 3, "-WEBKIT-Border-Radius");
+        RawSyntax value = new RawSyntax(2, 5, "3px");
+        Declaration d = new Declaration(name, value, new MasterRefiner(new StatusChangingBroadcaster()));
+        assertThat(d.unprefixedPropertyName()).isEqualTo("border-radius");
+        assertThat(d.isRefined()).isFalse();
+    }
+
+    @Test
+    public void unprefixedPropertyNameWhenRefined() {
+        Declaration d = new Declaration(PropertyName.of("-moz-box-sizing"), KeywordValue.of(Keyword.NONE));
+        assertThat(d.unprefixedPropertyName()).isEqualTo("box-sizing");
+    }
+
     @Test
     public void getPropertyNameWhenRefined() {
         assertThat(fromRaw.propertyName().name()).isEqualTo("display");
@@ -379,6 +396,101 @@ public class DeclarationTest {
         assertThat(StyleWriter.compressed().writeSingle(d)).isEqualTo("border:1px solid red");
     }
 
+    @Test
+    public void compactRawValues() {
+        String buffer = ".a{ border:\n  1px solid red}";
+        Declaration d = new Declaration(1, 5, 2, 3, buffer, 4, 10, 14, 27, new MasterRefiner(new StatusChangingBroadcaster()));
+
+        assertThat(d.containsRawSyntax()).isTrue();
+        assertThat(d.rawPropertyName().get().content()).isEqualTo("border");
+        assertThat(d.rawPropertyName().get().line()).isEqualTo(1);
+        assertThat(d.rawPropertyName().get().column()).isEqualTo(5);
+        assertThat(d.rawPropertyValue().get().content()).isEqualTo("1px solid red");
+        assertThat(d.rawPropertyValue().get().line()).isEqualTo(2);
+        assertThat(d.rawPropertyValue().get().column()).isEqualTo(3);
+    }
+
+    @Test
+    public void compactRawValuesAreCreatedOnce() {
+        Declaration d = new Declaration(1, 1, 1, 7, "color:red", 0, 5, 6, 9, new MasterRefiner(new StatusChangingBroadcaster()));
+        assertThat(d.rawPropertyName().get()).isSameAs(d.rawPropertyName().get());
+        assertThat(d.rawPropertyValue().get()).isSameAs(d.rawPropertyValue().get());
+    }
+
+    @Test
+    public void rawPropertyValueContent() {
+        Declaration compact = new Declaration(1, 1, 1, 7, "color:red", 0, 5, 6, 9, new MasterRefiner(new StatusChangingBroadcaster()));
+        assertThat(compact.rawPropertyValueContent().get()).isEqualTo("red");
+        assertThat(fromRaw.rawPropertyValueContent().get()).isEqualTo(rawValue.content());
+        assertThat(new Declaration(Property.COLOR, KeywordValue.of(Keyword.RED)).rawPropertyValueContent().isPresent()).isFalse();
+    }
+
+    @Test
+    public void compactRefine() {
+        Declaration d = new Declaration(1, 1, 1, 7, "color:red", 0, 5, 6, 9, new MasterRefiner(new StatusChangingBroadcaster()));
+        d.refine();
+        assertThat(d.isRefined()).isTrue();
+        assertThat(d.isProperty(Property.COLOR)).isTrue();
+        assertThat(d.propertyValue().members().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void copyUnrefinedCompact() {
+        Declaration d = new Declaration(1, 1, 1, 7, "color:red", 0, 5, 6, 9, new MasterRefiner(new StatusChangingBroadcaster()));
+        d.comment("test");
+        Declaration copy = d.copyUnrefined(new MasterRefiner(new StatusChangingBroadcaster()));
+
+        assertThat(copy.isRefined()).isFalse();
+        assertThat(copy.comments()).hasSize(1);
+        assertThat(copy.rawPropertyValue().get().content()).isEqualTo("red");
+        assertThat(copy.refine().isRefined()).isTrue();
+        assertThat(d.isRefined()).isFalse();
+    }
+
+    @Test
+    public void copyUnrefinedSharesRawSyntax() {
+        Declaration copy = fromRaw.copyUnrefined(new MasterRefiner(new StatusChangingBroadcaster()));
+        assertThat(copy.rawPropertyName().get()).isSameAs(rawName);
+        assertThat(copy.rawPropertyValue().get()).isSameAs(rawValue);
+    }
+
+    @Test
+    public void copyUnrefinedWhenRefined() {
+        exception.expect(IllegalStateException.class);
+        new Declaration(Property.COLOR, KeywordValue.of(Keyword.RED)).copyUnrefined(null);
+    }
+
+    @Test
+    public void compactInvalidOffsets() {
+        exception.expect(IndexOutOfBoundsException.class);
+        new Declaration(1, 1, 1, 7, "color:red", 0, 5, 6, 20, new MasterRefiner(new StatusChangingBroadcaster()));
+    }
+
+    @Test
+    public void writeVerboseCompactUnrefined() throws IOException {
+        Declaration d = new Declaration(1, 1, 1, 8, "border:1px solid red", 0, 6, 7, 20,
+            new MasterRefiner(new StatusChangingBroadcaster()));
+        assertThat(StyleWriter.verbose().writeSingle(d)).isEqualTo("border: 1px solid red");
+        assertThat(StyleWriter.compressed().writeSingle(d)).isEqualTo("border:1px solid red");
+    }
+
+    @Test
+    public void writeCompactUnrefinedWithCustomRawWriter() throws IOException {
+        Declaration d = new Declaration(1, 1, 1, 8, "border:1px solid red", 0, 6, 7, 20,
+            new MasterRefiner(new StatusChangingBroadcaster()));
+
+        StyleWriter writer = StyleWriter.compressed();
+        writer.addCustomWriter(RawSyntax.class, new CustomWriter<RawSyntax>() {
+            @Override
+            public boolean write(RawSyntax unit, StyleWriter writer, StyleAppendable appendable) throws IOException {
+                appendable.append(unit.content().toUpperCase());
+                return true;
+            }
+        });
+
+        assertThat(writer.writeSingle(d)).isEqualTo("BORDER:1PX SOLID RED");
+    }
+
     @Test
     public void isWritableWhenAttached() {
         Declaration d = new Declaration(Property.DISPLAY, KeywordValue.of(Keyword.NONE));
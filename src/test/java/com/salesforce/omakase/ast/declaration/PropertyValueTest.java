@@ -163,6 +163,80 @@ public class PropertyValueTest {
         assertThat(StyleWriter.compressed().writeSingle(val)).isEqualTo("1 2!important");
     }
 
+    @Test
+    public void writeCachedOutput() throws IOException {
+        PropertyValue val = PropertyValue.ofTerms(OperatorType.SPACE, NumericalValue.of(1), KeywordValue.of(Keyword.AUTO));
+        StyleWriter writer = StyleWriter.compressed().cacheOutput(true);
+        assertThat(writer.writeSingle(val)).isEqualTo("1 auto");
+
+        // the second time the whole value is appended at once
+        StringBuilder builder = new StringBuilder();
+        CountingAppendable counting = new CountingAppendable(builder);
+        writer.writeInner(val, new StyleAppendable(counting));
+        assertThat(builder.toString()).isEqualTo("1 auto");
+        assertThat(counting.count).isEqualTo(1);
+    }
+
+    @Test
+    public void cachedOutputPerMode() throws IOException {
+        PropertyValue val = PropertyValue.ofTerms(OperatorType.SPACE, NumericalValue.of(1), NumericalValue.of(2));
+        val.important(true);
+        assertThat(StyleWriter.compressed().cacheOutput(true).writeSingle(val)).isEqualTo("1 2!important");
+        assertThat(StyleWriter.verbose().cacheOutput(true).writeSingle(val)).isEqualTo("1 2 !important");
+    }
+
+    @Test
+    public void cachedOutputDiscardedWhenChanged() throws IOException {
+        NumericalValue n1 = NumericalValue.of(1);
+        KeywordValue keyword = KeywordValue.of(Keyword.AUTO);
+        PropertyValue val = PropertyValue.ofTerms(OperatorType.SPACE, n1, keyword);
+        StyleWriter writer = StyleWriter.compressed().cacheOutput(true);
+        assertThat(writer.writeSingle(val)).isEqualTo("1 auto");
+
+        n1.unit("px");
+        assertThat(writer.writeSingle(val)).isEqualTo("1px auto");
+
+        keyword.keyword("none");
+        assertThat(writer.writeSingle(val)).isEqualTo("1px none");
+
+        val.important(true);
+        assertThat(writer.writeSingle(val)).isEqualTo("1px none!important");
+
+        val.append(OperatorType.SLASH);
+        val.append(NumericalValue.of(2));
+        assertThat(writer.writeSingle(val)).isEqualTo("1px none/2!important");
+
+        keyword.destroy();
+        assertThat(writer.writeSingle(val)).isEqualTo("1px /2!important");
+    }
+
+    @Test
+    public void copySharesCachedOutput() throws IOException {
+        NumericalValue n1 = NumericalValue.of(1);
+        PropertyValue val = PropertyValue.ofTerms(OperatorType.SPACE, n1, NumericalValue.of(2));
+        StyleWriter writer = StyleWriter.compressed().cacheOutput(true);
+        writer.writeSingle(val);
+
+        PropertyValue copy = val.copy();
+        n1.value(5);
+        assertThat(writer.writeSingle(val)).isEqualTo("5 2");
+        assertThat(writer.writeSingle(copy)).isEqualTo("1 2");
+
+        ((NumericalValue)copy.members().first().get()).value(3);
+        assertThat(writer.writeSingle(copy)).isEqualTo("3 2");
+    }
+
+    @Test
+    public void customTermsNotCached() throws IOException {
+        PropertyValue val = PropertyValue.ofTerms(OperatorType.SPACE, NumericalValue.of(1), new NonWritableTerm());
+        StyleWriter writer = StyleWriter.compressed().cacheOutput(true);
+        writer.writeSingle(val);
+
+        CountingAppendable counting = new CountingAppendable(new StringBuilder());
+        writer.writeInner(val, new StyleAppendable(counting));
+        assertThat(counting.count).isGreaterThan(1);
+    }
+
     @Test
     public void defaultNoParentDeclaration() {
         PropertyValue val = PropertyValue.of(NumericalValue.of(1));
@@ -207,6 +281,33 @@ public class PropertyValueTest {
         assertThat(pv.singleTextualValue().isPresent()).isFalse();
     }
 
+    private static final class CountingAppendable implements Appendable {
+        private final Appendable delegate;
+        int count;
+
+        CountingAppendable(Appendable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            count++;
+            return delegate.append(csq);
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            count++;
+            return delegate.append(csq, start, end);
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            count++;
+            return delegate.append(c);
+        }
+    }
+
     private static final class NonWritableTerm extends AbstractTerm {
         @Override
         public boolean isWritable() {
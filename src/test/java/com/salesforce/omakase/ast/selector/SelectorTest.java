@@ -152,6 +152,37 @@ public class SelectorTest {
         assertThat(StyleWriter.compressed().writeSingle(selector)).isEqualTo(".class>#id");
     }
 
+    @Test
+    public void cachedOutputDiscardedWhenChanged() throws IOException {
+        ClassSelector cs = new ClassSelector("class");
+        selector = new Selector(cs, Combinator.child(), new IdSelector("id"));
+        StyleWriter writer = StyleWriter.compressed().cacheOutput(true);
+        assertThat(writer.writeSingle(selector)).isEqualTo(".class>#id");
+        assertThat(StyleWriter.verbose().cacheOutput(true).writeSingle(selector)).isEqualTo(".class > #id");
+
+        cs.name("changed");
+        assertThat(writer.writeSingle(selector)).isEqualTo(".changed>#id");
+
+        cs.append(new PseudoClassSelector("hover"));
+        assertThat(writer.writeSingle(selector)).isEqualTo(".changed:hover>#id");
+
+        cs.destroy();
+        assertThat(writer.writeSingle(selector)).isEqualTo(":hover>#id");
+    }
+
+    @Test
+    public void copySharesCachedOutput() throws IOException {
+        ClassSelector cs = new ClassSelector("class");
+        selector = new Selector(cs);
+        StyleWriter writer = StyleWriter.compressed().cacheOutput(true);
+        writer.writeSingle(selector);
+
+        Selector copy = selector.copy();
+        cs.name("changed");
+        assertThat(writer.writeSingle(selector)).isEqualTo(".changed");
+        assertThat(writer.writeSingle(copy)).isEqualTo(".class");
+    }
+
     @Test
     public void writeVerboseUnrefined() throws IOException {
         RawSyntax raw = new RawSyntax(5, 2, ".class > #id");
@@ -225,6 +256,32 @@ public class SelectorTest {
         assertThat(Iterables.get(copy.parts(), 2)).isInstanceOf(IdSelector.class);
     }
 
+    @Test
+    public void copyUnrefined() {
+        RawSyntax raw = new RawSyntax(2, 3, ".class > #id");
+        selector = new Selector(raw, new MasterRefiner(new StatusChangingBroadcaster()));
+        selector.comment("test");
+
+        MasterRefiner refiner = new MasterRefiner(new StatusChangingBroadcaster());
+        Selector copy = selector.copyUnrefined(refiner);
+        assertThat(copy.raw().get()).isSameAs(raw);
+        assertThat(copy.line()).isEqualTo(2);
+        assertThat(copy.comments()).hasSize(1);
+        assertThat(copy.isRefined()).isFalse();
+        assertThat(selector.isRefined()).isFalse();
+
+        copy.refine();
+        assertThat(copy.parts()).hasSize(3);
+        assertThat(selector.isRefined()).isFalse();
+    }
+
+    @Test
+    public void copyUnrefinedWhenRefined() {
+        selector = new Selector(new ClassSelector("test"));
+        exception.expect(IllegalStateException.class);
+        selector.copyUnrefined(new MasterRefiner(new StatusChangingBroadcaster()));
+    }
+
     @Test
     public void keyframeSelectorTrue() {
         selector = new Selector(new KeyframeSelector("from"));
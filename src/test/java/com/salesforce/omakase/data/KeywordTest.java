@@ -59,4 +59,24 @@ public class KeywordTest {
         PropertyValue pv = PropertyValue.of(KeywordValue.of(Keyword.BLOCK));
         assertThat(Keyword.NONE.isOnlyValueIn(pv)).isFalse();
     }
+
+    @Test
+    public void colorOfBasicNamedColor() {
+        assertThat(Keyword.RED.color().get()).isEqualTo("ff0000");
+        assertThat(Keyword.NAVY.color().get()).isEqualTo("000080");
+    }
+
+    @Test
+    public void colorOfOtherKeyword() {
+        assertThat(Keyword.NONE.color().isPresent()).isFalse();
+    }
+
+    @Test
+    public void basicNamedColorsHaveColor() {
+        int count = 0;
+        for (Keyword keyword : Keyword.values()) {
+            if (keyword.color().isPresent()) count++;
+        }
+        assertThat(count).isEqualTo(16);
+    }
 }
@@ -425,6 +425,20 @@ public class SourceTest {
         assertThat(source.index()).isEqualTo(17);
     }
 
+    @Test
+    public void skipUntil() {
+        Source source = new Source("123___*\n\n123  abc} \n 123");
+        assertThat(source.skipUntil(Tokens.CLOSE_BRACE).index()).isEqualTo(17);
+        assertThat(source.current()).isEqualTo('}');
+    }
+
+    @Test
+    public void fullSourceIsShared() {
+        Source source = new Source("a{b:c}");
+        assertThat(source.fullSource()).isSameAs(source.fullSource());
+        assertThat(source.fullSource()).isEqualTo("a{b:c}");
+    }
+
     @Test
     public void untilWhenAtEof() {
         Source source = new Source("a}");
@@ -29,9 +29,13 @@ package com.salesforce.omakase.parser.raw;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.salesforce.omakase.Message;
+import com.salesforce.omakase.ast.RawSyntax;
 import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.broadcast.QueryableBroadcaster;
 import com.salesforce.omakase.parser.AbstractParserTest;
 import com.salesforce.omakase.parser.ParserException;
+import com.salesforce.omakase.parser.Source;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
 import com.salesforce.omakase.test.util.TemplatesHelper.SourceWithExpectedResult;
 import org.junit.Test;
 
@@ -209,6 +213,28 @@ public class RawDeclarationParserTest extends AbstractParserTest<RawDeclarationP
         }
     }
 
+    @Test
+    public void propertyValuePosition() {
+        QueryableBroadcaster broadcaster = new QueryableBroadcaster();
+        new RawDeclarationParser().parse(new Source("color:\r\n  red"), broadcaster, new MasterRefiner(broadcaster));
+
+        RawSyntax value = broadcaster.findOnly(Declaration.class).get().rawPropertyValue().get();
+        assertThat(value.line()).isEqualTo(2);
+        assertThat(value.column()).isEqualTo(3);
+    }
+
+    @Test
+    public void propertyValuePositionInSubSource() {
+        QueryableBroadcaster broadcaster = new QueryableBroadcaster();
+        new RawDeclarationParser().parse(new Source("color: red", 5, 10), broadcaster, new MasterRefiner(broadcaster));
+
+        Declaration d = broadcaster.findOnly(Declaration.class).get();
+        assertThat(d.rawPropertyName().get().line()).isEqualTo(5);
+        assertThat(d.rawPropertyName().get().column()).isEqualTo(10);
+        assertThat(d.rawPropertyValue().get().line()).isEqualTo(5);
+        assertThat(d.rawPropertyValue().get().column()).isEqualTo(17);
+    }
+
     @Test
     public void missingColon() {
         exception.expect(ParserException.class);
@@ -31,9 +31,13 @@ import com.salesforce.omakase.ast.atrule.AtRule;
 import com.salesforce.omakase.ast.declaration.Declaration;
 import com.salesforce.omakase.ast.declaration.PropertyValue;
 import com.salesforce.omakase.ast.declaration.RawFunction;
+import com.salesforce.omakase.ast.declaration.Term;
+import com.salesforce.omakase.ast.selector.ClassSelector;
 import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.ast.selector.SelectorPart;
 import com.salesforce.omakase.broadcast.Broadcaster;
 import com.salesforce.omakase.broadcast.QueryableBroadcaster;
+import com.salesforce.omakase.writer.StyleWriter;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -125,6 +129,119 @@ public class MasterRefinerTest {
         refiner.refine(declaration);
     }
 
+    @Test
+    public void memoizedSelectorRefinedOnce() {
+        SelectorStrategyNone strategy = new SelectorStrategyNone();
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).register(strategy).memoize(true);
+
+        Selector first = new Selector(new RawSyntax(1, 1, ".a > .b"), refiner);
+        Selector second = new Selector(new RawSyntax(5, 1, ".a > .b"), refiner);
+        refiner.refine(first);
+        strategy.called = false;
+        refiner.refine(second);
+
+        assertThat(strategy.called).isFalse();
+        assertThat(second.isRefined()).isTrue();
+        assertThat(StyleWriter.compressed().writeSingle(second)).isEqualTo(".a>.b");
+        assertThat(second.parts().first().get()).isNotSameAs(first.parts().first().get());
+    }
+
+    @Test
+    public void memoizedSelectorPartsAreBroadcasted() {
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).memoize(true);
+        refiner.refine(new Selector(new RawSyntax(1, 1, ".a.b"), refiner));
+
+        QueryableBroadcaster broadcaster = new QueryableBroadcaster();
+        Selector selector = new Selector(new RawSyntax(5, 1, ".a.b"), refiner);
+        refiner.refine(selector, broadcaster);
+
+        assertThat(broadcaster.filter(ClassSelector.class)).hasSize(2);
+        assertThat(selector.parts().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void memoizedSelectorUnaffectedByChanges() {
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).memoize(true);
+        Selector first = new Selector(new RawSyntax(1, 1, ".a"), refiner);
+        refiner.refine(first);
+        ((ClassSelector)first.parts().first().get()).name("changed");
+
+        Selector second = new Selector(new RawSyntax(5, 1, ".a"), refiner);
+        refiner.refine(second);
+        assertThat(StyleWriter.compressed().writeSingle(second)).isEqualTo(".a");
+    }
+
+    @Test
+    public void selectorWithCommentNotMemoized() {
+        SelectorStrategyNone strategy = new SelectorStrategyNone();
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).register(strategy).memoize(true);
+        refiner.refine(new Selector(new RawSyntax(1, 1, ".a /*x*/"), refiner));
+        strategy.called = false;
+        refiner.refine(new Selector(new RawSyntax(5, 1, ".a /*x*/"), refiner));
+        assertThat(strategy.called).isTrue();
+    }
+
+    @Test
+    public void selectorNotMemoizedByDefault() {
+        SelectorStrategyNone strategy = new SelectorStrategyNone();
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).register(strategy);
+        refiner.refine(new Selector(new RawSyntax(1, 1, ".a"), refiner));
+        strategy.called = false;
+        refiner.refine(new Selector(new RawSyntax(5, 1, ".a"), refiner));
+        assertThat(strategy.called).isTrue();
+    }
+
+    @Test
+    public void memoizedDeclarationRefinedOnce() {
+        DeclarationStrategyNone strategy = new DeclarationStrategyNone();
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).register(strategy).memoize(true);
+
+        Declaration first = new Declaration(new RawSyntax(1, 1, "margin"), new RawSyntax(1, 8, "0 auto !important"), refiner);
+        Declaration second = new Declaration(new RawSyntax(5, 1, "margin"), new RawSyntax(5, 8, "0 auto !important"), refiner);
+        refiner.refine(first);
+        strategy.called = false;
+        refiner.refine(second);
+
+        assertThat(strategy.called).isFalse();
+        assertThat(second.propertyValue()).isNotSameAs(first.propertyValue());
+        assertThat(second.propertyValue().isImportant()).isTrue();
+        assertThat(StyleWriter.compressed().writeSingle(second)).isEqualTo("margin:0 auto!important");
+    }
+
+    @Test
+    public void memoizedDeclarationValueIsBroadcasted() {
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).memoize(true);
+        refiner.refine(new Declaration(new RawSyntax(1, 1, "margin"), new RawSyntax(1, 8, "0 auto"), refiner));
+
+        QueryableBroadcaster broadcaster = new QueryableBroadcaster();
+        Declaration declaration = new Declaration(new RawSyntax(5, 1, "margin"), new RawSyntax(5, 8, "0 auto"), refiner);
+        refiner.refine(declaration, broadcaster);
+
+        assertThat(broadcaster.filter(Term.class)).hasSize(2);
+        assertThat(broadcaster.filter(PropertyValue.class)).hasSize(1);
+        assertThat(broadcaster.filter(SelectorPart.class)).isEmpty();
+    }
+
+    @Test
+    public void declarationMemoizedPerPropertyName() {
+        DeclarationStrategyNone strategy = new DeclarationStrategyNone();
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).register(strategy).memoize(true);
+        refiner.refine(new Declaration(new RawSyntax(1, 1, "margin"), new RawSyntax(1, 8, "0"), refiner));
+        strategy.called = false;
+        refiner.refine(new Declaration(new RawSyntax(5, 1, "padding"), new RawSyntax(5, 8, "0"), refiner));
+        assertThat(strategy.called).isTrue();
+    }
+
+    @Test
+    public void declarationWithFunctionNotMemoized() {
+        DeclarationStrategyNone strategy = new DeclarationStrategyNone();
+        MasterRefiner refiner = new MasterRefiner(new QueryableBroadcaster()).register(strategy).memoize(true);
+        refiner.refine(new Declaration(new RawSyntax(1, 1, "color"), new RawSyntax(1, 8, "rgb(0,0,0)"), refiner));
+        strategy.called = false;
+        refiner.refine(new Declaration(new RawSyntax(5, 1, "color"), new RawSyntax(5, 8, "rgb(0,0,0)"), refiner));
+        assertThat(strategy.called).isTrue();
+    }
+
     @Test
     public void functionValueRefinement() {
         FunctionStrategyFull strategy = new FunctionStrategyFull();
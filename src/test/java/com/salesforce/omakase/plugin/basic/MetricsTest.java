@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.basic;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.ast.selector.ClassSelector;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.broadcast.annotation.Rework;
+import com.salesforce.omakase.plugin.Plugin;
+import com.salesforce.omakase.plugin.basic.Metrics.SubscriptionKey;
+import com.salesforce.omakase.plugin.basic.Metrics.Timer;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link Metrics}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class MetricsTest {
+    private static final String SRC = ".a, .b {color:red; margin:0} .c {display:none}";
+
+    @Test
+    public void retrievableFromRegistry() {
+        Metrics metrics = new Metrics();
+        PluginRegistry registry = Omakase.source(SRC).use(metrics).process();
+        assertThat(registry.retrieve(Metrics.class).get()).isSameAs(metrics);
+    }
+
+    @Test
+    public void recordsSubscriptionsPerPluginMethodAndType() {
+        Metrics metrics = new Metrics();
+        Omakase.source(SRC).use(metrics).use(new AutoRefiner().all()).use(new CountingPlugin()).process();
+
+        Timer classSelectors = null;
+        for (Map.Entry<SubscriptionKey, Timer> entry : metrics.subscriptions().entrySet()) {
+            SubscriptionKey key = entry.getKey();
+            if (key.plugin() == CountingPlugin.class && key.unitType() == ClassSelector.class) {
+                assertThat(key.method().getName()).isEqualTo("classSelector");
+                classSelectors = entry.getValue();
+            }
+        }
+
+        assertThat(classSelectors).isNotNull();
+        assertThat(classSelectors.count()).isEqualTo(3);
+        assertThat(classSelectors.nanos()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void totalsPerPlugin() {
+        Metrics metrics = new Metrics();
+        Omakase.source(SRC).use(metrics).use(new AutoRefiner().all()).use(new CountingPlugin()).process();
+
+        Timer plugin = metrics.plugins().get(CountingPlugin.class);
+        assertThat(plugin.count()).isEqualTo(6); // 3 class selectors + 3 declarations
+    }
+
+    @Test
+    public void recordsBroadcastCounts() {
+        Metrics metrics = new Metrics();
+        Omakase.source(SRC).use(metrics).use(new AutoRefiner().all()).use(new CountingPlugin()).process();
+
+        // once in each phase
+        assertThat(metrics.broadcasts().get(Selector.class).count()).isEqualTo(6);
+        assertThat(metrics.broadcasts().get(Declaration.class).count()).isEqualTo(6);
+    }
+
+    @Test
+    public void recordsRefinements() {
+        Metrics metrics = new Metrics();
+        Omakase.source(SRC).use(metrics).use(new AutoRefiner().all()).process();
+
+        assertThat(metrics.refinements().get(Selector.class).count()).isEqualTo(3);
+        assertThat(metrics.refinements().get(Declaration.class).count()).isEqualTo(3);
+    }
+
+    @Test
+    public void noRefinementsRecordedIfNotRefined() {
+        Metrics metrics = new Metrics();
+        Omakase.source(SRC).use(metrics).process();
+        assertThat(metrics.refinements()).isEmpty();
+    }
+
+    @Test
+    public void recordsWriting() {
+        Metrics metrics = new Metrics();
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(SRC).use(metrics).use(writer).process();
+
+        writer.write();
+        writer.write();
+        assertThat(metrics.writing().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void writingNotRecordedWithoutMetrics() {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(SRC).use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a,.b{color:red;margin:0}.c{display:none}");
+    }
+
+    @Test
+    public void summary() {
+        Metrics metrics = new Metrics();
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(SRC).use(metrics).use(new AutoRefiner().all()).use(new CountingPlugin()).use(writer).process();
+        writer.write();
+
+        String summary = metrics.summary();
+        assertThat(summary).contains(CountingPlugin.class.getName() + "#classSelector(ClassSelector): 3 in");
+        assertThat(summary).contains("Declaration: 3 in");
+        assertThat(summary).contains("StyleWriter: 1 in");
+    }
+
+    public static final class CountingPlugin implements Plugin {
+        @Rework
+        public void classSelector(ClassSelector selector) {}
+
+        @Rework
+        public void declaration(Declaration declaration) {}
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.basic;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.PluginRegistry;
+import com.salesforce.omakase.ast.StylesheetSnapshot;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.broadcast.Broadcaster;
+import com.salesforce.omakase.parser.refiner.DeclarationRefiner;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
+import com.salesforce.omakase.parser.refiner.RefinerRegistry;
+import com.salesforce.omakase.parser.refiner.Refinement;
+import com.salesforce.omakase.plugin.SyntaxPlugin;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ParseStats}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class ParseStatsTest {
+    private static final String SRC = ".a, .b {color:red; margin:0} .c {display:none} @media (max-width:800px) {.d {top:0}}";
+
+    @Test
+    public void retrievableFromRegistry() {
+        ParseStats stats = new ParseStats();
+        PluginRegistry registry = Omakase.source(SRC).use(stats).process();
+        assertThat(registry.retrieve(ParseStats.class).get()).isSameAs(stats);
+    }
+
+    @Test
+    public void recordsInputLength() {
+        ParseStats stats = new ParseStats();
+        Omakase.source(SRC).use(stats).process();
+        assertThat(stats.inputLength()).isEqualTo(SRC.length());
+    }
+
+    @Test
+    public void recordsInputLengthAndTimeForSnapshot() {
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(SRC).use(tree).process();
+        StylesheetSnapshot snapshot = new StylesheetSnapshot(tree.stylesheet(), SRC.length());
+
+        ParseStats stats = new ParseStats();
+        Omakase.source(snapshot).use(stats).process();
+        assertThat(stats.inputLength()).isEqualTo(SRC.length());
+        assertThat(stats.parseNanos()).isGreaterThan(0);
+    }
+
+    @Test
+    public void recordsTimings() {
+        ParseStats stats = new ParseStats();
+        Omakase.source(SRC).use(stats).process();
+        assertThat(stats.parseNanos()).isGreaterThan(0);
+        assertThat(stats.processNanos()).isGreaterThanOrEqualTo(0);
+        assertThat(stats.validateNanos()).isGreaterThanOrEqualTo(0);
+        assertThat(stats.postProcessNanos()).isGreaterThanOrEqualTo(0);
+        assertThat(stats.totalNanos()).isGreaterThanOrEqualTo(stats.parseNanos());
+        assertThat(stats.charsPerSecond()).isGreaterThan(0);
+    }
+
+    @Test
+    public void countsUnits() {
+        ParseStats stats = new ParseStats();
+        Omakase.source(SRC).use(stats).use(new AutoRefiner().all()).process();
+        assertThat(stats.rules()).isEqualTo(3);
+        assertThat(stats.selectors()).isEqualTo(4);
+        assertThat(stats.declarations()).isEqualTo(4);
+        assertThat(stats.atRules()).isEqualTo(1);
+    }
+
+    @Test
+    public void countsRefinedUnitsWithAutoRefiner() {
+        ParseStats stats = new ParseStats();
+        Omakase.source(SRC).use(stats).use(new AutoRefiner().all()).process();
+        assertThat(stats.refinedSelectors()).isEqualTo(4);
+        assertThat(stats.refinedDeclarations()).isEqualTo(4);
+        assertThat(stats.refinedAtRules()).isEqualTo(1);
+        assertThat(stats.maxDepth()).isEqualTo(2);
+    }
+
+    @Test
+    public void countsNoRefinedUnitsWithoutRefinement() {
+        ParseStats stats = new ParseStats();
+        Omakase.source(SRC).use(stats).process();
+        assertThat(stats.refinedSelectors()).isEqualTo(0);
+        assertThat(stats.refinedDeclarations()).isEqualTo(0);
+        assertThat(stats.maxDepth()).isEqualTo(1);
+    }
+
+    @Test
+    public void countsDeclinedRefinements() {
+        ParseStats stats = new ParseStats();
+        Omakase.source(".a {color:red; margin:0} .b {top:0}").use(stats).use(new DecliningPlugin())
+            .use(new AutoRefiner().declarations()).process();
+        assertThat(stats.declinedRefinements()).isEqualTo(3);
+    }
+
+    @Test
+    public void toStringIncludesCounts() {
+        ParseStats stats = new ParseStats();
+        Omakase.source(SRC).use(stats).process();
+        assertThat(stats.toString()).contains("rules").doesNotContain("tree");
+    }
+
+    public static final class DecliningPlugin implements SyntaxPlugin {
+        @Override
+        public void registerRefiners(RefinerRegistry registry) {
+            registry.register(new DeclarationRefiner() {
+                @Override
+                public Refinement refine(Declaration declaration, Broadcaster broadcaster, MasterRefiner refiner) {
+                    return Refinement.NONE;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.ast.Syntax;
+import com.salesforce.omakase.error.ErrorLevel;
+import com.salesforce.omakase.error.ErrorManager;
+import com.salesforce.omakase.parser.ParserException;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link AtRuleDeduplicator}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class AtRuleDeduplicatorTest {
+    private static final String SPIN = "@keyframes spin {from {transform:rotate(0)} to {transform:rotate(360deg)}}";
+    private static final String FONT = "@font-face {font-family:'Open Sans'; src:url(open.woff); font-weight:400}";
+
+    private final RecordingErrorManager em = new RecordingErrorManager();
+
+    private String dedup(String source) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new AtRuleDeduplicator()).use(writer).use(em).process();
+        return writer.write();
+    }
+
+    @Test
+    public void removesDuplicateKeyframes() {
+        assertThat(dedup(SPIN + ".a{color:red}" + SPIN)).isEqualTo(
+            "@keyframes spin{from{transform:rotate(0)}to{transform:rotate(360deg)}}.a{color:red}");
+        assertThat(em.messages).isEmpty();
+    }
+
+    @Test
+    public void comparesKeyframesInCanonicalForm() {
+        String other = "@keyframes spin {\n  from { transform: rotate(0) }\n  to { transform: rotate(360deg) }\n}";
+        assertThat(dedup(SPIN + other)).isEqualTo("@keyframes spin{from{transform:rotate(0)}to{transform:rotate(360deg)}}");
+    }
+
+    @Test
+    public void keepsPrefixedKeyframesSeparate() {
+        String prefixed = "@-webkit-keyframes spin {from {top:0} to {top:1px}}";
+        String unprefixed = "@keyframes spin {from {top:0} to {top:1px}}";
+        assertThat(dedup(prefixed + unprefixed)).isEqualTo(
+            "@-webkit-keyframes spin{from{top:0}to{top:1px}}@keyframes spin{from{top:0}to{top:1px}}");
+    }
+
+    @Test
+    public void keepsDifferentKeyframesNames() {
+        String source = "@keyframes a {from {top:0} to {top:1px}} @keyframes b {from {top:0} to {top:1px}}";
+        assertThat(dedup(source)).isEqualTo("@keyframes a{from{top:0}to{top:1px}}@keyframes b{from{top:0}to{top:1px}}");
+    }
+
+    @Test
+    public void reportsConflictingKeyframes() {
+        String source = "@keyframes fade {from {opacity:0} to {opacity:1}} @keyframes fade {from {opacity:1} to {opacity:0}}";
+        assertThat(dedup(source)).isEqualTo(
+            "@keyframes fade{from{opacity:0}to{opacity:1}}@keyframes fade{from{opacity:1}to{opacity:0}}");
+        assertThat(em.levels).containsExactly(ErrorLevel.WARNING);
+        assertThat(em.messages.get(0)).contains("Keyframes 'fade'");
+    }
+
+    @Test
+    public void keepsDuplicateThatRestoresOverriddenContent() {
+        String a = "@keyframes fade {from {opacity:0} to {opacity:1}}";
+        String b = "@keyframes fade {from {opacity:1} to {opacity:0}}";
+        assertThat(dedup(a + b + a)).isEqualTo("@keyframes fade{from{opacity:0}to{opacity:1}}" +
+            "@keyframes fade{from{opacity:1}to{opacity:0}}@keyframes fade{from{opacity:0}to{opacity:1}}");
+        assertThat(em.messages).hasSize(2);
+    }
+
+    @Test
+    public void removesDuplicateFontFace() {
+        String reordered = "@font-face {font-weight:400; font-family:'Open Sans'; src:url(open.woff)}";
+        assertThat(dedup(FONT + ".a{color:red}" + reordered)).isEqualTo(
+            "@font-face{font-family:'Open Sans';src:url(open.woff);font-weight:400}.a{color:red}");
+        assertThat(em.messages).isEmpty();
+    }
+
+    @Test
+    public void keepsDifferentFontFaces() {
+        String bold = "@font-face {font-family:'Open Sans'; src:url(open-bold.woff); font-weight:700}";
+        assertThat(dedup(FONT + bold)).isEqualTo("@font-face{font-family:'Open Sans';src:url(open.woff);font-weight:400}" +
+            "@font-face{font-family:'Open Sans';src:url(open-bold.woff);font-weight:700}");
+        assertThat(em.messages).isEmpty();
+    }
+
+    @Test
+    public void reportsConflictingFontFace() {
+        String other = "@font-face {font-family:\"open sans\"; src:url(other.woff); font-weight:400}";
+        assertThat(dedup(FONT + other)).isEqualTo("@font-face{font-family:'Open Sans';src:url(open.woff);font-weight:400}" +
+            "@font-face{font-family:\"open sans\";src:url(other.woff);font-weight:400}");
+        assertThat(em.levels).containsExactly(ErrorLevel.WARNING);
+        assertThat(em.messages.get(0)).contains("Font face '\"open sans\"'");
+    }
+
+    @Test
+    public void keepsDuplicateWithComments() {
+        assertThat(dedup(SPIN + "/* keep */" + SPIN)).isEqualTo(
+            "@keyframes spin{from{transform:rotate(0)}to{transform:rotate(360deg)}}" +
+                "@keyframes spin{from{transform:rotate(0)}to{transform:rotate(360deg)}}");
+    }
+
+    @Test
+    public void linearOnManyAtRules() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            source.append("@keyframes k").append(i % 50).append(" {from {top:0} to {top:1px}}");
+        }
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new AtRuleDeduplicator()).use(writer).process();
+        assertThat(writer.write().split("@keyframes")).hasSize(51);
+    }
+
+    private static final class RecordingErrorManager implements ErrorManager {
+        final List<ErrorLevel> levels = new ArrayList<>();
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void report(ErrorLevel level, ParserException exception) {
+            throw new AssertionError(exception.getMessage());
+        }
+
+        @Override
+        public void report(ErrorLevel level, Syntax cause, String message) {
+            levels.add(level);
+            messages.add(message);
+        }
+
+        @Override
+        public String getSourceName() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ColorMinifier}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class ColorMinifierTest {
+    private static String minify(String source) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new ColorMinifier()).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void shortensHex() {
+        assertThat(minify(".a {color:#AABBCC}")).isEqualTo(".a{color:#abc}");
+    }
+
+    @Test
+    public void keepsHexThatCannotBeShortened() {
+        assertThat(minify(".a {color:#aabbcd}")).isEqualTo(".a{color:#aabbcd}");
+    }
+
+    @Test
+    public void hexToShorterName() {
+        assertThat(minify(".a {color:#ff0000; background:#808080 url(x.png)}")).isEqualTo(".a{color:red;background:gray url(x.png)}");
+    }
+
+    @Test
+    public void shortHexToShorterName() {
+        assertThat(minify(".a {color:#F00}")).isEqualTo(".a{color:red}");
+    }
+
+    @Test
+    public void nameToShorterHex() {
+        assertThat(minify(".a {color:white; border:1px solid black}")).isEqualTo(".a{color:#fff;border:1px solid #000}");
+    }
+
+    @Test
+    public void keepsNameWhenNotShorter() {
+        assertThat(minify(".a {color:blue; background-color:red}")).isEqualTo(".a{color:blue;background-color:red}");
+    }
+
+    @Test
+    public void keepsNameInNonColorProperty() {
+        assertThat(minify(".a {animation-name:white}")).isEqualTo(".a{animation-name:white}");
+    }
+
+    @Test
+    public void rgbToHex() {
+        assertThat(minify(".a {color:rgb(17, 34, 51)}")).isEqualTo(".a{color:#123}");
+    }
+
+    @Test
+    public void rgbToName() {
+        assertThat(minify(".a {color:rgb(255,0,0)}")).isEqualTo(".a{color:red}");
+    }
+
+    @Test
+    public void rgbPercentages() {
+        assertThat(minify(".a {color:rgb(100%, 0%, 100%)}")).isEqualTo(".a{color:#f0f}");
+    }
+
+    @Test
+    public void rgbSpaceSeparated() {
+        assertThat(minify(".a {color:rgb(18 52 86)}")).isEqualTo(".a{color:#123456}");
+    }
+
+    @Test
+    public void opaqueRgbaToHex() {
+        assertThat(minify(".a {color:rgba(0,0,0,1)}")).isEqualTo(".a{color:#000}");
+    }
+
+    @Test
+    public void keepsTranslucentRgba() {
+        assertThat(minify(".a {color:rgba(0,0,0,0.5)}")).isEqualTo(".a{color:rgba(0,0,0,0.5)}");
+    }
+
+    @Test
+    public void transparentBlack() {
+        assertThat(minify(".a {color:rgba(0,0,0,0)}")).isEqualTo(".a{color:transparent}");
+    }
+
+    @Test
+    public void hslToHex() {
+        assertThat(minify(".a {color:hsl(0, 100%, 50%); background-color:hsla(120deg,100%,25%,1)}"))
+            .isEqualTo(".a{color:red;background-color:green}");
+    }
+
+    @Test
+    public void hslGray() {
+        assertThat(minify(".a {color:hsl(200, 0%, 100%)}")).isEqualTo(".a{color:#fff}");
+    }
+
+    @Test
+    public void keepsDynamicArguments() {
+        assertThat(minify(".a {color:rgb(var(--r), 0, 0)}")).isEqualTo(".a{color:rgb(var(--r), 0, 0)}");
+    }
+
+    @Test
+    public void keepsOtherFunctions() {
+        assertThat(minify(".a {width:calc(100% - 10px)}")).isEqualTo(".a{width:calc(100% - 10px)}");
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.writer.WriterMode;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link CriticalCssExtractor}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class CriticalCssExtractorTest {
+    private static CriticalCssExtractor extract(String source, SelectorInventory inventory) {
+        CriticalCssExtractor extractor = new CriticalCssExtractor(inventory);
+        Omakase.source(source).use(extractor).process();
+        return extractor;
+    }
+
+    @Test
+    public void splitsRules() {
+        CriticalCssExtractor extractor = extract(".a {color:red} .b {color:blue} .a .c {margin:0}",
+            new SelectorInventory().classes("a", "c"));
+        assertThat(extractor.critical().write()).isEqualTo(".a{color:red}.a .c{margin:0}");
+        assertThat(extractor.deferred().write()).isEqualTo(".b{color:blue}");
+    }
+
+    @Test
+    public void ruleIsCriticalIfAnySelectorMatches() {
+        CriticalCssExtractor extractor = extract(".a, .b {color:red}", new SelectorInventory().classes("b"));
+        assertThat(extractor.critical().write()).isEqualTo(".a,.b{color:red}");
+        assertThat(extractor.deferred().write()).isEqualTo("");
+    }
+
+    @Test
+    public void conditionalWrappersKeptInBoth() {
+        String source = "@media (max-width:48em) {.a {color:red} .b {color:blue}} @media print {.b {margin:0}}";
+        CriticalCssExtractor extractor = extract(source, new SelectorInventory().classes("a"));
+        assertThat(extractor.critical().write()).isEqualTo("@media (max-width:48em){.a{color:red}}");
+        assertThat(extractor.deferred().write()).isEqualTo("@media (max-width:48em){.b{color:blue}}@media print{.b{margin:0}}");
+    }
+
+    @Test
+    public void pullsAlongUsedFontFace() {
+        String source = "@font-face {font-family:'My Font'; src:url(a.woff)} @font-face {font-family:Other; src:url(b.woff)}" +
+            ".a {font:12px \"My Font\", sans-serif} .b {font-family:Other}";
+        CriticalCssExtractor extractor = extract(source, new SelectorInventory().classes("a"));
+        assertThat(extractor.critical().write()).isEqualTo("@font-face{font-family:'My Font';src:url(a.woff)}" +
+            ".a{font:12px \"My Font\",sans-serif}");
+        assertThat(extractor.deferred().write()).isEqualTo("@font-face{font-family:Other;src:url(b.woff)}.b{font-family:Other}");
+    }
+
+    @Test
+    public void pullsAlongUsedKeyframes() {
+        String source = "@keyframes spin {from {top:0} to {top:1px}} @-webkit-keyframes spin {from {top:0} to {top:1px}}" +
+            "@keyframes fade {from {opacity:0} to {opacity:1}}" +
+            ".a {animation:spin 1s infinite} .b {animation-name:fade}";
+        CriticalCssExtractor extractor = extract(source, new SelectorInventory().classes("a"));
+        assertThat(extractor.critical().write()).isEqualTo("@keyframes spin{from{top:0}to{top:1px}}" +
+            "@-webkit-keyframes spin{from{top:0}to{top:1px}}.a{animation:spin 1s infinite}");
+        assertThat(extractor.deferred().write())
+            .isEqualTo("@keyframes fade{from{opacity:0}to{opacity:1}}.b{animation-name:fade}");
+    }
+
+    @Test
+    public void charsetInBothAndOtherAtRulesDeferred() {
+        String source = "@charset \"utf-8\"; @page {margin:0} .a {color:red}";
+        CriticalCssExtractor extractor = extract(source, new SelectorInventory().classes("a"));
+        assertThat(extractor.critical().write()).isEqualTo("@charset \"utf-8\";.a{color:red}");
+        assertThat(extractor.deferred().write()).isEqualTo("@charset \"utf-8\";@page {margin:0}");
+    }
+
+    @Test
+    public void usesGivenWriterMode() {
+        CriticalCssExtractor extractor = new CriticalCssExtractor(new SelectorInventory().classes("a"), WriterMode.INLINE);
+        Omakase.source(".a {color:red} .b {color:blue}").use(extractor).process();
+        assertThat(extractor.critical().write()).isEqualTo(".a {color:red}");
+        assertThat(extractor.deferred().write()).isEqualTo(".b {color:blue}");
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link DeclarationPruner}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class DeclarationPrunerTest {
+    private static String prune(String source) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new DeclarationPruner()).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void removesOverriddenDeclaration() {
+        assertThat(prune(".a {color:red; margin:0; color:blue}")).isEqualTo(".a{margin:0;color:blue}");
+    }
+
+    @Test
+    public void removesExactDuplicates() {
+        assertThat(prune(".a {margin:0; margin:0; margin:0}")).isEqualTo(".a{margin:0}");
+    }
+
+    @Test
+    public void keepsLastOfSeveral() {
+        assertThat(prune(".a {width:1px; width:2px; width:3px}")).isEqualTo(".a{width:3px}");
+    }
+
+    @Test
+    public void keepsEarlierImportant() {
+        assertThat(prune(".a {color:red !important; color:blue}")).isEqualTo(".a{color:red!important}");
+    }
+
+    @Test
+    public void laterImportantOverridesEarlierImportant() {
+        assertThat(prune(".a {color:red !important; color:blue !important}")).isEqualTo(".a{color:blue!important}");
+    }
+
+    @Test
+    public void laterImportantOverridesEarlierNormal() {
+        assertThat(prune(".a {color:red !important; color:blue; color:green}")).isEqualTo(".a{color:red!important}");
+    }
+
+    @Test
+    public void keepsFallbackWithDifferentUnit() {
+        assertThat(prune(".a {width:100px; width:50vw}")).isEqualTo(".a{width:100px;width:50vw}");
+    }
+
+    @Test
+    public void keepsFallbackWithFunction() {
+        assertThat(prune(".a {color:#fff; color:rgba(0,0,0,0.5)}")).isEqualTo(".a{color:#fff;color:rgba(0,0,0,0.5)}");
+    }
+
+    @Test
+    public void keepsFallbackWithPrefixedKeyword() {
+        assertThat(prune(".a {display:-webkit-box; display:flex}")).isEqualTo(".a{display:-webkit-box;display:flex}");
+    }
+
+    @Test
+    public void keepsPrefixedProperties() {
+        String source = ".a {-webkit-transition:none; -webkit-transition:none; transition:none}";
+        assertThat(prune(source)).isEqualTo(".a{-webkit-transition:none;-webkit-transition:none;transition:none}");
+    }
+
+    @Test
+    public void keepsStarHack() {
+        assertThat(prune(".a {color:red; *color:blue}")).isEqualTo(".a{color:red;*color:blue}");
+    }
+
+    @Test
+    public void keepsDeclarationsWithComments() {
+        assertThat(prune(".a {/* @noflip */ margin-left:0; margin-left:1px}")).isEqualTo(".a{margin-left:0;margin-left:1px}");
+    }
+
+    @Test
+    public void doesNotAffectOtherRules() {
+        assertThat(prune(".a {color:red} .b {color:blue}")).isEqualTo(".a{color:red}.b{color:blue}");
+    }
+
+    @Test
+    public void handlesDifferentPropertiesIndependently() {
+        String source = ".a {margin:0; padding:0; margin:1px; padding:1px}";
+        assertThat(prune(source)).isEqualTo(".a{margin:1px;padding:1px}");
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link MediaQueryMerger}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class MediaQueryMergerTest {
+    private static String merge(String source) {
+        return merge(source, new MediaQueryMerger());
+    }
+
+    private static String merge(String source, MediaQueryMerger merger) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(merger).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void mergesEquivalentMediaQueries() {
+        String source = "@media (max-width:48em) {.a {color:red}} .b {margin:0} @media (max-width:48em) {.c {padding:0}}";
+        assertThat(merge(source)).isEqualTo("@media (max-width:48em){.a{color:red}.c{padding:0}}.b{margin:0}");
+    }
+
+    @Test
+    public void mergesMoreThanTwo() {
+        String source = "@media print {.a {color:red}} @media print {.b {margin:0}} @media print {.c {padding:0}}";
+        assertThat(merge(source)).isEqualTo("@media print{.a{color:red}.b{margin:0}.c{padding:0}}");
+    }
+
+    @Test
+    public void queryOrderDoesNotMatter() {
+        String source = "@media screen and (min-width:10em) and (max-width:20em), print {.a {color:red}}" +
+            "@media print, screen and (max-width:20em) and (min-width:10em) {.b {color:red}}";
+        assertThat(merge(source)).isEqualTo("@media screen and (min-width:10em) and (max-width:20em),print{.a{color:red}" +
+            ".b{color:red}}");
+    }
+
+    @Test
+    public void doesNotMergeDifferentQueries() {
+        String source = "@media (max-width:48em) {.a {color:red}} @media (max-width:40em) {.b {color:red}}";
+        assertThat(merge(source)).isEqualTo("@media (max-width:48em){.a{color:red}}@media (max-width:40em){.b{color:red}}");
+    }
+
+    @Test
+    public void doesNotMergeWhenCascadeWouldChange() {
+        String source = "@media print {.a {color:red}} .b {color:blue} @media print {.b {color:green}}";
+        assertThat(merge(source)).isEqualTo("@media print{.a{color:red}}.b{color:blue}@media print{.b{color:green}}");
+    }
+
+    @Test
+    public void doesNotMergeWhenLogicalPropertyInBetween() {
+        String source = "@media (max-width:48em){.a{width:1px}}.b{inline-size:2px}@media (max-width:48em){.a{width:3px}}";
+        assertThat(merge(source)).isEqualTo(
+            "@media (max-width:48em){.a{width:1px}}.b{inline-size:2px}@media (max-width:48em){.a{width:3px}}");
+    }
+
+    @Test
+    public void doesNotMergeWhenAliasInBetween() {
+        String source = "@media print{.a{overflow-wrap:normal}}.b{word-wrap:break-word}@media print{.a{overflow-wrap:anywhere}}";
+        assertThat(merge(source)).isEqualTo(
+            "@media print{.a{overflow-wrap:normal}}.b{word-wrap:break-word}@media print{.a{overflow-wrap:anywhere}}");
+    }
+
+    @Test
+    public void doesNotMergeWhenRelatedPropertyInBetween() {
+        String source = "@media print {.a {color:red}} .b {margin:0} @media print {.b {margin-top:1px}}";
+        assertThat(merge(source)).isEqualTo("@media print{.a{color:red}}.b{margin:0}@media print{.b{margin-top:1px}}");
+    }
+
+    @Test
+    public void conflictInsideOtherMediaBlocks() {
+        String source = "@media print {.a {color:red}} @media screen {.b {color:blue}} @media print {.b {color:green}}";
+        assertThat(merge(source)).isEqualTo("@media print{.a{color:red}}@media screen{.b{color:blue}}" +
+            "@media print{.b{color:green}}");
+    }
+
+    @Test
+    public void mergesLaterOnesIntoNewTargetAfterConflict() {
+        String source = "@media print {.a {color:red}} .b {color:blue} @media print {.b {color:green}}" +
+            "@media print {.c {margin:0}}";
+        assertThat(merge(source)).isEqualTo("@media print{.a{color:red}}.b{color:blue}" +
+            "@media print{.b{color:green}.c{margin:0}}");
+    }
+
+    @Test
+    public void ignoreCascadeOrderMergesAnyway() {
+        String source = "@media print {.a {color:red}} .b {color:blue} @media print {.b {color:green}}";
+        assertThat(merge(source, new MediaQueryMerger().ignoreCascadeOrder()))
+            .isEqualTo("@media print{.a{color:red}.b{color:green}}.b{color:blue}");
+    }
+
+    @Test
+    public void fontFaceInBetweenIsNotAConflict() {
+        String source = "@media print {.a {color:red}} @font-face {font-family:x; src:url(x.woff)}" +
+            "@media print {.b {color:green}}";
+        assertThat(merge(source)).isEqualTo("@media print{.a{color:red}.b{color:green}}" +
+            "@font-face{font-family:x;src:url(x.woff)}");
+    }
+
+    @Test
+    public void mediaWithCommentsIsNotMerged() {
+        String source = "@media print {.a {color:red}} /* keep */ @media print {.b {color:green}}";
+        assertThat(merge(source)).isEqualTo("@media print{.a{color:red}}@media print{.b{color:green}}");
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.ast.Rule;
+import com.salesforce.omakase.ast.Statement;
+import com.salesforce.omakase.ast.declaration.Declaration;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.plugin.basic.SyntaxTree;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link RuleMerger}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class RuleMergerTest {
+    private static String merge(String source) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new RuleMerger()).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void mergesAdjacentRulesWithSameSelectors() {
+        assertThat(merge(".a, .b {color:red} .a,.b {margin:0}")).isEqualTo(".a,.b{color:red;margin:0}");
+    }
+
+    @Test
+    public void removesAdjacentDuplicateRules() {
+        assertThat(merge(".a {color:red} .a {color:red} .a {color:red}")).isEqualTo(".a{color:red}");
+    }
+
+    @Test
+    public void doesNotMergeNonAdjacentRulesWithSameSelectors() {
+        assertThat(merge(".a {color:red} .b {color:blue} .a {margin:0}")).isEqualTo(".a{color:red}.b{color:blue}.a{margin:0}");
+    }
+
+    @Test
+    public void mergesRulesWithSameDeclarations() {
+        assertThat(merge(".a {color:red} .b {margin:0} .c {color:red}")).isEqualTo(".a,.c{color:red}.b{margin:0}");
+    }
+
+    @Test
+    public void doesNotRepeatSelectorsWhenMerging() {
+        assertThat(merge(".a, .b {color:red} .c {margin:0} .b, .d {color:red}")).isEqualTo(".a,.b,.d{color:red}.c{margin:0}");
+    }
+
+    @Test
+    public void doesNotMergeWhenIntermediateRuleOverrides() {
+        String source = ".a {margin-top:0} .b {margin:5px} .c {margin-top:0}";
+        assertThat(merge(source)).isEqualTo(".a{margin-top:0}.b{margin:5px}.c{margin-top:0}");
+    }
+
+    @Test
+    public void doesNotMergeWhenIntermediateRuleOverridesPrefixed() {
+        String source = ".a {transition:none} .b {-webkit-transition:all 1s} .c {transition:none}";
+        assertThat(merge(source)).isEqualTo(".a{transition:none}.b{-webkit-transition:all 1s}.c{transition:none}");
+    }
+
+    @Test
+    public void mergesWithLaterCandidateAfterOverride() {
+        String source = ".a {color:red} .b {color:blue} .c {color:red} .d {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}.b{color:blue}.c,.d{color:red}");
+    }
+
+    @Test
+    public void doesNotMergeWhenIntermediateRuleOverridesLogicalProperty() {
+        String source = ".a {width:1px} .b {inline-size:5px} .c {width:1px}";
+        assertThat(merge(source)).isEqualTo(".a{width:1px}.b{inline-size:5px}.c{width:1px}");
+    }
+
+    @Test
+    public void doesNotRefineDeclarations() {
+        StyleWriter writer = StyleWriter.compressed();
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(".a {color:red} .b {margin:0} .c {color:red}").use(new RuleMerger()).use(tree).use(writer).process();
+
+        assertThat(writer.write()).isEqualTo(".a,.c{color:red}.b{margin:0}");
+        for (Statement statement : tree.stylesheet()) {
+            for (Declaration declaration : ((Rule)statement).declarations()) {
+                assertThat(declaration.isRefined()).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void atRuleIsBarrier() {
+        String source = ".a {color:red} @page {margin:0} .b {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}@page {margin:0}.b{color:red}");
+    }
+
+    @Test
+    public void allPropertyIsBarrier() {
+        String source = ".a {color:red} .b {all:initial} .c {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}.b{all:initial}.c{color:red}");
+    }
+
+    @Test
+    public void rulesWithCommentsAreSkipped() {
+        String source = ".a {color:red} /* @noflip */ .b {color:red} .c {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}.b{color:red}.c{color:red}");
+    }
+
+    @Test
+    public void prefixedSelectorsAreNotGrouped() {
+        String source = ".a::-moz-selection {color:red} .b::selection {color:red}";
+        assertThat(merge(source)).isEqualTo(".a::-moz-selection{color:red}.b::selection{color:red}");
+    }
+
+    @Test
+    public void newerPseudoSelectorsAreNotGrouped() {
+        String source = ".a {color:red} .b:focus-within {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}.b:focus-within{color:red}");
+
+        source = ".a {color:red} :is(.b,.c) {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}:is(.b,.c){color:red}");
+
+        source = ".a {color:red} .b:has(.c) {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}.b:has(.c){color:red}");
+
+        source = ".a {color:red} dialog::backdrop {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}dialog::backdrop{color:red}");
+    }
+
+    @Test
+    public void complexNotIsNotGrouped() {
+        String source = ".a {color:red} .b:not(.c .d) {color:red}";
+        assertThat(merge(source)).isEqualTo(".a{color:red}.b:not(.c .d){color:red}");
+    }
+
+    @Test
+    public void widelySupportedPseudoSelectorsAreGrouped() {
+        String source = ".a:hover {color:red} .b {margin:0} .c:first-child::before {color:red} .d:not(.e) {color:red}";
+        assertThat(merge(source)).isEqualTo(".a:hover,.c:first-child::before,.d:not(.e){color:red}.b{margin:0}");
+    }
+
+    @Test
+    public void escapedColonsAreNotPseudoSelectors() {
+        String source = ".md\\:flex {color:red} .b {margin:0} .c {color:red}";
+        assertThat(merge(source)).isEqualTo(".md\\:flex,.c{color:red}.b{margin:0}");
+    }
+
+    @Test
+    public void mergesWithinMediaBlocks() {
+        StyleWriter writer = StyleWriter.compressed();
+        String source = ".a {color:red} @media (min-width:800px) {.a {color:red} .b {color:red}} .b {color:red}";
+        Omakase.source(source).use(new AutoRefiner().atRules()).use(new RuleMerger()).use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a{color:red}@media (min-width:800px){.a,.b{color:red}}.b{color:red}");
+    }
+
+    @Test
+    public void mergesRefinedRules() {
+        StyleWriter writer = StyleWriter.compressed();
+        String source = ".a {color:red; margin: 0 auto} .b {padding:0} .c {color : red ; margin:0 auto}";
+        Omakase.source(source).use(new AutoRefiner().all()).use(new RuleMerger()).use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a,.c{color:red;margin:0 auto}.b{padding:0}");
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.ast.RawSyntax;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.broadcast.QueryableBroadcaster;
+import com.salesforce.omakase.parser.refiner.MasterRefiner;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SelectorInventory}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class SelectorInventoryTest {
+    private static Selector selector(String raw) {
+        return new Selector(new RawSyntax(1, 1, raw), new MasterRefiner(new QueryableBroadcaster()));
+    }
+
+    @Test
+    public void emptyMatchesEverything() {
+        SelectorInventory inventory = new SelectorInventory();
+        assertThat(inventory.isEmpty()).isTrue();
+        assertThat(inventory.matches(selector("#a .b > p"))).isTrue();
+    }
+
+    @Test
+    public void matchesWhenAllNamesPresent() {
+        SelectorInventory inventory = new SelectorInventory().classes("b", "c").ids("a").elements("p");
+        assertThat(inventory.isEmpty()).isFalse();
+        assertThat(inventory.matches(selector("#a .b.c > p:hover"))).isTrue();
+    }
+
+    @Test
+    public void doesNotMatchUnknownClass() {
+        assertThat(new SelectorInventory().classes("b").matches(selector(".b .x"))).isFalse();
+    }
+
+    @Test
+    public void doesNotMatchUnknownId() {
+        assertThat(new SelectorInventory().ids("a").matches(selector("#b"))).isFalse();
+    }
+
+    @Test
+    public void elementsAreCaseInsensitive() {
+        SelectorInventory inventory = new SelectorInventory().elements("DIV");
+        assertThat(inventory.matches(selector("div"))).isTrue();
+        assertThat(inventory.matches(selector("span"))).isFalse();
+    }
+
+    @Test
+    public void uncheckedKindsAlwaysMatch() {
+        assertThat(new SelectorInventory().classes("a").matches(selector("#x span .a"))).isTrue();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ShorthandCollapser}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class ShorthandCollapserTest {
+    private static String collapse(String source) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new ShorthandCollapser()).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void collapsesFourValues() {
+        String source = ".a {margin-top:1px; margin-right:2px; margin-bottom:3px; margin-left:4px}";
+        assertThat(collapse(source)).isEqualTo(".a{margin:1px 2px 3px 4px}");
+    }
+
+    @Test
+    public void reducesToThreeValues() {
+        String source = ".a {padding-top:1px; padding-right:2px; padding-bottom:3px; padding-left:2px}";
+        assertThat(collapse(source)).isEqualTo(".a{padding:1px 2px 3px}");
+    }
+
+    @Test
+    public void reducesToTwoValues() {
+        String source = ".a {padding-top:0; padding-right:2px; padding-bottom:0; padding-left:2px}";
+        assertThat(collapse(source)).isEqualTo(".a{padding:0 2px}");
+    }
+
+    @Test
+    public void reducesToOneValue() {
+        String source = ".a {margin-top:0; margin-right:0; margin-bottom:0; margin-left:0}";
+        assertThat(collapse(source)).isEqualTo(".a{margin:0}");
+    }
+
+    @Test
+    public void orderOfLonghandsDoesNotMatter() {
+        String source = ".a {margin-left:4px; color:red; margin-bottom:3px; margin-top:1px; margin-right:2px}";
+        assertThat(collapse(source)).isEqualTo(".a{margin:1px 2px 3px 4px;color:red}");
+    }
+
+    @Test
+    public void collapsesBorderLonghands() {
+        String source = ".a {border-top-width:1px; border-right-width:1px; border-bottom-width:1px; border-left-width:1px;" +
+            "border-top-style:solid; border-right-style:solid; border-bottom-style:solid; border-left-style:solid;" +
+            "border-top-color:red; border-right-color:#000; border-bottom-color:red; border-left-color:#000}";
+        assertThat(collapse(source)).isEqualTo(".a{border-width:1px;border-style:solid;border-color:red #000}");
+    }
+
+    @Test
+    public void collapsesBorderRadius() {
+        String source = ".a {border-top-left-radius:2px; border-top-right-radius:0; border-bottom-right-radius:2px;" +
+            "border-bottom-left-radius:0}";
+        assertThat(collapse(source)).isEqualTo(".a{border-radius:2px 0}");
+    }
+
+    @Test
+    public void keepsImportant() {
+        String source = ".a {margin-top:0!important; margin-right:0!important; margin-bottom:0!important;" +
+            "margin-left:0!important}";
+        assertThat(collapse(source)).isEqualTo(".a{margin:0!important}");
+    }
+
+    @Test
+    public void doesNotCollapseMixedImportance() {
+        String source = ".a {margin-top:0!important; margin-right:0; margin-bottom:0; margin-left:0}";
+        assertThat(collapse(source)).isEqualTo(".a{margin-top:0!important;margin-right:0;margin-bottom:0;margin-left:0}");
+    }
+
+    @Test
+    public void doesNotCollapseIncompleteSet() {
+        String source = ".a {margin-top:0; margin-right:0; margin-bottom:0}";
+        assertThat(collapse(source)).isEqualTo(".a{margin-top:0;margin-right:0;margin-bottom:0}");
+    }
+
+    @Test
+    public void doesNotCollapseWithShorthandPresent() {
+        String source = ".a {margin:5px; margin-top:0; margin-right:0; margin-bottom:0; margin-left:0}";
+        assertThat(collapse(source)).isEqualTo(".a{margin:5px;margin-top:0;margin-right:0;margin-bottom:0;margin-left:0}");
+    }
+
+    @Test
+    public void doesNotCollapseWithLogicalProperty() {
+        String source = ".a {margin-top:0; margin-inline-start:1px; margin-right:0; margin-bottom:0; margin-left:0}";
+        assertThat(collapse(source)).isEqualTo(".a{margin-top:0;margin-inline-start:1px;margin-right:0;margin-bottom:0;" +
+            "margin-left:0}");
+    }
+
+    @Test
+    public void doesNotCollapseBorderWidthWithBorderSide() {
+        String source = ".a {border-top-width:1px; border-top:none; border-right-width:1px; border-bottom-width:1px;" +
+            "border-left-width:1px}";
+        assertThat(collapse(source)).isEqualTo(".a{border-top-width:1px;border-top:none;border-right-width:1px;" +
+            "border-bottom-width:1px;border-left-width:1px}");
+    }
+
+    @Test
+    public void unrelatedBorderPropertiesDoNotBlock() {
+        String source = ".a {border-top-color:red; margin-top:0; margin-right:0; margin-bottom:0; margin-left:0}";
+        assertThat(collapse(source)).isEqualTo(".a{border-top-color:red;margin:0}");
+    }
+
+    @Test
+    public void doesNotCollapseMultipleTerms() {
+        String source = ".a {border-top-left-radius:1px 2px; border-top-right-radius:0; border-bottom-right-radius:0;" +
+            "border-bottom-left-radius:0}";
+        assertThat(collapse(source)).isEqualTo(".a{border-top-left-radius:1px 2px;border-top-right-radius:0;" +
+            "border-bottom-right-radius:0;border-bottom-left-radius:0}");
+    }
+
+    @Test
+    public void doesNotCollapseCssWideKeywords() {
+        String source = ".a {margin-top:inherit; margin-right:0; margin-bottom:0; margin-left:0}";
+        assertThat(collapse(source)).isEqualTo(".a{margin-top:inherit;margin-right:0;margin-bottom:0;margin-left:0}");
+    }
+
+    @Test
+    public void doesNotCollapseDuplicates() {
+        String source = ".a {margin-top:0; margin-top:1px; margin-right:0; margin-bottom:0; margin-left:0}";
+        assertThat(collapse(source)).isEqualTo(".a{margin-top:0;margin-top:1px;margin-right:0;margin-bottom:0;margin-left:0}");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.plugin.minify;
+
+import com.google.common.collect.ImmutableSet;
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.ast.selector.IdSelector;
+import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.writer.StyleWriter;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link UnusedSelectorPruner}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class UnusedSelectorPrunerTest {
+    private static String prune(String source, UnusedSelectorPruner pruner) {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(pruner).use(writer).process();
+        return writer.write();
+    }
+
+    @Test
+    public void removesUnusedClassSelectors() {
+        UnusedSelectorPruner pruner = new UnusedSelectorPruner().classes("a", "c");
+        assertThat(prune(".a, .b {color:red} .c .d {margin:0} .c.a {padding:0}", pruner))
+            .isEqualTo(".a{color:red}.c.a{padding:0}");
+    }
+
+    @Test
+    public void removesUnusedIds() {
+        UnusedSelectorPruner pruner = new UnusedSelectorPruner().ids(ImmutableSet.of("main"));
+        assertThat(prune("#main {color:red} #other {color:blue} .x {margin:0}", pruner))
+            .isEqualTo("#main{color:red}.x{margin:0}");
+    }
+
+    @Test
+    public void elementsAreCaseInsensitive() {
+        UnusedSelectorPruner pruner = new UnusedSelectorPruner().elements("DIV", "a");
+        assertThat(prune("div {color:red} A:hover {color:blue} table td {margin:0}", pruner))
+            .isEqualTo("div{color:red}a:hover{color:blue}");
+    }
+
+    @Test
+    public void uncheckedKindsAreKept() {
+        UnusedSelectorPruner pruner = new UnusedSelectorPruner().classes("a");
+        assertThat(prune("#x .a {color:red} p {margin:0}", pruner)).isEqualTo("#x .a{color:red}p{margin:0}");
+    }
+
+    @Test
+    public void keepsEverythingWithoutInventory() {
+        assertThat(prune(".a {color:red} #b {margin:0}", new UnusedSelectorPruner())).isEqualTo(".a{color:red}#b{margin:0}");
+    }
+
+    @Test
+    public void removesRulesInsideMedia() {
+        UnusedSelectorPruner pruner = new UnusedSelectorPruner().classes("a");
+        String source = "@media print {.a {color:red} .b {color:blue}}";
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new AutoRefiner().atRules()).use(pruner).use(writer).process();
+        assertThat(writer.write()).isEqualTo("@media print{.a{color:red}}");
+    }
+
+    @Test
+    public void ignoresKeyframes() {
+        UnusedSelectorPruner pruner = new UnusedSelectorPruner().classes("a").elements("div");
+        String source = "@keyframes x {from {top:0} to {top:1px}}";
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(new AutoRefiner().atRules()).use(pruner).use(writer).process();
+        assertThat(writer.write()).isEqualTo("@keyframes x{from{top:0}to{top:1px}}");
+    }
+
+    @Test
+    public void usesGivenInventory() {
+        SelectorInventory inventory = new SelectorInventory().classes("a");
+        UnusedSelectorPruner pruner = new UnusedSelectorPruner(inventory).ids("b");
+        assertThat(prune(".a {color:red} .c {color:blue} #b {margin:0} #d {margin:0}", pruner))
+            .isEqualTo(".a{color:red}#b{margin:0}");
+        assertThat(inventory.matches(new Selector(new IdSelector("b")))).isTrue();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.omakase.tools;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.salesforce.omakase.Omakase;
+import com.salesforce.omakase.writer.StyleWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prints the raw, gzip and deflate sizes of the compressed output for the goldfile sources, with and without {@link
+ * StyleWriter#sortDeclarations(boolean)}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class CompressionBenchmark {
+    private static final List<String> FILES = ImmutableList.of(
+        "/goldfile/sources/button.css",
+        "/goldfile/sources/chatter.css",
+        "/goldfile/sources/commented.css",
+        "/goldfile/sources/flexbox.css",
+        "/goldfile/sources/media.css",
+        "/goldfile/sources/simple.css",
+        "/goldfile/sources/zen.css",
+        "/perftest/heavy.css");
+
+    public static void main(String[] args) throws IOException {
+        new CompressionBenchmark().run();
+    }
+
+    public void run() throws IOException {
+        String header = "%-14s %10s %10s %10s %10s %10s %10s%n";
+        System.out.printf(header, "File", "Raw", "Gzip", "Deflate", "Raw*", "Gzip*", "Deflate*");
+        System.out.printf(header, dash(14), dash(10), dash(10), dash(10), dash(10), dash(10), dash(10));
+
+        long[] totals = new long[6];
+        for (String file : FILES) {
+            String source = Tools.readFile(file);
+            byte[] plain = write(source, false);
+            byte[] sorted = write(source, true);
+
+            long[] sizes = {plain.length, gzip(plain), deflate(plain), sorted.length, gzip(sorted), deflate(sorted)};
+            for (int i = 0; i < sizes.length; i++) {
+                totals[i] += sizes[i];
+            }
+
+            String name = file.substring(file.lastIndexOf('/') + 1);
+            System.out.printf(header, name, sizes[0], sizes[1], sizes[2], sizes[3], sizes[4], sizes[5]);
+        }
+
+        System.out.printf(header, dash(14), dash(10), dash(10), dash(10), dash(10), dash(10), dash(10));
+        System.out.printf(header, "total", totals[0], totals[1], totals[2], totals[3], totals[4], totals[5]);
+        System.out.println("\n* with sorted declarations");
+    }
+
+    private byte[] write(String source, boolean sort) {
+        StyleWriter writer = StyleWriter.compressed().sortDeclarations(sort);
+        Omakase.source(source).use(writer).process();
+        return writer.write().getBytes(Charsets.UTF_8);
+    }
+
+    private int gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+
+    private int deflate(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_COMPRESSION))) {
+            deflate.write(bytes);
+        }
+        return out.size();
+    }
+
+    private String dash(int number) {
+        return new String(new char[number]).replace("\0", "-");
+    }
+}
@@ -72,6 +72,9 @@ public class Run {
     @Option(name = "-w", aliases = "--prefixed-all", usage = "print all properties, at-rules, etc...that are supported by Prefixer")
     private boolean prefixedAll;
 
+    @Option(name = "-z", aliases = "--compression", usage = "print gzip and deflate sizes of the compressed goldfile sources")
+    private boolean compression;
+
     @Option(name = "-i", aliases = {"--interactive", "--shell"}, usage = "interactive shell")
     private boolean interactive;
 
@@ -143,6 +146,8 @@ public class Run {
                 new PrintDefaultPrefixed().run();
             } else if (prefixedAll) {
                 new PrintAllPrefixed().run();
+            } else if (compression) {
+                new CompressionBenchmark().run();
             } else if (interactive) {
                 new InteractiveShell().run();
             } else if (help) {
@@ -46,7 +46,8 @@ public final class RunPerfTest {
 
     /** set of possible parsers configurations to test */
     private static final Set<PerfTest> PARSERS = ImmutableSet.<PerfTest>of(
-        new OmakasePerf()
+        new OmakasePerf(),
+        new SnapshotPerf()
     );
 
     /** LOC variations (multiplication) */
@@ -77,6 +78,7 @@ public final class RunPerfTest {
         System.out.println("omakase -p omakase heavy");
         System.out.println("omakase -p omakase prefix-heavy");
         System.out.println("omakase -p omakase prefix-heavy no-prime");
+        System.out.println("omakase -p snapshot normal");
     }
 
     /** main method with setup */
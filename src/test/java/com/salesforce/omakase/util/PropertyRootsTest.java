@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.omakase.util;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link PropertyRoots}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class PropertyRootsTest {
+    @Test
+    public void shorthandAndLonghands() {
+        assertThat(PropertyRoots.root("border-top-width")).isEqualTo(PropertyRoots.root("border"));
+        assertThat(PropertyRoots.root("margin-top")).isEqualTo(PropertyRoots.root("margin"));
+        assertThat(PropertyRoots.root("line-height")).isEqualTo(PropertyRoots.root("font"));
+        assertThat(PropertyRoots.root("top")).isEqualTo(PropertyRoots.root("inset"));
+        assertThat(PropertyRoots.root("column-gap")).isEqualTo(PropertyRoots.root("gap"));
+    }
+
+    @Test
+    public void aliases() {
+        assertThat(PropertyRoots.root("word-wrap")).isEqualTo(PropertyRoots.root("overflow-wrap"));
+        assertThat(PropertyRoots.root("page-break-before")).isEqualTo(PropertyRoots.root("break-before"));
+        assertThat(PropertyRoots.root("column-break-after")).isEqualTo(PropertyRoots.root("break-after"));
+        assertThat(PropertyRoots.root("text-wrap")).isEqualTo(PropertyRoots.root("white-space"));
+        assertThat(PropertyRoots.root("motion-path")).isEqualTo(PropertyRoots.root("offset-path"));
+        assertThat(PropertyRoots.root("baseline-shift")).isEqualTo(PropertyRoots.root("vertical-align"));
+    }
+
+    @Test
+    public void logicalAndPhysical() {
+        assertThat(PropertyRoots.root("inline-size")).isEqualTo(PropertyRoots.root("width"));
+        assertThat(PropertyRoots.root("block-size")).isEqualTo(PropertyRoots.root("height"));
+        assertThat(PropertyRoots.root("max-inline-size")).isEqualTo(PropertyRoots.root("width"));
+        assertThat(PropertyRoots.root("min-height")).isEqualTo(PropertyRoots.root("block-size"));
+        assertThat(PropertyRoots.root("width")).isEqualTo(PropertyRoots.root("height"));
+        assertThat(PropertyRoots.root("margin-inline-start")).isEqualTo(PropertyRoots.root("margin-left"));
+        assertThat(PropertyRoots.root("inset-block-end")).isEqualTo(PropertyRoots.root("bottom"));
+    }
+
+    @Test
+    public void unrelated() {
+        assertThat(PropertyRoots.root("color")).isNotEqualTo(PropertyRoots.root("background-color"));
+        assertThat(PropertyRoots.root("word-break")).isNotEqualTo(PropertyRoots.root("overflow"));
+        assertThat(PropertyRoots.root("--width")).isNotEqualTo(PropertyRoots.root("width"));
+    }
+}
@@ -179,4 +179,11 @@ public class StyleAppendableTest {
         sa.append('c');
         assertThat(b.toString()).isEqualTo("c");
     }
+
+    @Test
+    public void appendSubsequence() throws IOException {
+        StyleAppendable appendable = new StyleAppendable();
+        appendable.append("abcdef", 1, 4);
+        assertThat(appendable.toString()).isEqualTo("bcd");
+    }
 }
@@ -26,8 +26,11 @@
 
 package com.salesforce.omakase.writer;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
 import com.salesforce.omakase.Omakase;
 import com.salesforce.omakase.ast.AbstractSyntax;
+import com.salesforce.omakase.ast.Rule;
 import com.salesforce.omakase.ast.Syntax;
 import com.salesforce.omakase.ast.collection.AbstractGroupable;
 import com.salesforce.omakase.ast.collection.LinkedSyntaxCollection;
@@ -35,9 +38,21 @@ import com.salesforce.omakase.ast.collection.SyntaxCollection;
 import com.salesforce.omakase.ast.declaration.Declaration;
 import com.salesforce.omakase.ast.selector.ClassSelector;
 import com.salesforce.omakase.ast.selector.Selector;
+import com.salesforce.omakase.plugin.basic.AutoRefiner;
+import com.salesforce.omakase.plugin.basic.SyntaxTree;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 
@@ -126,6 +141,283 @@ public class StyleWriterTest {
         assertThat(builder.toString()).isEqualTo(".test{color:red}");
     }
 
+    @Test
+    public void writeToOutputStream() throws IOException {
+        StyleWriter writer = StyleWriter.compressed();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Omakase.source(".test:before{content:'\u2603'}").use(writer).process();
+        writer.writeTo(out);
+        assertThat(out.toString("UTF-8")).isEqualTo(".test:before{content:'\u2603'}");
+    }
+
+    @Test
+    public void writeToOutputStreamLargerThanBuffer() throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            source.append(".test").append(i).append("{color:red}");
+        }
+
+        StyleWriter writer = StyleWriter.compressed();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Omakase.source(source).use(writer).process();
+        writer.writeTo(out);
+        assertThat(out.toString("UTF-8")).isEqualTo(writer.write());
+    }
+
+    @Test
+    public void writeToChannel() throws IOException {
+        StyleWriter writer = StyleWriter.compressed();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Omakase.source(".test{color:red}").use(writer).process();
+        writer.writeTo(Channels.newChannel(out));
+        assertThat(out.toString("UTF-8")).isEqualTo(".test{color:red}");
+    }
+
+    @Test
+    public void writeCompressedGzip() throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            source.append(".test").append(i).append(":before{content:'\u2603'}");
+        }
+
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(source).use(writer).process();
+        ByteBuffer bytes = writer.writeCompressed(Compression.GZIP);
+        assertThat(bytes.isReadOnly()).isTrue();
+        assertThat(inflate(new GZIPInputStream(stream(bytes)))).isEqualTo(writer.write());
+    }
+
+    @Test
+    public void writeCompressedDeflate() throws IOException {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(".test:before{content:'\u2603'}").use(writer).process();
+        ByteBuffer bytes = writer.writeCompressed(Compression.DEFLATE);
+        assertThat(inflate(new InflaterInputStream(stream(bytes)))).isEqualTo(".test:before{content:'\u2603'}");
+    }
+
+    @Test
+    public void writeCompressedDeflateMatchesPlainDeflaterStream() throws IOException {
+        StyleWriter writer = StyleWriter.compressed();
+        Omakase.source(".a{color:red} .b{margin:0 auto} .c{color:red}").use(writer).process();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DeflaterOutputStream deflater = new DeflaterOutputStream(expected);
+        deflater.write(writer.write().getBytes(Charsets.UTF_8));
+        deflater.close();
+
+        ByteBuffer bytes = writer.writeCompressed(Compression.DEFLATE);
+        byte[] actual = new byte[bytes.remaining()];
+        bytes.get(actual);
+        assertThat(actual).isEqualTo(expected.toByteArray());
+    }
+
+    private static InputStream stream(ByteBuffer buffer) {
+        byte[] array = new byte[buffer.remaining()];
+        buffer.get(array);
+        return new ByteArrayInputStream(array);
+    }
+
+    private static String inflate(InputStream input) throws IOException {
+        return new String(ByteStreams.toByteArray(input), Charsets.UTF_8);
+    }
+
+    @Test
+    public void depthTrackingBeyondInitialCapacity() {
+        StyleWriter writer = StyleWriter.compressed();
+        for (int i = 0; i < 100; i++) {
+            writer.incrementDepth();
+        }
+        assertThat(writer.isFirstAtCurrentDepth()).isTrue();
+
+        for (int i = 0; i < 99; i++) {
+            writer.decrementDepth();
+        }
+        assertThat(writer.countAtCurrentDepth()).isEqualTo(0);
+        writer.decrementDepth();
+    }
+
+    @Test
+    public void depthCountsResetWhenReentered() throws IOException {
+        StyleWriter writer = StyleWriter.compressed();
+        writer.incrementDepth();
+        writer.writeInner(new ClassSelector("a"), new StyleAppendable());
+        writer.writeInner(new ClassSelector("b"), new StyleAppendable());
+        writer.incrementDepth();
+        assertThat(writer.countAtCurrentDepth()).isEqualTo(2);
+        writer.decrementDepth();
+        writer.decrementDepth();
+
+        writer.incrementDepth();
+        writer.incrementDepth();
+        assertThat(writer.countAtCurrentDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void parallelMatchesSerial() throws IOException {
+        StringBuilder source = new StringBuilder("/* first */\n");
+        for (int i = 0; i < 1000; i++) {
+            source.append("/* c").append(i).append(" */.a").append(i).append(" > p{color:red; margin: 0 auto}\n");
+            if (i % 10 == 0) source.append("@media (max-width:").append(i).append("px){.b{margin:0}}\n");
+        }
+        source.append("/* last */");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (WriterMode mode : WriterMode.values()) {
+                StyleWriter serial = new StyleWriter(mode).writeAllComments(true);
+                StyleWriter parallel = new StyleWriter(mode).writeAllComments(true).parallel(executor);
+                Omakase.source(source).use(serial).process();
+                Omakase.source(source).use(parallel).process();
+                assertThat(parallel.write()).isEqualTo(serial.write());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelWithStatementsNotWritten() throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            source.append(".skip{color:red}");
+        }
+        for (int i = 0; i < 600; i++) {
+            source.append(".a").append(i).append("{color:red}");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            StyleWriter serial = StyleWriter.verbose();
+            serial.addCustomWriter(Rule.class, new SkippingRuleWriter());
+            StyleWriter parallel = StyleWriter.verbose().parallel(executor);
+            parallel.addCustomWriter(Rule.class, new SkippingRuleWriter());
+
+            Omakase.source(source).use(serial).process();
+            Omakase.source(source).use(parallel).process();
+            assertThat(parallel.write()).isEqualTo(serial.write());
+            assertThat(parallel.write()).startsWith(".a0 {");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void parallelPropagatesErrors() throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            source.append(".a").append(i).append("{color:red}");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            StyleWriter writer = StyleWriter.compressed().parallel(executor);
+            writer.addCustomWriter(Rule.class, new CustomWriter<Rule>() {
+                @Override
+                public boolean write(Rule unit, StyleWriter writer, StyleAppendable appendable) throws IOException {
+                    throw new IOException("test");
+                }
+            });
+            Omakase.source(source).use(writer).process();
+            writer.writeTo(new StringBuilder());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cachingOutput() {
+        assertThat(StyleWriter.compressed().isCachingOutput()).isFalse();
+        assertThat(StyleWriter.compressed().cacheOutput(true).isCachingOutput()).isTrue();
+        assertThat(StyleWriter.compressed().cacheOutput(true).writeAllComments(true).isCachingOutput()).isFalse();
+        assertThat(StyleWriter.compressed().cacheOutput(true).writeBangComments(true).isCachingOutput()).isFalse();
+    }
+
+    @Test
+    public void sortDeclarationsDefaultsToFalse() {
+        assertThat(StyleWriter.compressed().shouldSortDeclarations()).isFalse();
+        assertThat(StyleWriter.compressed().sortDeclarations(true).shouldSortDeclarations()).isTrue();
+    }
+
+    @Test
+    public void sortDeclarationsKeepsOverridingDeclarationsInOrder() {
+        String source = ".a{margin-top:1px;color:red;-webkit-transition:none;background:red;transition:none;margin:0}";
+        StyleWriter writer = StyleWriter.compressed().sortDeclarations(true);
+        Omakase.source(source).use(writer).process();
+        assertThat(writer.write()).isEqualTo(
+            ".a{background:red;color:red;margin-top:1px;margin:0;-webkit-transition:none;transition:none}");
+    }
+
+    @Test
+    public void sortDeclarationsDoesNotReorderRuleWithAll() {
+        StyleWriter writer = StyleWriter.compressed().sortDeclarations(true);
+        Omakase.source(".a{color:red;all:unset}").use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a{color:red;all:unset}");
+    }
+
+    @Test
+    public void sortDeclarationsKeepsLogicalAndPhysicalPropertiesInOrder() {
+        StyleWriter writer = StyleWriter.compressed().sortDeclarations(true);
+        Omakase.source(".a{width:1px;color:red;inline-size:5px}").use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a{color:red;width:1px;inline-size:5px}");
+    }
+
+    @Test
+    public void sortDeclarationsKeepsAliasesInOrder() {
+        StyleWriter writer = StyleWriter.compressed().sortDeclarations(true);
+        Omakase.source(".a{word-wrap:normal;color:red;overflow-wrap:anywhere}").use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a{color:red;word-wrap:normal;overflow-wrap:anywhere}");
+
+        writer = StyleWriter.compressed().sortDeclarations(true);
+        Omakase.source(".a{page-break-before:always;color:red;break-before:avoid}").use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a{page-break-before:always;break-before:avoid;color:red}");
+    }
+
+    @Test
+    public void sortDeclarationsDoesNotRefine() {
+        StyleWriter writer = StyleWriter.compressed().sortDeclarations(true);
+        SyntaxTree tree = new SyntaxTree();
+        Omakase.source(".a{margin:0;color:red}").use(tree).use(writer).process();
+        assertThat(writer.write()).isEqualTo(".a{color:red;margin:0}");
+
+        Rule rule = (Rule)tree.stylesheet().statements().first().get();
+        for (Declaration declaration : rule.declarations()) {
+            assertThat(declaration.isRefined()).isFalse();
+        }
+    }
+
+    @Test
+    public void cachingOutputWithCustomWriters() {
+        StyleWriter writer = StyleWriter.compressed().cacheOutput(true);
+        writer.addCustomWriter(Declaration.class, new CustomDeclarationWriter());
+        assertThat(writer.isCachingOutput()).isTrue();
+
+        writer.addCustomWriter(Selector.class, new CustomSelectorWriter1());
+        assertThat(writer.isCachingOutput()).isTrue();
+
+        writer.addCustomWriter(ClassSelector.class, new CustomWriter<ClassSelector>() {
+            @Override
+            public boolean write(ClassSelector unit, StyleWriter writer, StyleAppendable appendable) throws IOException {
+                return false;
+            }
+        });
+        assertThat(writer.isCachingOutput()).isFalse();
+    }
+
+    @Test
+    public void cachedOutputMatchesUncached() {
+        String source = ".a > .b:hover, #c{margin:0 auto !important; color:red; font:12px/1.5 'Helvetica'}\n" +
+            "@media (max-width:100px){.d[type=text]{background:url(a.png) no-repeat}}";
+
+        StyleWriter cached = StyleWriter.verbose().cacheOutput(true);
+        StyleWriter uncached = StyleWriter.verbose();
+        Omakase.source(source).use(new AutoRefiner().all()).use(cached).process();
+        Omakase.source(source).use(new AutoRefiner().all()).use(uncached).process();
+
+        assertThat(cached.write()).isEqualTo(uncached.write());
+        assertThat(cached.write()).isEqualTo(uncached.write());
+        assertThat(cached.mode(WriterMode.COMPRESSED).write()).isEqualTo(uncached.mode(WriterMode.COMPRESSED).write());
+    }
+
     @Test
     public void writeUnitHasOverride() {
         StyleWriter writer = StyleWriter.compressed();
@@ -136,6 +428,15 @@ public class StyleWriterTest {
         assertThat(sample.called).isTrue();
     }
 
+    @Test
+    public void hasCustomWriter() {
+        StyleWriter writer = StyleWriter.compressed();
+        assertThat(writer.hasCustomWriter(Selector.class)).isFalse();
+        writer.addCustomWriter(Selector.class, new CustomSelectorWriter1());
+        assertThat(writer.hasCustomWriter(Selector.class)).isTrue();
+        assertThat(writer.hasCustomWriter(Declaration.class)).isFalse();
+    }
+
     @Test
     public void writeUnitHasSingleOverride() throws IOException {
         StyleWriter writer = StyleWriter.compressed();
@@ -275,6 +576,13 @@ public class StyleWriterTest {
         }
     }
 
+    public static final class SkippingRuleWriter implements CustomWriter<Rule> {
+        @Override
+        public boolean write(Rule unit, StyleWriter writer, StyleAppendable appendable) throws IOException {
+            return unit.selectors().first().get().raw().get().content().equals(".skip");
+        }
+    }
+
     public static final class CustomSelectorWriterDoesNothing implements CustomWriter<Selector> {
         @Override
         public boolean write(Selector unit, StyleWriter writer, StyleAppendable appendable) throws IOException {
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.omakase.writer;
+
+import com.google.common.base.Charsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link Utf8Appendable}.
+ *
+ * @author nmcwilliams
+ */
+@SuppressWarnings("JavaDoc")
+public class Utf8AppendableTest {
+    @Rule public final ExpectedException exception = ExpectedException.none();
+
+    private static final String MIXED = ".a:before{content:'é☃😀'}";
+
+    @Test
+    public void encodesAscii() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(out, 16);
+        utf8.append(".test{color:red}").append('x');
+        utf8.flush();
+        assertThat(out.toString("UTF-8")).isEqualTo(".test{color:red}x");
+    }
+
+    @Test
+    public void encodesSameAsStandardEncoder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(out, 16);
+        utf8.append(MIXED);
+        utf8.flush();
+        assertThat(out.toByteArray()).isEqualTo(MIXED.getBytes(Charsets.UTF_8));
+    }
+
+    @Test
+    public void surrogatePairAcrossAppends() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(out, 4);
+        utf8.append('a').append('\ud83d').append("\ude00b");
+        utf8.flush();
+        assertThat(out.toString("UTF-8")).isEqualTo("a😀b");
+    }
+
+    @Test
+    public void unpairedSurrogates() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(out, 4);
+        utf8.append("a\ude00b\ud83dc\ud83d");
+        utf8.flush();
+        assertThat(out.toString("UTF-8")).isEqualTo("a?b?c?");
+    }
+
+    @Test
+    public void appendSubsequence() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(out, 8);
+        utf8.append("abcédef", 2, 5);
+        utf8.flush();
+        assertThat(out.toString("UTF-8")).isEqualTo("céd");
+    }
+
+    @Test
+    public void appendNull() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(out, 8);
+        utf8.append(null);
+        utf8.flush();
+        assertThat(out.toString("UTF-8")).isEqualTo("null");
+    }
+
+    @Test
+    public void nothingWrittenBeforeBufferIsFull() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(out, 8);
+        utf8.append("abcd");
+        assertThat(out.size()).isEqualTo(0);
+        utf8.append("efghij");
+        assertThat(out.size()).isEqualTo(8);
+    }
+
+    @Test
+    public void writesToChannel() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Appendable utf8 = new Utf8Appendable(Channels.newChannel(out), 5);
+        utf8.append(MIXED);
+        utf8.flush();
+        assertThat(out.toByteArray()).isEqualTo(MIXED.getBytes(Charsets.UTF_8));
+    }
+
+    @Test
+    public void errorsIfBufferTooSmall() {
+        exception.expect(IllegalArgumentException.class);
+        new Utf8Appendable(new ByteArrayOutputStream(), 3);
+    }
+}
@@ -49,7 +49,11 @@ import java.util.Map;
 public enum Keyword {
     <#list keywords as keyword>
     /** CSS keyword named '${keyword}' */
+    <#if colors[keyword]??>
+    ${keyword?upper_case?replace("-","_")}("${keyword}", "${colors[keyword]}"),
+    <#else>
     ${keyword?upper_case?replace("-","_")}("${keyword}"),
+    </#if>
 
     </#list>
     ;
@@ -65,9 +69,26 @@ public enum Keyword {
     }
 
     private final String keyword;
+    private final String color;
 
     Keyword(String keyword) {
+        this(keyword, null);
+    }
+
+    Keyword(String keyword, String color) {
         this.keyword = keyword;
+        this.color = color;
+    }
+
+    /**
+     * Gets the six-digit hex value (without the '#') of this keyword, if this keyword is one of the basic named colors (e.g.,
+     * "ff0000" for {@link #RED}). Only the basic named colors have a hex value, even though other color names are recognized
+     * keywords as well.
+     *
+     * @return The hex value, or {@link Optional#absent()} if this keyword isn't a basic named color.
+     */
+    public Optional<String> color() {
+        return Optional.fromNullable(color);
     }
 
     /**